@@ -0,0 +1,73 @@
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Purpose: Used to show live ParkingAnalytics figures in one line of the main window.
+ *
+ * The line shows occupancy by slot type, arrivals and departures over the last
+ * 5, 15 and 60 minutes, and the median, 90th and 99th percentile stay lengths.
+ * It is refreshed once a second while the panel is showing.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class AnalyticsPanel extends JPanel {
+
+    private final ParkingAnalytics analytics;
+    private final JLabel occupancyLabel = new JLabel();
+    private final JLabel rateLabel = new JLabel();
+    private final JLabel dwellLabel = new JLabel();
+    private final Timer ticker = new Timer(1000, e -> refresh());
+
+    /**
+     * Constructs a panel showing the given analytics.
+     *
+     * @param analytics the analytics to show
+     */
+    public AnalyticsPanel(ParkingAnalytics analytics) {
+        super(new FlowLayout(FlowLayout.RIGHT, 12, 0));
+        this.analytics = analytics;
+        add(occupancyLabel);
+        add(rateLabel);
+        add(dwellLabel);
+        refresh();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        ticker.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        ticker.stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Reads the current figures into the labels.
+     */
+    private void refresh() {
+        occupancyLabel.setText("Staff " + analytics.occupiedCount(true) + "/" + analytics.slotCount(true)
+                + "  Visitor " + analytics.occupiedCount(false) + "/" + analytics.slotCount(false));
+        rateLabel.setText("In 5/15/60m: " + analytics.arrivals(5) + "/" + analytics.arrivals(15) + "/"
+                + analytics.arrivals(60) + "  Out: " + analytics.departures(5) + "/"
+                + analytics.departures(15) + "/" + analytics.departures(60));
+        dwellLabel.setText(analytics.dwellCount() == 0 ? "Stay: -"
+                : "Stay p50/p90/p99: " + formatSeconds(analytics.dwellPercentile(50)) + " / "
+                + formatSeconds(analytics.dwellPercentile(90)) + " / "
+                + formatSeconds(analytics.dwellPercentile(99)));
+    }
+
+    /**
+     * Formats a stay length as hours and minutes (e.g. "2:05").
+     *
+     * @param seconds the stay length in seconds
+     * @return the formatted length
+     */
+    private static String formatSeconds(long seconds) {
+        return String.format("%d:%02d", seconds / 3600, (seconds % 3600) / 60);
+    }
+}
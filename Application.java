@@ -1,17 +1,19 @@
 import javax.swing.*;
-import javax.swing.border.LineBorder;
 import java.awt.*;
-import java.awt.event.*;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Main GUI application for the Parking Spot System.
  * Responsibilities:
- * - Render slots as interactive buttons
+ * - Render slots as an interactive grid
  * - Provide operations via controls
  * - Validate input and show messages
  * - Delegate business logic to CarPark, ParkingSlot, Car
@@ -22,63 +24,165 @@ import java.util.Comparator;
  */
 public class Application extends JFrame {
 
-    // init new car park
-    private final CarPark carPark = new CarPark();
+    // most sessions listed by "Session History"
+    private static final int HISTORY_ROWS = 200;
+
+    // most cars listed under the search box
+    private static final int SEARCH_ROWS = 20;
+
+    // car park shown and edited by this window
+    private final CarPark carPark;
+
+    // runs long car park operations off the event dispatch thread, completing them back on it
+    private final AsyncCarPark async;
+
+    // advance bookings, enforced by the car park whenever a car is parked
+    private final ReservationBook reservations;
+
+    // parked cars by partial registration number or owner name, for the search box
+    private final CarSearchIndex searchIndex;
+
+    // prices stays: $6 per started hour (minimum 1 hour) for staff and visitors
+    private final TariffEngine tariff = TariffEngine.standard();
+
+    // finished parking sessions, kept for -Dcarpark.historyDays days (default 90)
+    private final SessionHistory history;
 
     // init GUI window
-    private final JPanel slotGrid = new JPanel(new GridLayout(0, 8, 8, 8));
+    private final SlotGridView slotGrid = new SlotGridView();
     private final JPanel controlPanel = new JPanel();
     private final JLabel statusBar = new JLabel("Welcome to Parking Spot System");
 
-    // select color for slot type and occupancy
-    private final Color staffColor = new Color(30, 60, 150);
-    private final Color visitorColor = new Color(25, 120, 60);
-    private final Color occupiedBorderColor = new Color(240, 200, 40);
+    // search-as-you-type box and its results
+    private final JTextField searchField = new JTextField();
+    private final DefaultListModel<CarSearchIndex.Match> searchResults = new DefaultListModel<>();
 
-    private static class SlotButton extends JButton {
-        private final String slotId;
+    // progress and cancel button of the background operation, shown while one runs
+    private final JProgressBar taskProgress = new JProgressBar();
+    private final JButton cancelTaskBtn = new JButton("Cancel");
+    private final JPanel taskPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+    private CompletableFuture<?> runningTask;
 
-        /**
-         * Constructs a new SlotButton for a given slot ID.
-         *
-         * @param slotId the unique identifier of the slot
-         */
-        SlotButton(String slotId) {
-            super(slotId);
-            this.slotId = slotId;
-            setFocusPainted(false);
-            setForeground(Color.WHITE);
-            setFont(getFont().deriveFont(Font.BOLD, 12f));
-        }
-
-        /**
-         * Returns the slot ID associated with this button.
-         *
-         * @return the slot ID
-         */
-        public String getSlotId() {
-            return slotId;
-        }
+    /**
+     * Create and show the application window with a new, empty car park.
+     */
+    public Application() {
+        this(new ConcurrentCarPark());
     }
 
     /**
-     * Create and show the application window.
+     * Create and show the application window for the given car park. Bulk work
+     * runs in the background only if the car park is thread-safe (see
+     * CarPark.isThreadSafe); otherwise it runs on the event thread, and the
+     * window waits for it.
+     *
+     * @param carPark the car park to display and operate on
      */
-    public Application() {
+    public Application(CarPark carPark) {
         super("Parking Spot System");
+        this.carPark = carPark;
+        // the window reads the car park on the event thread while bulk work runs; a car park
+        // meant for one thread has that work run on the event thread too, so it is never shared
+        this.async = carPark.isThreadSafe() ? new AsyncCarPark(carPark, SwingUtilities::invokeLater)
+                : new AsyncCarPark(carPark, SwingUtilities::invokeLater, SwingUtilities::invokeLater,
+                        AsyncCarPark.DEFAULT_CHUNK_SIZE);
+        this.reservations = new ReservationBook(carPark);
+        this.searchIndex = new CarSearchIndex(carPark);
+        // exit times come from the car park's clock, like parked times (see CarPark.setClock)
+        this.history = new SessionHistory(tariff, Integer.getInteger("carpark.historyDays", 90), carPark.getClock());
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout(10, 10));
 
         initControls();
+        slotGrid.setClickHandler(this::onSlotClicked);
+        slotGrid.setRightClickHandler(this::onSlotRightClicked);
+        slotGrid.setTooltipProvider(this::slotTooltip);
+        slotGrid.setIndicatorProvider(this::slotIndicator);
+        slotGrid.setRefreshInterval(Integer.getInteger("carpark.refreshMillis", 1000));
+        slotGrid.setClock(carPark.getClock());
         add(new JScrollPane(slotGrid), BorderLayout.CENTER);
         add(controlPanel, BorderLayout.WEST);
-        add(statusBar, BorderLayout.SOUTH);
+
+        // status message on the left, live figures from ParkingAnalytics on the right
+        JPanel footer = new JPanel(new BorderLayout());
+        taskProgress.setStringPainted(true);
+        cancelTaskBtn.addActionListener(e -> onCancelTask());
+        taskPanel.add(taskProgress);
+        taskPanel.add(cancelTaskBtn);
+        taskPanel.setVisible(false);
+        footer.add(taskPanel, BorderLayout.WEST);
+        footer.add(statusBar, BorderLayout.CENTER);
+        footer.add(new AnalyticsPanel(new ParkingAnalytics(carPark, carPark.getClock())), BorderLayout.EAST);
+        add(footer, BorderLayout.SOUTH);
+
+        carPark.addListener(new SlotGridUpdater());
+        carPark.addListener(history);
+        renderSlots();
 
         setMinimumSize(new Dimension(1100, 700));
         setLocationRelativeTo(null);
         setVisible(true);
     }
 
+    /**
+     * Keeps the slot grid in step with the car park, one slot at a time.
+     * Changes made off the event dispatch thread are passed on to it.
+     */
+    private class SlotGridUpdater implements CarParkListener {
+        @Override
+        public void slotAdded(ParkingSlot slot) {
+            onEventThread(() -> slotGrid.addSlot(slot));
+        }
+
+        @Override
+        public void slotDeleted(ParkingSlot slot) {
+            onEventThread(() -> slotGrid.removeSlot(slot.getSlotId()));
+        }
+
+        @Override
+        public void carParked(ParkingSlot slot, Car car) {
+            onEventThread(() -> slotGrid.updateSlot(slot));
+        }
+
+        @Override
+        public void carRemoved(ParkingSlot slot, Car car) {
+            onEventThread(() -> slotGrid.updateSlot(slot));
+        }
+
+        @Override
+        public void slotsAdded(List<ParkingSlot> slots) {
+            onEventThread(() -> slotGrid.addSlots(slots));
+        }
+
+        @Override
+        public void carsParked(List<ParkingSlot> slots, List<Car> cars) {
+            onEventThread(() -> slots.forEach(slotGrid::updateSlot));
+        }
+
+        @Override
+        public void carsRemoved(List<ParkingSlot> slots, List<Car> cars) {
+            onEventThread(() -> slots.forEach(slotGrid::updateSlot));
+        }
+
+        @Override
+        public void carMoved(ParkingSlot from, ParkingSlot to, Car car) {
+            onEventThread(() -> {
+                slotGrid.updateSlot(from);
+                slotGrid.updateSlot(to);
+            });
+        }
+
+        /**
+         * Runs a grid update on the event dispatch thread.
+         *
+         * @param update the update to run
+         */
+        private void onEventThread(Runnable update) {
+            if (SwingUtilities.isEventDispatchThread()) update.run();
+            else SwingUtilities.invokeLater(update);
+        }
+    }
+
     /**
      * Initializes the control panel with buttons for all operations.
      * Each button is wired to an event handler method.
@@ -99,6 +203,10 @@ public class Application extends JFrame {
         generateBtn.addActionListener(e -> onGenerateSlots());
         controlPanel.add(generateBtn, gbc);
 
+        JButton importBtn = new JButton("Import CSV...");
+        importBtn.addActionListener(e -> onImportCsv());
+        controlPanel.add(importBtn, gbc);
+
         controlPanel.add(new JSeparator(), gbc);
 
         // Section: Operations
@@ -126,6 +234,10 @@ public class Application extends JFrame {
         parkCarBtn.addActionListener(e -> onParkCar());
         controlPanel.add(parkCarBtn, gbc);
 
+        JButton parkAnyBtn = new JButton("Park Car (Any Slot)");
+        parkAnyBtn.addActionListener(e -> onParkCarAnywhere());
+        controlPanel.add(parkAnyBtn, gbc);
+
         JButton findCarBtn = new JButton("Find Car");
         findCarBtn.addActionListener(e -> onFindCar());
         controlPanel.add(findCarBtn, gbc);
@@ -134,109 +246,229 @@ public class Application extends JFrame {
         removeCarBtn.addActionListener(e -> onRemoveCar());
         controlPanel.add(removeCarBtn, gbc);
 
+        JButton reserveBtn = new JButton("Reserve Slot");
+        reserveBtn.addActionListener(e -> onReserveSlot());
+        controlPanel.add(reserveBtn, gbc);
+
+        JButton historyBtn = new JButton("Session History");
+        historyBtn.addActionListener(e -> onSessionHistory());
+        controlPanel.add(historyBtn, gbc);
+
+        controlPanel.add(new JSeparator(), gbc);
+
+        // Section: Search as you type
+        JLabel searchLabel = new JLabel("Search Cars (plate or owner)");
+        searchLabel.setFont(searchLabel.getFont().deriveFont(Font.BOLD));
+        controlPanel.add(searchLabel, gbc);
+
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            @Override public void insertUpdate(javax.swing.event.DocumentEvent e) { onSearchChanged(); }
+            @Override public void removeUpdate(javax.swing.event.DocumentEvent e) { onSearchChanged(); }
+            @Override public void changedUpdate(javax.swing.event.DocumentEvent e) { onSearchChanged(); }
+        });
+        controlPanel.add(searchField, gbc);
+
+        JList<CarSearchIndex.Match> resultList = new JList<>(searchResults);
+        resultList.setVisibleRowCount(6);
+        resultList.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                if (isBusy()) return; // the car park is being changed off the event thread
+                CarSearchIndex.Match match = resultList.getSelectedValue();
+                if (e.getClickCount() == 2 && match != null) showCarDetails(match.getRegistrationNumber());
+            }
+        });
+        controlPanel.add(new JScrollPane(resultList), gbc);
+
+        controlPanel.add(new JSeparator(), gbc);
+
         JButton exitBtn = new JButton("Exit");
         exitBtn.addActionListener(e -> onExit());
         controlPanel.add(exitBtn, gbc);
     }
 
     /**
-     * Render all current slots into the grid.
+     * Updates the search results as the search box changes: prefix matches
+     * first, then cars containing the text, then near misses (see CarSearchIndex).
+     */
+    private void onSearchChanged() {
+        searchResults.clear();
+        String text = searchField.getText().trim();
+        if (text.isEmpty()) return;
+        for (CarSearchIndex.Match match : searchIndex.search(text, SEARCH_ROWS)) searchResults.addElement(match);
+    }
+
+    /**
+     * Render all current slots into the grid, replacing whatever it shows.
+     * Only needed when the window first shows its car park; after that the
+     * grid is updated slot by slot through SlotGridUpdater. The slots are
+     * listed in the background; the controls stay disabled until they are shown.
      */
     private void renderSlots() {
-        slotGrid.removeAll();
+        runInBackground("Loading slots", async.listSlots(), slots -> {
+            slotGrid.setSlots(slots);
+            setStatus("Loaded " + slots.size() + " slots.", true);
+        });
+    }
 
-        // Sort by ID
-        Collection<ParkingSlot> slots = carPark.listSlots();
-        java.util.List<ParkingSlot> sorted = new ArrayList<>(slots);
-        sorted.sort(Comparator.comparing(ParkingSlot::getSlotId));
+    /**
+     * Runs a car park operation in the background, showing its progress and a
+     * cancel button and disabling the controls until it finishes, so nothing
+     * else changes the car park meanwhile.
+     *
+     * @param label  what the operation is doing, shown while it runs
+     * @param task   the operation's future, from async
+     * @param onDone what to do with its result, on the event dispatch thread
+     * @param <T>    the type of the result
+     */
+    private <T> void runInBackground(String label, CompletableFuture<T> task, Consumer<T> onDone) {
+        setBusy(true);
+        runningTask = task;
+        taskProgress.setIndeterminate(true);
+        taskProgress.setString(label + "...");
+        task.whenComplete((result, error) -> {
+            if (task != runningTask) return;
+            runningTask = null;
+            if (task.isCancelled()) {
+                // the worker stops at its next chunk; wait for it before enabling the controls
+                async.idle().thenRun(() -> setBusy(false));
+                setStatus(label + " cancelled.", false);
+                return;
+            }
+            setBusy(false);
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                warn(label + " failed: " + cause.getMessage());
+            } else {
+                onDone.accept(result);
+            }
+        });
+    }
+
+    /**
+     * Shows the progress of the background operation.
+     *
+     * @param label what the operation is doing
+     * @param done  the number of items handled so far
+     * @param total the number of items to handle
+     */
+    private void showProgress(String label, int done, int total) {
+        taskProgress.setIndeterminate(false);
+        taskProgress.setMaximum(Math.max(total, 1));
+        taskProgress.setValue(done);
+        taskProgress.setString(label + " " + done + " / " + total);
+    }
 
-        for (ParkingSlot slot : sorted) {
-            SlotButton btn = new SlotButton(slot.getSlotId());
-            styleSlotButton(btn, slot);
-            attachSlotButtonHandlers(btn, slot);
-            slotGrid.add(btn);
+    /**
+     * Handles the "Cancel" button of the background operation.
+     */
+    private void onCancelTask() {
+        if (runningTask != null) runningTask.cancel(false);
+    }
+
+    /**
+     * Enables or disables the controls while a background operation runs.
+     *
+     * @param busy true while an operation runs
+     */
+    private void setBusy(boolean busy) {
+        for (Component control : controlPanel.getComponents()) {
+            control.setEnabled(!busy);
+            if (control instanceof JScrollPane scroll) scroll.getViewport().getView().setEnabled(!busy);
         }
+        taskPanel.setVisible(busy);
+        setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
 
-        slotGrid.revalidate();
-        slotGrid.repaint();
+    /**
+     * Checks whether a background operation is running.
+     *
+     * @return true if the controls are disabled for one
+     */
+    private boolean isBusy() {
+        return taskPanel.isVisible();
     }
 
     /**
-     * Styles a slot button according to its type (staff/visitor) and occupancy.
+     * Builds the tooltip for a slot in the grid. Only called when the mouse rests on it.
      *
-     * @param btn  the button to style
-     * @param slot the slot represented by the button
+     * @param slot the slot under the mouse
+     * @return the tooltip text
      */
-    private void styleSlotButton(SlotButton btn, ParkingSlot slot) {
-        boolean staff = slot.isStaffSlot();
-        btn.setBackground(staff ? staffColor : visitorColor);
+    private String slotTooltip(ParkingSlot slot) {
+        Car car = slot.getParkedCar();
+        if (car != null) return buildSlotTooltip(slot, car);
+        String type = slot.isStaffSlot() ? "Staff slot" : "Visitor slot";
+        Reservation booked = reservations.findActive(slot.getSlotId(), carPark.now());
+        if (booked != null) return type + " (reserved for " + booked.getRegistrationNumber() + " until " + booked.getTo() + ")";
+        return type + " (empty)";
+    }
 
+    /**
+     * Builds the short duration and fee line drawn in an occupied slot's cell.
+     *
+     * @param slot the occupied slot
+     * @param now  the current time
+     * @return the indicator text, or null if the parked time is unknown
+     */
+    private String slotIndicator(ParkingSlot slot, LocalDateTime now) {
+        Car car = slot.getParkedCar();
+        if (car == null || car.getParkedTime() == null) return null;
+        long minutes = Duration.between(car.getParkedTime(), now).toMinutes();
+        int fee = tariff.fee(car.isStaff(), car.getParkedTime(), now);
+        return String.format("%d:%02d  $%d", minutes / 60, minutes % 60, fee);
+    }
+
+    /**
+     * Handles a left click on a slot in the grid: remove the car from an
+     * occupied slot, or park a car in an empty one.
+     *
+     * @param slot the slot that was clicked
+     */
+    private void onSlotClicked(ParkingSlot slot) {
+        if (isBusy()) return;
         if (slot.isOccupied()) {
-            btn.setBorder(new LineBorder(occupiedBorderColor, 3));
-            Car car = slot.getParkedCar();
-            String tt = buildSlotTooltip(slot, car);
-            btn.setToolTipText(tt);
+            int choice = JOptionPane.showConfirmDialog(this,
+                "Remove car from slot " + slot.getSlotId() + "?",
+                "Remove Car", JOptionPane.YES_NO_OPTION);
+            if (choice == JOptionPane.YES_OPTION) {
+                carPark.removeCar(slot.getParkedCar().getRegistrationNumber());
+                setStatus("Car removed from " + slot.getSlotId(), true);
+            }
         } else {
-            btn.setBorder(new LineBorder(Color.DARK_GRAY, 1));
-            btn.setToolTipText(staff ? "Staff slot (empty)" : "Visitor slot (empty)");
+            onParkCarToSlot(slot.getSlotId());
         }
     }
 
     /**
-     * Attaches click handlers to a slot button for interactive actions.
-     * 
-     * Left-click: park or remove a car
-     * Right-click: delete unoccupied slot
+     * Handles a right click on a slot in the grid: delete the slot if it is unoccupied.
      *
-     * @param btn  the button to attach handlers to
-     * @param slot the slot represented by the button
-     */
-    private void attachSlotButtonHandlers(SlotButton btn, ParkingSlot slot) {
-        btn.addActionListener(e -> {
-            if (slot.isOccupied()) {
-                int choice = JOptionPane.showConfirmDialog(this,
-                    "Remove car from slot " + slot.getSlotId() + "?",
-                    "Remove Car", JOptionPane.YES_NO_OPTION);
-                if (choice == JOptionPane.YES_OPTION) {
-                    slot.removeCar();
-                    setStatus("Car removed from " + slot.getSlotId(), true);
-                    renderSlots();
-                }
-            } else {
-                onParkCarToSlot(slot.getSlotId());
-            }
-        });
-
-        btn.addMouseListener(new MouseAdapter() {
-            @Override public void mousePressed(MouseEvent e) {
-                if (SwingUtilities.isRightMouseButton(e)) {
-                    if (slot.isOccupied()) {
-                        warn("Cannot delete occupied slot " + slot.getSlotId());
-                    } else {
-                        int choice = JOptionPane.showConfirmDialog(Application.this,
-                            "Delete slot " + slot.getSlotId() + "?",
-                            "Delete Slot", JOptionPane.YES_NO_OPTION);
-                        if (choice == JOptionPane.YES_OPTION) {
-                            if (carPark.deleteSlot(slot.getSlotId())) {
-                                setStatus("Deleted slot " + slot.getSlotId(), true);
-                                renderSlots();
-                            } else {
-                                warn("Failed to delete slot " + slot.getSlotId());
-                            }
-                        }
-                    }
+     * @param slot the slot that was right-clicked
+     */
+    private void onSlotRightClicked(ParkingSlot slot) {
+        if (isBusy()) return;
+        if (slot.isOccupied()) {
+            warn("Cannot delete occupied slot " + slot.getSlotId());
+        } else {
+            int choice = JOptionPane.showConfirmDialog(this,
+                "Delete slot " + slot.getSlotId() + "?",
+                "Delete Slot", JOptionPane.YES_NO_OPTION);
+            if (choice == JOptionPane.YES_OPTION) {
+                if (carPark.deleteSlot(slot.getSlotId())) {
+                    setStatus("Deleted slot " + slot.getSlotId(), true);
+                } else {
+                    warn("Failed to delete slot " + slot.getSlotId());
                 }
             }
-        });
+        }
     }
 
 
     /**
      * Handles the "Generate Slots" operation.
      * 
-     * Prompts the user for the number of staff and visitor slots,
-     * generates them, and renders the grid.
-     * Delegates the actual operation to addSlotInternal.
+     * Prompts the user for the number of staff and visitor slots and
+     * adds them in the background, a chunk at a time, showing progress.
      */
     private void onGenerateSlots() {
         JTextField staffField = new JTextField();
@@ -259,17 +491,67 @@ public class Application extends JFrame {
             return;
         }
 
-        // Generate IDs: Staff F01.., Visitor T01..
+        if (staffCount > SlotId.MAX_BAY || visitorCount > SlotId.MAX_BAY) {
+            warn("At most " + SlotId.MAX_BAY + " slots of each type can be generated.");
+            return;
+        }
+
+        // Generate IDs: Staff F01.., Visitor T01..; IDs that are taken or that this
+        // car park cannot hold (e.g. F100 in a compact car park) are skipped
+        List<ParkingSlot> batch = new ArrayList<>(staffCount + visitorCount);
         for (int i = 1; i <= staffCount; i++) {
             String id = String.format("F%02d", i);
-            addSlotInternal(id, true);
+            if (carPark.acceptsSlotId(id) && carPark.findSlot(id) == null) batch.add(new ParkingSlot(id, true));
         }
         for (int i = 1; i <= visitorCount; i++) {
             String id = String.format("T%02d", i);
-            addSlotInternal(id, false);
+            if (carPark.acceptsSlotId(id) && carPark.findSlot(id) == null) batch.add(new ParkingSlot(id, false));
         }
-        renderSlots();
-        setStatus("Generated " + staffCount + " staff and " + visitorCount + " visitor slots.", true);
+        int requested = staffCount + visitorCount;
+        String label = "Generating slots";
+        runInBackground(label, async.addSlots(batch, (done, total) -> showProgress(label, done, total)), added -> {
+            int skipped = requested - added;
+            setStatus("Generated " + added + " slots"
+                    + (skipped > 0 ? " (" + skipped + " skipped: already present or not supported)." : "."), true);
+        });
+    }
+
+    /**
+     * Handles the "Import CSV" operation.
+     * Asks for a file of slots or parked cars and imports it in the background,
+     * showing how far it has got and its throughput, then the rows that failed.
+     */
+    private void onImportCsv() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        java.nio.file.Path file = chooser.getSelectedFile().toPath();
+        String[] layouts = {"Slots (slot_id,type)", "Parked cars (registration,owner,staff,slot_id,parked_time)"};
+        int choice = JOptionPane.showOptionDialog(this, "What does " + file.getFileName() + " hold?", "Import CSV",
+                JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, layouts, layouts[0]);
+        if (choice < 0) return;
+        CsvImporter.Layout layout = choice == 0 ? CsvImporter.Layout.SLOTS : CsvImporter.Layout.CARS;
+
+        String label = choice == 0 ? "Importing slots" : "Importing cars";
+        long start = System.nanoTime();
+        runInBackground(label, async.importCsv(file, layout, (rows, bytesRead, totalBytes) -> {
+            double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-3);
+            taskProgress.setIndeterminate(false);
+            taskProgress.setMaximum(1000);
+            taskProgress.setValue(totalBytes == 0 ? 1000 : (int) (bytesRead * 1000 / totalBytes));
+            taskProgress.setString(String.format("%s: %,d rows, %,.0f rows/s", label, rows, rows / seconds));
+        }), result -> {
+            setStatus(result.toString(), result.getFailed() == 0);
+            if (result.getFailed() == 0) return;
+            StringBuilder sb = new StringBuilder();
+            for (CsvImporter.RowError error : result.getErrors()) sb.append(error).append('\n');
+            if (result.getFailed() > result.getErrors().size()) {
+                sb.append("... and ").append(result.getFailed() - result.getErrors().size()).append(" more.");
+            }
+            JTextArea errors = new JTextArea(sb.toString(), 12, 60);
+            errors.setEditable(false);
+            JOptionPane.showMessageDialog(this, new Object[] {result.toString(), new JScrollPane(errors)},
+                    "Import CSV", JOptionPane.WARNING_MESSAGE);
+        });
     }
 
     /**
@@ -280,14 +562,15 @@ public class Application extends JFrame {
         JTextField idField = new JTextField();
         String[] types = {"Staff", "Visitor"};
         JComboBox<String> typeBox = new JComboBox<>(types);
-        Object[] msg = {"Slot ID (e.g., F01):", idField, "Type:", typeBox};
+        Object[] msg = {"Slot ID (e.g., F01 or L2-F100):", idField, "Type:", typeBox};
         int res = JOptionPane.showConfirmDialog(this, msg, "Add Slot",
                 JOptionPane.OK_CANCEL_OPTION);
         if (res != JOptionPane.OK_OPTION) return;
 
         String id = idField.getText().trim();
-        if (!id.matches("^[A-Z]\\d{2}$")) {
-            warn("Invalid Slot ID. Use an uppercase letter followed by 2 digits (e.g., F01).");
+        if (!carPark.acceptsSlotId(id)) {
+            warn("Invalid Slot ID. Use an uppercase letter followed by a bay number of at least 2 digits,"
+                    + " optionally after a site and level (e.g., F01, F100 or S1-L2-F100).");
             return;
         }
         boolean isStaff = typeBox.getSelectedItem().equals("Staff");
@@ -295,7 +578,6 @@ public class Application extends JFrame {
             warn("Slot " + id + " already exists.");
             return;
         }
-        renderSlots();
         setStatus("Added slot " + id, true);
     }
 
@@ -307,7 +589,7 @@ public class Application extends JFrame {
         String id = JOptionPane.showInputDialog(this, "Enter Slot ID to delete (e.g., F01):");
         if (id == null) return;
         id = id.trim();
-        if (!id.matches("^[A-Z]\\d{2}$")) {
+        if (!carPark.acceptsSlotId(id)) {
             warn("Invalid Slot ID format.");
             return;
         }
@@ -321,7 +603,6 @@ public class Application extends JFrame {
             return;
         }
         if (carPark.deleteSlot(id)) {
-            renderSlots();
             setStatus("Deleted slot " + id, true);
         } else {
             warn("Failed to delete slot " + id + ".");
@@ -330,41 +611,101 @@ public class Application extends JFrame {
 
     /**
      * Handles the "List All Slots" operation.
-     * Displays all slots in a formatted dialog, including occupancy, car details,
-     * duration, and fee if applicable.
+     * Shows all slots in slot ID order, a page at a time, including occupancy,
+     * car details, duration, and fee if applicable, with filters and CSV export.
      */
     private void onListAllSlots() {
-        StringBuilder sb = new StringBuilder();
-        sb.append(String.format("%-6s %-8s %-10s %-10s %-20s %-10s%n",
-                "ID", "Type", "Occupied", "Reg", "Owner", "Duration/Fee"));
-        for (ParkingSlot slot : carPark.listSlots()) {
-            String type = slot.isStaffSlot() ? "Staff" : "Visitor";
-            if (slot.isOccupied()) {
-                Car car = slot.getParkedCar();
-                String dur = formatDuration(car.getParkedTime(), LocalDateTime.now());
-                String fee = "$" + computeFee(car.getParkedTime(), LocalDateTime.now());
-                sb.append(String.format("%-6s %-8s %-10s %-10s %-20s %-10s%n",
-                        slot.getSlotId(), type, "Yes",
-                        car.getRegistrationNumber(), car.getOwner(), dur + " / " + fee));
-            } else {
-                sb.append(String.format("%-6s %-8s %-10s %-10s %-20s %-10s%n",
-                        slot.getSlotId(), type, "No", "-", "-", "-"));
-            }
-        }
-        JTextArea area = new JTextArea(sb.toString(), 20, 60);
-        area.setEditable(false);
-        JOptionPane.showMessageDialog(this, new JScrollPane(area),
-                "All Slots", JOptionPane.INFORMATION_MESSAGE);
+        new SlotReportDialog(this, new SlotReport(carPark, tariff), async).setVisible(true);
     }
 
     /**
      * Handles the "Delete All Unoccupied Slots" operation.
-     * Removes all empty slots from the car park.
+     * Removes all empty slots from the car park in the background, a chunk at a time.
      */
     private void onDeleteUnoccupiedSlots() {
-        carPark.deleteAllUnoccupiedSlots();
-        renderSlots();
-        setStatus("Deleted all unoccupied slots.", true);
+        String label = "Deleting slots";
+        runInBackground(label, async.deleteUnoccupiedSlots((done, total) -> showProgress(label, done, total)),
+                deleted -> setStatus("Deleted " + deleted + " unoccupied slots.", true));
+    }
+
+    /**
+     * Handles the "Reserve Slot" operation.
+     * Prompts for a car, a slot type, a start time and a length of stay, and books
+     * the given slot, or the first slot of that type free for the whole period.
+     */
+    private void onReserveSlot() {
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        JTextField regField = new JTextField();
+        JCheckBox staffChk = new JCheckBox("Staff slot");
+        JTextField fromField = new JTextField(carPark.now().plusHours(1).withMinute(0).format(format));
+        JTextField hoursField = new JTextField("2");
+        JTextField slotField = new JTextField();
+        Object[] msg = {
+            "Car registration (e.g., T1234):", regField,
+            staffChk,
+            "From (yyyy-MM-dd HH:mm):", fromField,
+            "Hours:", hoursField,
+            "Slot ID (leave blank for any free slot):", slotField
+        };
+        int res = JOptionPane.showConfirmDialog(this, msg, "Reserve Slot", JOptionPane.OK_CANCEL_OPTION);
+        if (res != JOptionPane.OK_OPTION) return;
+
+        String reg = regField.getText().trim();
+        if (!IdCodec.isValidRegistration(reg)) {
+            warn("Invalid registration number format (e.g., T1234).");
+            return;
+        }
+        LocalDateTime from;
+        int hours;
+        try {
+            from = LocalDateTime.parse(fromField.getText().trim(), format);
+            hours = Integer.parseInt(hoursField.getText().trim());
+            if (hours <= 0) throw new NumberFormatException();
+        } catch (DateTimeParseException | NumberFormatException ex) {
+            warn("Enter the start as yyyy-MM-dd HH:mm and a positive number of hours.");
+            return;
+        }
+        LocalDateTime to = from.plusHours(hours);
+
+        String slotId = slotField.getText().trim();
+        boolean staff = staffChk.isSelected();
+        // finding a free slot looks at every slot, so it runs on the worker like other bulk work
+        runInBackground("Reserving", async.submit(park -> reserveSlot(slotId, reg, staff, from, to)),
+                reservation -> setStatus("Reserved " + reservation.getSlotId() + " for " + reg + " from "
+                        + from.format(format) + " to " + to.format(format) + " (#" + reservation.getId() + ").", true));
+    }
+
+    /**
+     * Books a slot for a car, or the first slot of a type free for the whole
+     * period if no slot is given. Runs on the car park's worker.
+     *
+     * @param slotId the slot to book, or empty for any free slot
+     * @param reg    the car's registration number
+     * @param staff  true to book a staff slot, false for a visitor slot
+     * @param from   when the booking starts
+     * @param to     when the booking ends
+     * @return the reservation
+     * @throws IllegalStateException with a message for the user if it cannot be booked
+     */
+    private Reservation reserveSlot(String slotId, String reg, boolean staff, LocalDateTime from, LocalDateTime to) {
+        String id = slotId;
+        if (id.isEmpty()) {
+            List<ParkingSlot> free = reservations.findFreeSlots(staff, from, to);
+            if (free.isEmpty()) {
+                throw new IllegalStateException("No " + (staff ? "staff" : "visitor") + " slot is free for that period.");
+            }
+            id = free.get(0).getSlotId();
+        } else {
+            ParkingSlot slot = carPark.findSlot(id);
+            if (slot == null) throw new IllegalStateException("Slot " + id + " not found.");
+            if (slot.isStaffSlot() != staff) {
+                throw new IllegalStateException("Slot " + id + " is a " + (slot.isStaffSlot() ? "staff" : "visitor")
+                        + " slot; tick \"Staff slot\" to match.");
+            }
+        }
+        Reservation reservation = reservations.reserve(id, reg, from, to);
+        if (reservation == null) throw new IllegalStateException("Slot " + id + " is already reserved for part of that period.");
+        return reservation;
     }
 
     /**
@@ -390,6 +731,46 @@ public class Application extends JFrame {
                 ownerField.getText().trim(), staffChk.isSelected());
     }
 
+    /**
+     * Handles the "Park Car (Any Slot)" operation.
+     * Prompts the user for car details and parks the car in the next free slot
+     * of the matching type, so no slot ID has to be entered.
+     */
+    private void onParkCarAnywhere() {
+        JTextField regField = new JTextField();
+        JTextField ownerField = new JTextField();
+        JCheckBox staffChk = new JCheckBox("Staff car");
+        Object[] msg = {
+            "Car registration (e.g., T1234):", regField,
+            "Owner:", ownerField,
+            staffChk
+        };
+        int res = JOptionPane.showConfirmDialog(this, msg, "Park Car",
+                JOptionPane.OK_CANCEL_OPTION);
+        if (res != JOptionPane.OK_OPTION) return;
+
+        String reg = regField.getText().trim();
+        boolean isStaffCar = staffChk.isSelected();
+        if (!IdCodec.isValidRegistration(reg)) {
+            warn("Invalid registration number format (e.g., T1234).");
+            return;
+        }
+        if (carPark.findCar(reg) != null) {
+            warn("Car " + reg + " is already parked in another slot.");
+            return;
+        }
+        Car car = new Car(reg, ownerField.getText().trim(), isStaffCar);
+        ParkingSlot slot = carPark.parkCarAnywhere(car);
+        if (slot == null) {
+            warn("No free " + (isStaffCar ? "staff" : "visitor") + " slot available.");
+            return;
+        }
+        setStatus("Car parked in " + slot.getSlotId() + " at " + car.getParkedTime(), true);
+        JOptionPane.showMessageDialog(this,
+                "Car parked in " + slot.getSlotId() + " at: " + car.getParkedTime(),
+                "Park Car", JOptionPane.INFORMATION_MESSAGE);
+    }
+
     /**
      * Handles interactive parking to a specific slot initiated from a slot button.
      * 
@@ -425,20 +806,30 @@ public class Application extends JFrame {
         String reg = JOptionPane.showInputDialog(this, "Enter car registration (e.g., T1234):");
         if (reg == null) return;
         reg = reg.trim();
-        if (!reg.matches("^[A-Z]\\d{4}$")) {
+        if (!IdCodec.isValidRegistration(reg)) {
             warn("Invalid registration format.");
             return;
         }
+        showCarDetails(reg);
+    }
+
+    /**
+     * Shows where a car is parked, for how long, and what it owes so far.
+     *
+     * @param reg the car's registration number
+     */
+    private void showCarDetails(String reg) {
         ParkingSlot slot = carPark.findCar(reg);
-        if (slot == null) {
+        Car car = slot == null ? null : slot.getParkedCar();
+        if (car == null) {
             warn("Car " + reg + " not found.");
             return;
         }
-        Car car = slot.getParkedCar();
         String msg = "Car: " + reg + "\nOwner: " + car.getOwner() + "\nSlot: " + slot.getSlotId();
         if (car.getParkedTime() != null) {
-            String dur = formatDuration(car.getParkedTime(), LocalDateTime.now());
-            int fee = computeFee(car.getParkedTime(), LocalDateTime.now());
+            LocalDateTime now = carPark.now();
+            String dur = formatDuration(car.getParkedTime(), now);
+            int fee = tariff.fee(car.isStaff(), car.getParkedTime(), now);
             msg += "\nParked: " + car.getParkedTime() + "\nDuration: " + dur + "\nFee: $" + fee;
         }
         JOptionPane.showMessageDialog(this, msg, "Find Car", JOptionPane.INFORMATION_MESSAGE);
@@ -453,25 +844,66 @@ public class Application extends JFrame {
         String reg = JOptionPane.showInputDialog(this, "Enter car registration (e.g., T1234):");
         if (reg == null) return;
         reg = reg.trim();
-        if (!reg.matches("^[A-Z]\\d{4}$")) {
+        if (!IdCodec.isValidRegistration(reg)) {
             warn("Invalid registration format.");
             return;
         }
         boolean ok = carPark.removeCar(reg);
         if (ok) {
-            renderSlots();
             setStatus("Removed car " + reg, true);
         } else {
             warn("Car " + reg + " not found.");
         }
     }
 
+    /**
+     * Handles the "Session History" operation.
+     * Shows the finished sessions of a car or slot, or those of today when nothing is entered.
+     */
+    private void onSessionHistory() {
+        String query = JOptionPane.showInputDialog(this,
+                "Enter a registration (e.g., T1234) or slot ID (e.g., A01), or leave blank for today:");
+        if (query == null) return;
+        query = query.trim();
+        List<SessionHistory.Session> sessions;
+        if (query.isEmpty()) {
+            LocalDateTime midnight = carPark.now().toLocalDate().atStartOfDay();
+            sessions = history.findBetween(midnight, midnight.plusDays(1));
+        } else if (IdCodec.isValidRegistration(query)) {
+            sessions = history.findByRegistration(query);
+        } else if (SlotId.isValid(query)) {
+            sessions = history.findBySlot(query);
+        } else {
+            warn("Enter a valid registration or slot ID.");
+            return;
+        }
+        if (sessions.isEmpty()) {
+            setStatus("No sessions found.", false);
+            JOptionPane.showMessageDialog(this, "No sessions found.", "Session History", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        // show the most recent sessions only
+        StringBuilder sb = new StringBuilder();
+        int shown = Math.min(sessions.size(), HISTORY_ROWS);
+        for (SessionHistory.Session s : sessions.subList(sessions.size() - shown, sessions.size())) {
+            sb.append(s).append('\n');
+        }
+        if (shown < sessions.size()) sb.append("(latest ").append(shown).append(" of ").append(sessions.size()).append(")");
+        JTextArea area = new JTextArea(sb.toString(), 20, 70);
+        area.setEditable(false);
+        area.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(this, new JScrollPane(area), "Session History", JOptionPane.INFORMATION_MESSAGE);
+        setStatus("Found " + sessions.size() + " sessions.", true);
+    }
+
     /**
      * Handles the "Exit" operation.
      * Displays a closing message and terminates the program.
      */
     private void onExit() {
         JOptionPane.showMessageDialog(this, "Program end!");
+        async.close();
         dispose();
     }
 
@@ -480,12 +912,12 @@ public class Application extends JFrame {
      * Attempts to add a new parking slot to the car park.
      * If the format is valid, a new ParkingSlot is created and added
      *
-     * @param id      the unique identifier for the slot (format: one uppercase letter + two digits)
+     * @param id      the unique identifier for the slot (format: see SlotId)
      * @param isStaff true if the slot is for staff, false if it is for visitors
      * @return true if the slot was successfully added, false if the ID format is invalid or the slot already exists
      */
     private boolean addSlotInternal(String id, boolean isStaff) {
-        if (!id.matches("^[A-Z]\\d{2}$")) return false;
+        if (!carPark.acceptsSlotId(id)) return false;
         ParkingSlot slot = new ParkingSlot(id, isStaff);
         return carPark.addSlot(slot);
     }
@@ -493,10 +925,10 @@ public class Application extends JFrame {
     /**
      * Attempts to park a car in the specified slot.
      * 
-     * Validates the slot ID and registration format, ensures the slot exists,
-     * checks that the car is not already parked elsewhere, and verifies type
-     * compatibility (staff vs. visitor). If successful, the car is parked,
-     * the time recorded, and the UI updated.
+     * Validates the slot ID and registration format, then asks the car park to
+     * park the car, which ensures the slot exists, checks that the car is not
+     * already parked elsewhere, and verifies type compatibility (staff vs. visitor)
+     * in one step. If successful, the time is recorded and the UI updated.
      *
      * @param slotId     the ID of the slot to park in
      * @param reg        the car's registration number
@@ -504,31 +936,24 @@ public class Application extends JFrame {
      * @param isStaffCar true if the car belongs to staff, false if visitor
      */
     private void parkCarInternal(String slotId, String reg, String owner, boolean isStaffCar) {
-        if (!slotId.matches("^[A-Z]\\d{2}$")) {
+        if (!carPark.acceptsSlotId(slotId)) {
             warn("Invalid Slot ID format.");
             return;
         }
-        if (!reg.matches("^[A-Z]\\d{4}$")) {
+        if (!IdCodec.isValidRegistration(reg)) {
             warn("Invalid registration number format (e.g., T1234).");
             return;
         }
-        ParkingSlot slot = carPark.findSlot(slotId);
-        if (slot == null) {
-            warn("Slot " + slotId + " not found.");
-            return;
-        }
-        if (carPark.findCar(reg) != null) {
-            warn("Car " + reg + " is already parked in another slot.");
-            return;
-        }
         Car car = new Car(reg, owner, isStaffCar);
-        if (!slot.parkCar(car)) {
-            if (slot.isOccupied()) warn("Slot " + slotId + " is occupied.");
-            else warn("Car type must match slot type.");
-            return;
+        switch (carPark.parkCar(slotId, car)) {
+            case PARKED -> { }
+            case SLOT_NOT_FOUND -> { warn("Slot " + slotId + " not found."); return; }
+            case ALREADY_PARKED -> { warn("Car " + reg + " is already parked in another slot."); return; }
+            case SLOT_OCCUPIED -> { warn("Slot " + slotId + " is occupied."); return; }
+            case RESERVED -> { warn("Slot " + slotId + " is reserved for another car."); return; }
+            default -> { warn("Car type must match slot type."); return; }
         }
         setStatus("Car parked in " + slotId + " at " + car.getParkedTime(), true);
-        renderSlots();
         JOptionPane.showMessageDialog(this,
                 "Car parked at: " + car.getParkedTime(),
                 "Park Car", JOptionPane.INFORMATION_MESSAGE);
@@ -537,6 +962,7 @@ public class Application extends JFrame {
     /**
      * Builds a tooltip string for a slot, including car details,
      * parked time, duration, and fee if occupied.
+     * Called on demand when the mouse rests on the slot, so the values are current.
      *
      * @param slot the slot to describe
      * @param car  the car parked in the slot
@@ -548,8 +974,9 @@ public class Application extends JFrame {
         sb.append("\nOccupied by: ").append(car.getRegistrationNumber())
           .append(" (").append(car.getOwner()).append(")");
         if (car.getParkedTime() != null) {
-            String dur = formatDuration(car.getParkedTime(), LocalDateTime.now());
-            int fee = computeFee(car.getParkedTime(), LocalDateTime.now());
+            LocalDateTime now = carPark.now();
+            String dur = formatDuration(car.getParkedTime(), now);
+            int fee = tariff.fee(car.isStaff(), car.getParkedTime(), now);
             sb.append("\nParked: ").append(car.getParkedTime())
               .append("\nDuration: ").append(dur)
               .append("\nFee: $").append(fee);
@@ -573,22 +1000,6 @@ public class Application extends JFrame {
         return hours + " hours " + minutes + " minutes " + secs + " seconds";
     }
 
-    /**
-     * Computes the parking fee based on the duration between two times.
-     * Charges $6 per hour, rounding up to the nearest hour (minimum 1 hour).
-     *
-     * @param start the start time
-     * @param end   the end time
-     * @return the computed fee in dollars
-     */
-    private int computeFee(LocalDateTime start, LocalDateTime end) {
-        Duration d = Duration.between(start, end);
-        long seconds = Math.max(d.getSeconds(), 1);
-        double hours = seconds / 3600.0;
-        int billableHours = (int) Math.ceil(hours);
-        return billableHours * 6;
-    }
-
     /**
      * Updates the status bar with a message.
      *
@@ -612,10 +1023,45 @@ public class Application extends JFrame {
 
     /**
      * Entry point for the GUI-based Parking Spot System.
+     * The car park is a ConcurrentCarPark unless chosen otherwise.
+     * Run with -Dcarpark.compact=true to keep slot state in the array-backed CompactCarPark
+     * (which is meant for one thread, so bulk work then runs on the event thread),
+     * and with -Dcarpark.refreshMillis=N to refresh the grid's duration/fee indicators every
+     * N milliseconds (default 1000, 0 to turn off).
+     * With -Dcarpark.dataDir=DIR the car park is restored from DIR at startup and every change
+     * is journaled there (-Dcarpark.commitMillis, -Dcarpark.snapshotEvery tune the journal).
+     * With -Dcarpark.mapped=FILE the car park is opened straight from a memory-mapped
+     * snapshot file instead (see MappedCarPark); changes are written back to the file.
      *
      * @param args command-line arguments (not used)
+     * @throws java.io.IOException if the car park in carpark.dataDir or carpark.mapped cannot be opened
      */
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(Application::new);
+    public static void main(String[] args) throws java.io.IOException {
+        boolean compact = Boolean.getBoolean("carpark.compact");
+        boolean sharded = Boolean.getBoolean("carpark.sharded"); // one shard per slot letter
+        String mapped = System.getProperty("carpark.mapped");
+        CarPark carPark = mapped != null ? MappedCarPark.open(java.nio.file.Path.of(mapped))
+                : compact ? new CompactCarPark() : sharded ? new ShardedCarPark() : new ConcurrentCarPark();
+
+        // -Dcarpark.dataDir=<dir> keeps the car park on disk: restore it now and journal every change
+        String dataDir = System.getProperty("carpark.dataDir");
+        if (dataDir != null && mapped == null) {
+            CarParkJournal journal = new CarParkJournal(carPark, java.nio.file.Path.of(dataDir),
+                    Integer.getInteger("carpark.commitMillis", 5), Integer.getInteger("carpark.snapshotEvery", 10000));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.close();
+                } catch (java.io.IOException e) {
+                    System.err.println("Could not save car park: " + e.getMessage());
+                }
+            }));
+        }
+        try {
+            // count and time every operation; see ParkingSpotSystem in JConsole or JDK Mission Control
+            new CarParkMetrics(carPark).register("application");
+        } catch (javax.management.JMException e) {
+            System.err.println("Could not register car park metrics: " + e.getMessage());
+        }
+        SwingUtilities.invokeLater(() -> new Application(carPark));
     }
 }
\ No newline at end of file
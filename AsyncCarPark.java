@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Purpose: Used to run car park operations on a background thread and hand back their results as futures.
+ *
+ * Operations run one at a time, in the order they were submitted, on a single
+ * virtual thread. Other threads may keep reading the car park meanwhile only if
+ * it is thread-safe (see CarPark.isThreadSafe); a car park meant for one thread
+ * (CarPark, CompactCarPark, MappedCarPark) can instead be given an executor
+ * that runs the work on the thread that owns it, e.g. the event dispatch thread.
+ * Each future is completed through the callback executor, e.g.
+ * SwingUtilities::invokeLater, so actions chained onto it run there; a
+ * callback thread must therefore never wait for one of these futures itself.
+ *
+ * Bulk operations work through their slots in chunks: each chunk is one call
+ * on the car park (so listeners hear of it as one change where the car park
+ * supports batches), progress is reported after each chunk, and cancelling the
+ * future stops the work before the next chunk. Progress reports are coalesced,
+ * so at most one is waiting on the callback executor at any time.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class AsyncCarPark implements AutoCloseable {
+
+    /** The number of slots handled between two progress reports, unless given. */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * Receives the progress of a bulk operation.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * Reports how far a bulk operation has got.
+         *
+         * @param done  the number of items handled so far
+         * @param total the number of items to handle
+         */
+        void update(int done, int total);
+    }
+
+    private final CarPark carPark;
+    private final Executor callbacks;
+    private final int chunkSize;
+    private final Executor worker;
+    private final ExecutorService ownWorker; // null if the work runs on a given executor
+
+    /**
+     * Constructs the async layer over a car park, with the default chunk size.
+     *
+     * @param carPark   the car park to run operations on
+     * @param callbacks where futures are completed and progress is reported
+     */
+    public AsyncCarPark(CarPark carPark, Executor callbacks) {
+        this(carPark, callbacks, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs the async layer over a car park.
+     *
+     * @param carPark   the car park to run operations on
+     * @param callbacks where futures are completed and progress is reported
+     * @param chunkSize the number of slots handled between two progress reports
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public AsyncCarPark(CarPark carPark, Executor callbacks, int chunkSize) {
+        this(carPark, callbacks, null, chunkSize);
+    }
+
+    /**
+     * Constructs the async layer over a car park, running its work on a given
+     * executor rather than a background thread of its own. Used for a car park
+     * that only one thread may touch: with the callback executor as the worker,
+     * the work runs on the callback thread, after whatever is already queued there.
+     *
+     * @param carPark   the car park to run operations on
+     * @param callbacks where futures are completed and progress is reported
+     * @param worker    where operations run, one at a time; null for a background thread
+     * @param chunkSize the number of slots handled between two progress reports
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public AsyncCarPark(CarPark carPark, Executor callbacks, Executor worker, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("Chunk size must be positive.");
+        this.carPark = carPark;
+        this.callbacks = callbacks;
+        this.chunkSize = chunkSize;
+        this.ownWorker = worker == null
+                ? Executors.newSingleThreadExecutor(Thread.ofVirtual().name("carpark-worker").factory()) : null;
+        this.worker = worker == null ? ownWorker : worker;
+    }
+
+    /**
+     * Returns the car park operations run on.
+     *
+     * @return the car park
+     */
+    public CarPark getCarPark() {
+        return carPark;
+    }
+
+    /**
+     * Runs an operation on the car park in the background.
+     *
+     * @param operation the operation
+     * @param <T>       the type of its result
+     * @return the operation's result; cancelling it before the operation starts skips it
+     */
+    public <T> CompletableFuture<T> submit(Function<CarPark, T> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        run(result, () -> operation.apply(carPark));
+        return result;
+    }
+
+    /**
+     * Returns a future that completes once everything submitted so far has
+     * finished, including work that was cancelled part way.
+     *
+     * @return the future
+     */
+    public CompletableFuture<Void> idle() {
+        return submit(park -> null);
+    }
+
+    /**
+     * Takes a copy of all slots, in slot ID order (see SlotId).
+     *
+     * @return the slots
+     */
+    public CompletableFuture<List<ParkingSlot>> listSlots() {
+        return submit(park -> {
+            List<ParkingSlot> slots = new ArrayList<>(park.listSlots());
+            slots.sort(Comparator.comparingInt(ParkingSlot::getSlotKey));
+            return slots;
+        });
+    }
+
+    /**
+     * Adds slots a chunk at a time. Each chunk is added as one batch (see
+     * CarPark.addSlots); if some of its slots cannot be added, e.g. because
+     * their IDs are taken, the others in that chunk are added one by one.
+     *
+     * @param slots    the slots to add
+     * @param progress receives the number of slots handled so far
+     * @return the number of slots added; cancelling it stops before the next chunk
+     */
+    public CompletableFuture<Integer> addSlots(List<ParkingSlot> slots, Progress progress) {
+        List<ParkingSlot> all = List.copyOf(slots);
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        ProgressReporter reporter = new ProgressReporter();
+        run(result, () -> {
+            int added = 0;
+            for (int from = 0; from < all.size() && !result.isCancelled(); from += chunkSize) {
+                int to = Math.min(from + chunkSize, all.size());
+                List<ParkingSlot> chunk = all.subList(from, to);
+                if (carPark.addSlots(chunk).isApplied()) {
+                    added += chunk.size();
+                } else {
+                    for (ParkingSlot slot : chunk) {
+                        if (carPark.addSlot(slot)) added++;
+                    }
+                }
+                int done = to;
+                reporter.report(() -> progress.update(done, all.size()));
+            }
+            return added;
+        });
+        return result;
+    }
+
+    /**
+     * Deletes every unoccupied slot a chunk at a time. Unlike
+     * CarPark.deleteAllUnoccupiedSlots, this can be stopped part way; a slot
+     * that is occupied by the time its chunk runs is kept.
+     *
+     * @param progress receives the number of slots handled so far
+     * @return the number of slots deleted; cancelling it stops before the next chunk
+     */
+    public CompletableFuture<Integer> deleteUnoccupiedSlots(Progress progress) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        ProgressReporter reporter = new ProgressReporter();
+        run(result, () -> {
+            List<String> unoccupied = new ArrayList<>();
+            for (ParkingSlot slot : carPark.listSlots()) {
+                if (!slot.isOccupied()) unoccupied.add(slot.getSlotId());
+            }
+            int deleted = 0;
+            for (int from = 0; from < unoccupied.size() && !result.isCancelled(); from += chunkSize) {
+                int to = Math.min(from + chunkSize, unoccupied.size());
+                for (String slotId : unoccupied.subList(from, to)) {
+                    if (carPark.deleteSlot(slotId)) deleted++;
+                }
+                int done = to;
+                reporter.report(() -> progress.update(done, unoccupied.size()));
+            }
+            return deleted;
+        });
+        return result;
+    }
+
+    /**
+     * Imports slots or parked cars from a CSV file (see CsvImporter), a chunk
+     * of rows at a time.
+     *
+     * @param file     the file to read
+     * @param layout   what the file holds
+     * @param progress receives the number of rows and bytes handled so far
+     * @return the outcome of the import, with its errors and throughput;
+     *         cancelling it stops before the next chunk. It fails with an
+     *         UncheckedIOException if the file cannot be read
+     */
+    public CompletableFuture<CsvImporter.Result> importCsv(Path file, CsvImporter.Layout layout,
+                                                           CsvImporter.Progress progress) {
+        CompletableFuture<CsvImporter.Result> result = new CompletableFuture<>();
+        ProgressReporter reporter = new ProgressReporter();
+        run(result, () -> {
+            try {
+                return new CsvImporter(carPark).importFile(file, layout,
+                        (rows, bytesRead, totalBytes) -> reporter.report(() -> progress.update(rows, bytesRead, totalBytes)),
+                        result::isCancelled);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Stops the background thread, if this has one. Work already queued is
+     * dropped and its futures are never completed.
+     */
+    @Override
+    public void close() {
+        if (ownWorker != null) ownWorker.shutdownNow();
+    }
+
+    /**
+     * Queues work on the worker and completes a future with its result, or
+     * with whatever it threw, on the callback executor.
+     *
+     * @param result the future to complete
+     * @param work   the work
+     * @param <T>    the type of its result
+     */
+    private <T> void run(CompletableFuture<T> result, Supplier<T> work) {
+        try {
+            worker.execute(() -> {
+                if (result.isCancelled()) return;
+                try {
+                    T value = work.get();
+                    callbacks.execute(() -> result.complete(value));
+                } catch (Throwable e) {
+                    // errors too (e.g. OutOfMemoryError), or the caller would wait for ever
+                    callbacks.execute(() -> result.completeExceptionally(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(new IllegalStateException("The car park worker has been closed.", e));
+        }
+    }
+
+    /**
+     * Passes progress on to the callback executor, keeping at most one report
+     * waiting there; that report is replaced by each newer one until it runs.
+     */
+    private class ProgressReporter {
+        private final AtomicReference<Runnable> latest = new AtomicReference<>();
+
+        /**
+         * Records the newest report and schedules it unless one is already waiting.
+         */
+        void report(Runnable update) {
+            if (latest.getAndSet(update) != null) return;
+            callbacks.execute(() -> latest.getAndSet(null).run());
+        }
+    }
+}
@@ -0,0 +1,60 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Purpose: Used to report the outcome of a batch operation on a car park.
+ *
+ * A batch is all-or-nothing: either every item was applied, or none was. The
+ * per-item results say which items were (or would have been) fine and why the
+ * others were refused.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class BatchResult<R> {
+
+    private final boolean applied;
+    private final List<R> results;
+    private final int failures;
+
+    /**
+     * Constructs a batch result.
+     *
+     * @param applied  true if the whole batch was applied
+     * @param results  the result of each item, in batch order
+     * @param failures the number of items that were refused
+     */
+    BatchResult(boolean applied, List<R> results, int failures) {
+        this.applied = applied;
+        this.results = Collections.unmodifiableList(results);
+        this.failures = failures;
+    }
+
+    /**
+     * Indicates whether the batch was applied.
+     *
+     * @return true if every item was applied, false if nothing was changed
+     */
+    public boolean isApplied() {
+        return applied;
+    }
+
+    /**
+     * Returns the result of each item, in batch order.
+     *
+     * @return the per-item results
+     */
+    public List<R> getResults() {
+        return results;
+    }
+
+    /**
+     * Returns the number of items that were refused.
+     *
+     * @return the number of refused items, 0 if the batch was applied
+     */
+    public int getFailureCount() {
+        return failures;
+    }
+}
@@ -21,7 +21,7 @@ public class Car {
      * @throws IllegalArgumentException if the registration number does not match the required format
      */
     public Car(String registrationNumber, String owner, boolean isStaff) {
-        if (!registrationNumber.matches("^[A-Z]\\d{4}$")) {
+        if (!IdCodec.isValidRegistration(registrationNumber)) {
             throw new IllegalArgumentException("Invalid registration number format (e.g. T1234).");
         }
         this.registrationNumber = registrationNumber;
@@ -1,4 +1,5 @@
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Purpose: Used to represent a whole car park.
@@ -11,18 +12,120 @@ public class CarPark {
     /**
      * A map of parking slots in the car park, keyed by their unique slot ID.
      */
-    private Map<String, ParkingSlot> slots = new HashMap<>();
+    private final Map<String, ParkingSlot> slots;
+
+    /**
+     * An index of occupied slots keyed by the registration number of the parked car.
+     * Kept in step with the slots through carParking and carRemoved.
+     */
+    private final Map<String, ParkingSlot> carIndex;
+
+    /**
+     * Unoccupied staff and visitor slots.
+     * Used to hand out the next free slot of a type without scanning.
+     */
+    private final Set<ParkingSlot> freeStaffSlots;
+    private final Set<ParkingSlot> freeVisitorSlots;
+
+    /**
+     * Listeners notified of every change to the car park.
+     */
+    private final List<CarParkListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The changes made so far by the batch running on the current thread, if any.
+     * While a batch runs, the fire methods collect its changes here instead of
+     * notifying listeners, so they can be published together when it ends.
+     */
+    private final ThreadLocal<BatchChanges> batchChanges = new ThreadLocal<>();
+
+    /**
+     * Set while the current thread undoes a failed batch, in this or any car
+     * park (e.g. a shard), so the undo is not counted in the metrics or recorded
+     * as flight recorder events; nobody asked for those operations.
+     */
+    private static final ThreadLocal<Boolean> undoingBatch = new ThreadLocal<>();
+
+    /**
+     * Held while a batch runs, so that batches never interleave.
+     */
+    private final Object batchLock = new Object();
+
+    /**
+     * The clock that gives the parked time of cars parked without one.
+     * The system clock unless replaced, e.g. by a simulation's virtual clock.
+     */
+    private volatile java.time.Clock clock = java.time.Clock.systemDefaultZone();
+
+    /**
+     * The metrics every operation is reported to, or null if nobody is measuring.
+     */
+    private volatile CarParkMetrics metrics;
+
+    /**
+     * The advance bookings checked whenever a car is parked or moved, or null if there are none.
+     */
+    private volatile ReservationBook reservations;
+
+    /**
+     * Constructs an empty car park for use from a single thread.
+     * Free slots are handed out in the order they became free.
+     */
+    public CarPark() {
+        this(new HashMap<>(), new HashMap<>(), new LinkedHashSet<>(), new LinkedHashSet<>());
+    }
+
+    /**
+     * Constructs an empty car park over the given collections, so that a subclass
+     * can choose their implementation (e.g. concurrent ones).
+     *
+     * @param slots            the map to hold slots by slot ID
+     * @param carIndex         the map to hold occupied slots by registration number
+     * @param freeStaffSlots   the set to hold unoccupied staff slots
+     * @param freeVisitorSlots the set to hold unoccupied visitor slots
+     */
+    protected CarPark(Map<String, ParkingSlot> slots, Map<String, ParkingSlot> carIndex,
+                      Set<ParkingSlot> freeStaffSlots, Set<ParkingSlot> freeVisitorSlots) {
+        this.slots = slots;
+        this.carIndex = carIndex;
+        this.freeStaffSlots = freeStaffSlots;
+        this.freeVisitorSlots = freeVisitorSlots;
+    }
 
     /**
      * Adds a new parking slot to the car park.
      *
      * @param slot the ParkingSlot to add
-     * @return true if the slot was successfully added, false if a slot with the same ID already exists
+     * @return true if the slot was successfully added, false if a slot with the same ID
+     *         already exists or its car is already parked elsewhere
      */
     public boolean addSlot(ParkingSlot slot) {
-        if (slots.containsKey(slot.getSlotId())) return false;
-        slots.put(slot.getSlotId(), slot);
-        return true;
+        long start = startTiming();
+        CarParkMetrics.Failure failure = tryAddSlot(slot);
+        record(CarParkMetrics.Operation.ADD_SLOT, start, failure);
+        return failure == null;
+    }
+
+    /**
+     * Adds a new parking slot to the car park, as addSlot.
+     *
+     * @param slot the ParkingSlot to add
+     * @return null if the slot was added, otherwise the reason it was not
+     */
+    private CarParkMetrics.Failure tryAddSlot(ParkingSlot slot) {
+        synchronized (slot) {
+            if (slots.putIfAbsent(slot.getSlotId(), slot) != null) return CarParkMetrics.Failure.SLOT_EXISTS;
+            slot.setCarPark(this);
+            if (!slot.isOccupied()) {
+                freeSlots(slot.isStaffSlot()).add(slot);
+            } else if (!carParking(slot, slot.getParkedCar())) {
+                slots.remove(slot.getSlotId(), slot);
+                slot.setCarPark(null);
+                return CarParkMetrics.Failure.ALREADY_PARKED;
+            }
+        }
+        fireSlotAdded(slot);
+        return null;
     }
 
     /**
@@ -32,10 +135,28 @@ public class CarPark {
      * @return true if the slot was successfully deleted, false} if the slot does not exist or is currently occupied
      */
     public boolean deleteSlot(String slotId) {
+        long start = startTiming();
+        CarParkMetrics.Failure failure = tryDeleteSlot(slotId);
+        record(CarParkMetrics.Operation.DELETE_SLOT, start, failure);
+        return failure == null;
+    }
+
+    /**
+     * Deletes a parking slot, as deleteSlot.
+     *
+     * @param slotId the ID of the slot to delete
+     * @return null if the slot was deleted, otherwise the reason it was not
+     */
+    private CarParkMetrics.Failure tryDeleteSlot(String slotId) {
         ParkingSlot slot = slots.get(slotId);
-        if (slot == null || slot.isOccupied()) return false;
-        slots.remove(slotId);
-        return true;
+        if (slot == null) return CarParkMetrics.Failure.SLOT_NOT_FOUND;
+        synchronized (slot) {
+            if (slot.isOccupied()) return CarParkMetrics.Failure.SLOT_OCCUPIED;
+            if (!slots.remove(slotId, slot)) return CarParkMetrics.Failure.SLOT_NOT_FOUND;
+            detach(slot);
+        }
+        fireSlotDeleted(slot);
+        return null;
     }
 
     /**
@@ -43,7 +164,37 @@ public class CarPark {
      * Occupied slots remain untouched.
      */
     public void deleteAllUnoccupiedSlots() {
-        slots.values().removeIf(slot -> !slot.isOccupied());
+        List<ParkingSlot> deleted = new ArrayList<>();
+        slots.values().removeIf(slot -> {
+            synchronized (slot) {
+                if (slot.isOccupied()) return false;
+                detach(slot);
+                deleted.add(slot);
+                return true;
+            }
+        });
+        for (ParkingSlot slot : deleted) fireSlotDeleted(slot);
+    }
+
+    /**
+     * Checks whether this car park may be used by several threads at once. A
+     * plain CarPark is meant for one thread; ConcurrentCarPark and
+     * ShardedCarPark are safe to share.
+     *
+     * @return true if threads may read and change it at the same time
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Checks whether this car park can hold a slot with the given ID.
+     *
+     * @param slotId the slot ID to check
+     * @return true if the ID is in the format this car park accepts (see SlotId)
+     */
+    public boolean acceptsSlotId(String slotId) {
+        return SlotId.isValid(slotId);
     }
 
     /**
@@ -53,6 +204,7 @@ public class CarPark {
      * @return the ParkingSlot with the given ID, or null if no such slot exists
      */
     public ParkingSlot findSlot(String slotId) {
+        count(CarParkMetrics.Operation.FIND_SLOT);
         return slots.get(slotId);
     }
 
@@ -63,12 +215,64 @@ public class CarPark {
      * @return the ParkingSlot containing the car, or null if the car is not found in any slot
      */
     public ParkingSlot findCar(String registrationNumber) {
-        for (ParkingSlot slot : slots.values()) {
-            if (slot.isOccupied() && slot.getParkedCar().getRegistrationNumber().equals(registrationNumber)) {
-                return slot;
-            }
+        count(CarParkMetrics.Operation.FIND_CAR);
+        return carIndex.get(registrationNumber);
+    }
+
+    /**
+     * Parks a car in the slot with the given ID.
+     *
+     * The checks and the park happen while holding the slot's lock, so two callers
+     * cannot both take the same slot, and the registration index only accepts one
+     * slot per registration number, so the same car cannot be parked twice.
+     *
+     * @param slotId the ID of the slot to park in
+     * @param car    the Car to park
+     * @return PARKED on success, otherwise the reason the car could not be parked
+     */
+    public ParkResult parkCar(String slotId, Car car) {
+        return parkCar(slotId, car, now());
+    }
+
+    /**
+     * Parks a car in the slot with the given ID, recording a given parked time
+     * instead of the current time. Used to restore or import cars that were
+     * parked earlier; otherwise the same as parkCar(String, Car).
+     *
+     * @param slotId     the ID of the slot to park in
+     * @param car        the Car to park
+     * @param parkedTime the time the car was parked
+     * @return PARKED on success, otherwise the reason the car could not be parked
+     */
+    public ParkResult parkCar(String slotId, Car car, java.time.LocalDateTime parkedTime) {
+        ParkEvent event = new ParkEvent();
+        event.begin();
+        long start = startTiming();
+        ParkResult result = tryParkCar(slotId, car, parkedTime);
+        record(CarParkMetrics.Operation.PARK, start, CarParkMetrics.Failure.of(result));
+        event.finish(slotId, car, result);
+        return result;
+    }
+
+    /**
+     * Parks a car in the slot with the given ID, as parkCar.
+     *
+     * @param slotId     the ID of the slot to park in
+     * @param car        the Car to park
+     * @param parkedTime the time the car was parked
+     * @return PARKED on success, otherwise the reason the car could not be parked
+     */
+    private ParkResult tryParkCar(String slotId, Car car, java.time.LocalDateTime parkedTime) {
+        ParkingSlot slot = slots.get(slotId);
+        if (slot == null) return ParkResult.SLOT_NOT_FOUND;
+        synchronized (slot) {
+            if (slot.getCarPark() != this) return ParkResult.SLOT_NOT_FOUND; // deleted meanwhile
+            if (carIndex.containsKey(car.getRegistrationNumber())) return ParkResult.ALREADY_PARKED;
+            if (slot.isOccupied()) return ParkResult.SLOT_OCCUPIED;
+            if (car.isStaff() != slot.isStaffSlot()) return ParkResult.TYPE_MISMATCH;
+            if (isReservedAgainst(slotId, car.getRegistrationNumber(), now())) return ParkResult.RESERVED;
+            return slot.parkCar(car, parkedTime) ? ParkResult.PARKED : ParkResult.ALREADY_PARKED;
         }
-        return null;
     }
 
     /**
@@ -78,9 +282,146 @@ public class CarPark {
      * @return true if the car was successfully removed, false if the car was not found
      */
     public boolean removeCar(String registrationNumber) {
-        ParkingSlot slot = findCar(registrationNumber);
-        if (slot == null) return false;
-        return slot.removeCar();
+        RemoveEvent event = new RemoveEvent();
+        event.begin();
+        long start = startTiming();
+        ParkingSlot slot = tryRemoveCar(registrationNumber);
+        record(CarParkMetrics.Operation.REMOVE, start, slot == null ? CarParkMetrics.Failure.CAR_NOT_FOUND : null);
+        event.finish(registrationNumber, slot == null ? null : slot.getSlotId());
+        return slot != null;
+    }
+
+    /**
+     * Removes a car from the car park, as removeCar.
+     *
+     * @param registrationNumber the registration number of the car to remove
+     * @return the slot the car was removed from, or null if the car was not found
+     */
+    private ParkingSlot tryRemoveCar(String registrationNumber) {
+        ParkingSlot slot;
+        while ((slot = carIndex.get(registrationNumber)) != null) {
+            synchronized (slot) {
+                Car car = slot.getParkedCar();
+                if (car != null && car.getRegistrationNumber().equals(registrationNumber)) {
+                    return slot.removeCar() ? slot : null;
+                }
+                if (carIndex.get(registrationNumber) == slot) return null; // being removed by a batch
+            }
+            // the car was moved or removed while we were looking; look again
+        }
+        return null;
+    }
+
+    /**
+     * Moves a parked car to another slot, keeping its original parked time.
+     *
+     * Both slots are locked (in slot ID order) for the whole move, and the
+     * registration index is switched to the new slot in one step, so the car is
+     * never seen as unparked while it moves.
+     *
+     * @param registrationNumber the registration number of the car to move
+     * @param targetSlotId       the ID of the slot to move it to
+     * @return PARKED on success, otherwise the reason the car could not be moved
+     */
+    public ParkResult moveCar(String registrationNumber, String targetSlotId) {
+        long start = startTiming();
+        ParkResult result = tryMoveCar(registrationNumber, targetSlotId);
+        record(CarParkMetrics.Operation.MOVE, start, CarParkMetrics.Failure.of(result));
+        return result;
+    }
+
+    /**
+     * Moves a parked car to another slot, as moveCar.
+     *
+     * @param registrationNumber the registration number of the car to move
+     * @param targetSlotId       the ID of the slot to move it to
+     * @return PARKED on success, otherwise the reason the car could not be moved
+     */
+    private ParkResult tryMoveCar(String registrationNumber, String targetSlotId) {
+        for (;;) {
+            ParkingSlot target = slots.get(targetSlotId);
+            if (target == null) return ParkResult.SLOT_NOT_FOUND;
+            ParkingSlot source = carIndex.get(registrationNumber);
+            if (source == null) return ParkResult.CAR_NOT_FOUND;
+            if (source == target) return ParkResult.SLOT_OCCUPIED;
+            boolean sourceFirst = source.getSlotKey() < target.getSlotKey();
+            synchronized (sourceFirst ? source : target) {
+                synchronized (sourceFirst ? target : source) {
+                    Car car = source.getParkedCar();
+                    if (car == null || !car.getRegistrationNumber().equals(registrationNumber)) {
+                        if (carIndex.get(registrationNumber) == source) return ParkResult.CAR_NOT_FOUND; // being removed by a batch
+                        continue; // the car was moved or removed meanwhile; look again
+                    }
+                    if (target.getCarPark() != this) return ParkResult.SLOT_NOT_FOUND;
+                    if (target.isOccupied()) return ParkResult.SLOT_OCCUPIED;
+                    if (car.isStaff() != target.isStaffSlot()) return ParkResult.TYPE_MISMATCH;
+                    if (isReservedAgainst(targetSlotId, registrationNumber, now())) return ParkResult.RESERVED;
+                    source.setParkedCar(null);
+                    target.setParkedCar(car);
+                    carIndex.put(registrationNumber, target);
+                    freeSlots(target.isStaffSlot()).remove(target);
+                    freeSlots(source.isStaffSlot()).add(source);
+                    fireCarMoved(source, target, car);
+                    return ParkResult.PARKED;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the next free slot of the given type without scanning the car park.
+     *
+     * @param isStaffSlot true to look for a staff slot, false for a visitor slot
+     * @return an unoccupied ParkingSlot of that type, or null if every such slot is taken
+     */
+    public ParkingSlot findFreeSlot(boolean isStaffSlot) {
+        Iterator<ParkingSlot> free = freeSlots(isStaffSlot).iterator();
+        return free.hasNext() ? free.next() : null;
+    }
+
+    /**
+     * Returns the number of free slots of the given type.
+     *
+     * @param isStaffSlot true to count staff slots, false to count visitor slots
+     * @return the number of unoccupied slots of that type
+     */
+    public int countFreeSlots(boolean isStaffSlot) {
+        return freeSlots(isStaffSlot).size();
+    }
+
+    /**
+     * Parks a car in the next free slot matching its type (staff or visitor),
+     * passing over slots reserved for other cars.
+     * If another caller takes that slot first, the next free slot is tried.
+     *
+     * @param car the Car to park
+     * @return the ParkingSlot the car was parked in, or null if the car is already
+     *         parked or there is no free slot of the right type
+     */
+    public ParkingSlot parkCarAnywhere(Car car) {
+        long start = startTiming();
+        ParkingSlot slot;
+        while ((slot = reservations == null ? findFreeSlot(car.isStaff()) : findUnreservedSlot(car)) != null) {
+            ParkResult result = parkCar(slot.getSlotId(), car);
+            if (result == ParkResult.PARKED) return slot;
+            if (result == ParkResult.ALREADY_PARKED) return null;
+        }
+        record(CarParkMetrics.Operation.PARK, start, CarParkMetrics.Failure.NO_FREE_SLOT);
+        return null;
+    }
+
+    /**
+     * Returns the first free slot of a car's type that is not reserved for another car now.
+     *
+     * @param car the car to park
+     * @return the slot, or null if there is none
+     */
+    private ParkingSlot findUnreservedSlot(Car car) {
+        java.time.LocalDateTime time = now();
+        for (ParkingSlot slot : freeSlots(car.isStaff())) {
+            if (!isReservedAgainst(slot.getSlotId(), car.getRegistrationNumber(), time)) return slot;
+        }
+        return null;
     }
 
     /**
@@ -91,4 +432,615 @@ public class CarPark {
     public Collection<ParkingSlot> listSlots() {
         return slots.values();
     }
-}
\ No newline at end of file
+
+    /**
+     * Copies the parked time and type of every parked car into arrays, for
+     * pricing the whole car park in one pass (see TariffEngine.feeAll).
+     * Parked times are in seconds since the epoch, reading the time as UTC.
+     * Cars with no recorded parked time are skipped. Every car is counted even
+     * if the arrays are too short to hold it, so a caller can tell it has to
+     * grow them and try again.
+     *
+     * @param startEpochSeconds receives the parked times
+     * @param isStaff           receives whether each car belongs to staff, the same length as startEpochSeconds
+     * @return the number of parked cars with a recorded parked time; if more
+     *         than the arrays hold, only the first that fit were copied
+     */
+    public int collectParkedTimes(long[] startEpochSeconds, boolean[] isStaff) {
+        int count = 0;
+        for (ParkingSlot slot : slots.values()) {
+            Car car = slot.getParkedCar();
+            if (car == null || car.getParkedTime() == null) continue;
+            if (count < startEpochSeconds.length) {
+                startEpochSeconds[count] = TariffEngine.toEpochSecond(car.getParkedTime());
+                isStaff[count] = car.isStaff();
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Adds a batch of slots, all or nothing. Each slot is checked first, against
+     * the car park and against the rest of the batch; only if every slot can be
+     * added are they all added. Listeners are notified once, through slotsAdded.
+     *
+     * @param batch the slots to add
+     * @return the outcome; a result is true if that slot can be added, false if
+     *         its ID is already taken (in the car park or earlier in the batch)
+     *         or its car is already parked
+     */
+    public BatchResult<Boolean> addSlots(List<ParkingSlot> batch) {
+        synchronized (batchLock) {
+            List<Boolean> results = new ArrayList<>(batch.size());
+            Set<String> ids = new HashSet<>(batch.size() * 2);
+            Set<String> registrations = new HashSet<>();
+            int failures = 0;
+            for (ParkingSlot slot : batch) {
+                Car car = slot.getParkedCar();
+                boolean ok = ids.add(slot.getSlotId()) && findSlot(slot.getSlotId()) == null
+                        && (car == null || registrations.add(car.getRegistrationNumber())
+                                && findCar(car.getRegistrationNumber()) == null);
+                results.add(ok);
+                if (!ok) failures++;
+            }
+            if (failures > 0) return new BatchResult<>(false, results, failures);
+
+            reserve(batch.size(), registrations.size());
+            BatchChanges changes = beginBatch();
+            try {
+                try {
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (addSlot(batch.get(i))) continue;
+                        // another thread got in first; undo what this batch did
+                        int added = i;
+                        undo(() -> {
+                            for (int j = added - 1; j >= 0; j--) undoAddSlot(batch.get(j));
+                        });
+                        results.set(i, false);
+                        return new BatchResult<>(false, results, 1);
+                    }
+                } finally {
+                    batchChanges.remove();
+                }
+                for (CarParkListener listener : listeners) listener.slotsAdded(changes.slots);
+                return new BatchResult<>(true, results, 0);
+            } finally {
+                endBatch(changes);
+            }
+        }
+    }
+
+    /**
+     * Parks a batch of cars, all or nothing. Each car is checked first, against
+     * the car park and against the rest of the batch; only if every car can be
+     * parked are they all parked. A car that already has a parked time (e.g. one
+     * being imported) keeps it; the others are given the current time.
+     * Listeners are notified once, through carsParked.
+     *
+     * @param slotIds the ID of the slot to park each car in
+     * @param cars    the cars, in the same order
+     * @return the outcome; a result is PARKED if that car can be parked,
+     *         otherwise the reason it cannot (a slot given twice is SLOT_OCCUPIED,
+     *         a car given twice ALREADY_PARKED)
+     */
+    public BatchResult<ParkResult> parkAll(List<String> slotIds, List<Car> cars) {
+        if (slotIds.size() != cars.size()) {
+            throw new IllegalArgumentException("Each car needs exactly one slot ID.");
+        }
+        synchronized (batchLock) {
+            List<ParkResult> results = new ArrayList<>(cars.size());
+            Set<String> usedSlots = new HashSet<>(cars.size() * 2);
+            Set<String> registrations = new HashSet<>(cars.size() * 2);
+            int failures = 0;
+            for (int i = 0; i < cars.size(); i++) {
+                Car car = cars.get(i);
+                ParkingSlot slot = findSlot(slotIds.get(i));
+                ParkResult result;
+                if (slot == null) result = ParkResult.SLOT_NOT_FOUND;
+                else if (!registrations.add(car.getRegistrationNumber())
+                        || findCar(car.getRegistrationNumber()) != null) result = ParkResult.ALREADY_PARKED;
+                else if (!usedSlots.add(slot.getSlotId()) || slot.isOccupied()) result = ParkResult.SLOT_OCCUPIED;
+                else if (car.isStaff() != slot.isStaffSlot()) result = ParkResult.TYPE_MISMATCH;
+                else if (isReservedAgainst(slot.getSlotId(), car.getRegistrationNumber(), now())) result = ParkResult.RESERVED;
+                else result = ParkResult.PARKED;
+                results.add(result);
+                if (result != ParkResult.PARKED) failures++;
+            }
+            if (failures > 0) return new BatchResult<>(false, results, failures);
+
+            reserve(0, cars.size());
+            java.time.LocalDateTime now = now();
+            List<java.time.LocalDateTime> givenTimes = new ArrayList<>(cars.size());
+            for (Car car : cars) givenTimes.add(car.getParkedTime());
+            BatchChanges changes = beginBatch();
+            try {
+                try {
+                    for (int i = 0; i < cars.size(); i++) {
+                        Car car = cars.get(i);
+                        java.time.LocalDateTime parkedTime = car.getParkedTime() != null ? car.getParkedTime() : now;
+                        ParkResult result = parkCar(slotIds.get(i), car, parkedTime);
+                        if (result == ParkResult.PARKED) continue;
+                        // another thread got in first; undo what this batch did
+                        int parked = i;
+                        undo(() -> {
+                            for (int j = parked - 1; j >= 0; j--) {
+                                removeCar(cars.get(j).getRegistrationNumber());
+                                cars.get(j).setParkedTime(givenTimes.get(j));
+                            }
+                        });
+                        results.set(i, result);
+                        return new BatchResult<>(false, results, 1);
+                    }
+                } finally {
+                    batchChanges.remove();
+                }
+                for (CarParkListener listener : listeners) listener.carsParked(changes.slots, changes.cars);
+                return new BatchResult<>(true, results, 0);
+            } finally {
+                endBatch(changes);
+            }
+        }
+    }
+
+    /**
+     * Removes a batch of cars, all or nothing. Each car is checked first; only if
+     * every car is parked (and none is given twice) are they all removed.
+     * Listeners are notified once, through carsRemoved.
+     *
+     * @param registrationNumbers the registration numbers of the cars to remove
+     * @return the outcome; a result is true if that car can be removed, false if
+     *         it is not parked or was given earlier in the batch
+     */
+    public BatchResult<Boolean> removeAll(List<String> registrationNumbers) {
+        synchronized (batchLock) {
+            List<Boolean> results = new ArrayList<>(registrationNumbers.size());
+            Set<String> seen = new HashSet<>(registrationNumbers.size() * 2);
+            int failures = 0;
+            for (String reg : registrationNumbers) {
+                boolean ok = seen.add(reg) && findCar(reg) != null;
+                results.add(ok);
+                if (!ok) failures++;
+            }
+            if (failures > 0) return new BatchResult<>(false, results, failures);
+
+            BatchChanges changes = beginBatch();
+            try {
+                try {
+                    for (int i = 0; i < registrationNumbers.size(); i++) {
+                        ParkingSlot slot = findCar(registrationNumbers.get(i));
+                        Car car = slot == null ? null : slot.getParkedCar();
+                        if (car != null && removeCar(registrationNumbers.get(i))) {
+                            changes.undo.add(slot.getSlotId());
+                            changes.undoCars.add(car);
+                            continue;
+                        }
+                        // another thread got in first; put back the cars this batch removed
+                        undo(() -> {
+                            for (int j = changes.undo.size() - 1; j >= 0; j--) {
+                                Car removed = changes.undoCars.get(j);
+                                parkCar(changes.undo.get(j), removed, removed.getParkedTime());
+                            }
+                        });
+                        results.set(i, false);
+                        return new BatchResult<>(false, results, 1);
+                    }
+                } finally {
+                    batchChanges.remove();
+                }
+                for (CarParkListener listener : listeners) listener.carsRemoved(changes.slots, changes.cars);
+                return new BatchResult<>(true, results, 0);
+            } finally {
+                endBatch(changes);
+            }
+        }
+    }
+
+    /**
+     * Gives a subclass the chance to make room for a batch before it is applied,
+     * so its storage grows once rather than step by step. The hash maps used here
+     * cannot be resized ahead, so by default this does nothing.
+     *
+     * @param newSlots the number of slots about to be added
+     * @param newCars  the number of cars about to be parked
+     */
+    protected void reserve(int newSlots, int newCars) {
+    }
+
+    /**
+     * Starts collecting the changes of a batch on the current thread.
+     *
+     * @return the collected changes
+     */
+    private BatchChanges beginBatch() {
+        BatchChanges changes = new BatchChanges();
+        batchChanges.set(changes);
+        return changes;
+    }
+
+    /**
+     * Releases the registration numbers of the cars a batch removed, once
+     * listeners have been told about the batch (or it has been undone).
+     *
+     * @param changes the batch's changes
+     */
+    private void endBatch(BatchChanges changes) {
+        for (Runnable release : changes.releases) release.run();
+    }
+
+    /**
+     * Undoes (part of) a failed batch. The car park operations it makes are
+     * not counted in the metrics or recorded as events, and, as the batch is
+     * still running, listeners do not hear of them either.
+     *
+     * @param work the undo
+     */
+    private static void undo(Runnable work) {
+        undoingBatch.set(Boolean.TRUE);
+        try {
+            work.run();
+        } finally {
+            undoingBatch.remove();
+        }
+    }
+
+    /**
+     * Checks whether the current thread is undoing a failed batch, so the flight
+     * recorder events of its operations are left out.
+     *
+     * @return true while a batch is being undone
+     */
+    static boolean isUndoingBatch() {
+        return undoingBatch.get() != null;
+    }
+
+    /**
+     * Takes a slot added by a failed batch out again, whether or not it is
+     * occupied. A slot this car park holds itself is taken out directly, so the
+     * caller's slot keeps its car; a car park that keeps its own copy of the
+     * slot (e.g. CompactCarPark) removes the copy's car and deletes it.
+     *
+     * @param slot the slot to take out
+     */
+    void undoAddSlot(ParkingSlot slot) {
+        if (slots.get(slot.getSlotId()) != slot) {
+            ParkingSlot added = findSlot(slot.getSlotId());
+            Car car = added == null ? null : added.getParkedCar();
+            if (car != null) removeCar(car.getRegistrationNumber());
+            deleteSlot(slot.getSlotId());
+            return;
+        }
+        synchronized (slot) {
+            if (!slots.remove(slot.getSlotId(), slot)) return;
+            detach(slot);
+            Car car = slot.getParkedCar();
+            if (car != null) unclaim(slot, car);
+        }
+    }
+
+    /**
+     * Replaces the clock that gives cars their parked time, so the car park can
+     * run on simulated or test time.
+     *
+     * @param clock the new clock
+     */
+    public void setClock(java.time.Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the clock that gives cars their parked time.
+     *
+     * @return the clock
+     */
+    public java.time.Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Returns the current time by this car park's clock.
+     *
+     * @return the current time
+     */
+    java.time.LocalDateTime now() {
+        return java.time.LocalDateTime.now(clock);
+    }
+
+    /**
+     * Attaches the metrics that every operation on this car park is reported to.
+     * Called by the CarParkMetrics constructor; with none attached, operations
+     * are not counted or timed.
+     *
+     * @param metrics the metrics, or null to stop reporting
+     */
+    public void setMetrics(CarParkMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the metrics every operation on this car park is reported to.
+     *
+     * @return the metrics, or null if none are attached
+     */
+    public CarParkMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Attaches the advance bookings that parking and moving cars must respect.
+     * Called by the ReservationBook constructor.
+     *
+     * @param reservations the bookings, or null to stop enforcing them
+     */
+    public void setReservations(ReservationBook reservations) {
+        this.reservations = reservations;
+    }
+
+    /**
+     * Returns the advance bookings that parking and moving cars must respect.
+     *
+     * @return the bookings, or null if none are attached
+     */
+    public ReservationBook getReservations() {
+        return reservations;
+    }
+
+    /**
+     * Checks whether a slot is reserved for a car other than the given one at a time.
+     * Bookings are checked against the time a car arrives (now), not the parked
+     * time it carries, which may be earlier for an imported or moved car.
+     *
+     * @param slotId             the ID of the slot
+     * @param registrationNumber the registration number of the car to park in it
+     * @param time               when it would be parked
+     * @return true if a booking for another car is active then
+     */
+    final boolean isReservedAgainst(String slotId, String registrationNumber, java.time.LocalDateTime time) {
+        ReservationBook book = reservations;
+        return book != null && book.blocks(slotId, registrationNumber, time);
+    }
+
+    /**
+     * Starts timing an operation, if metrics are attached.
+     *
+     * @return the current System.nanoTime, or 0 if nobody is measuring
+     */
+    protected final long startTiming() {
+        return metrics == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Reports a finished operation to the metrics, if any are attached.
+     *
+     * @param operation the operation
+     * @param start     the value startTiming returned when it began
+     * @param failure   why it failed, or null if it succeeded
+     */
+    protected final void record(CarParkMetrics.Operation operation, long start, CarParkMetrics.Failure failure) {
+        CarParkMetrics current = metrics;
+        if (current != null && !isUndoingBatch()) current.record(operation, start, failure);
+    }
+
+    /**
+     * Reports a lookup to the metrics, if any are attached.
+     *
+     * @param operation the lookup
+     */
+    protected final void count(CarParkMetrics.Operation operation) {
+        CarParkMetrics current = metrics;
+        if (current != null && !isUndoingBatch()) current.recordLookup(operation);
+    }
+
+    /**
+     * Registers a listener to be notified of every change to this car park.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(CarParkListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops notifying a listener of changes to this car park.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(CarParkListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Tells whether any listener is registered, so subclasses can skip building
+     * event arguments nobody will receive.
+     *
+     * @return true if at least one listener is registered
+     */
+    protected boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+
+    /**
+     * Notifies listeners that a slot has been added.
+     *
+     * @param slot the slot that was added
+     */
+    protected void fireSlotAdded(ParkingSlot slot) {
+        BatchChanges changes = batchChanges.get();
+        if (changes != null) {
+            changes.slots.add(slot);
+            return;
+        }
+        for (CarParkListener listener : listeners) listener.slotAdded(slot);
+    }
+
+    /**
+     * Notifies listeners that a slot has been deleted.
+     *
+     * @param slot the slot that was deleted
+     */
+    protected void fireSlotDeleted(ParkingSlot slot) {
+        if (batchChanges.get() != null) return; // only happens while undoing a batch
+        for (CarParkListener listener : listeners) listener.slotDeleted(slot);
+    }
+
+    /**
+     * Notifies listeners that a car has been parked.
+     *
+     * @param slot the slot the car was parked in
+     * @param car  the car that was parked
+     */
+    protected void fireCarParked(ParkingSlot slot, Car car) {
+        BatchChanges changes = batchChanges.get();
+        if (changes != null) {
+            changes.slots.add(slot);
+            changes.cars.add(car);
+            return;
+        }
+        for (CarParkListener listener : listeners) listener.carParked(slot, car);
+    }
+
+    /**
+     * Notifies listeners that a car has been removed.
+     *
+     * @param slot the slot the car was removed from
+     * @param car  the car that was removed
+     */
+    protected void fireCarRemoved(ParkingSlot slot, Car car) {
+        BatchChanges changes = batchChanges.get();
+        if (changes != null) {
+            changes.slots.add(slot);
+            changes.cars.add(car);
+            return;
+        }
+        for (CarParkListener listener : listeners) listener.carRemoved(slot, car);
+    }
+
+    /**
+     * Notifies listeners that a car has been moved.
+     *
+     * @param from the slot the car was moved out of
+     * @param to   the slot the car was moved into
+     * @param car  the car that was moved
+     */
+    protected void fireCarMoved(ParkingSlot from, ParkingSlot to, Car car) {
+        for (CarParkListener listener : listeners) listener.carMoved(from, to, car);
+    }
+
+    /**
+     * Called by a slot of this car park, while holding its lock, just before a car is parked in it.
+     * Claims the car's registration number in the index and takes the slot off the free list.
+     *
+     * @param slot the slot about to be occupied
+     * @param car  the car being parked
+     * @return true if the car may be parked, false if it is already parked in another slot
+     */
+    boolean carParking(ParkingSlot slot, Car car) {
+        ParkingSlot current = carIndex.putIfAbsent(car.getRegistrationNumber(), slot);
+        if (current != null && current != slot) return false;
+        freeSlots(slot.isStaffSlot()).remove(slot);
+        return true;
+    }
+
+    /**
+     * Called by a slot of this car park, while holding its lock, once a car has been parked in it.
+     *
+     * @param slot the slot that has just been occupied
+     * @param car  the car that was parked
+     */
+    void carParked(ParkingSlot slot, Car car) {
+        fireCarParked(slot, car);
+    }
+
+    /**
+     * Called by a slot of this car park, while holding its lock, after its car has been removed.
+     * Tells listeners, then drops the car from the registration index and marks the slot
+     * free again (at the end of the batch, if one is running).
+     *
+     * @param slot the slot that has just been vacated
+     * @param car  the car that was removed
+     */
+    void carRemoved(ParkingSlot slot, Car car) {
+        // listeners (e.g. CarParkJournal) record the removal before the car can be parked again elsewhere
+        fireCarRemoved(slot, car);
+        if (!deferRelease(() -> release(slot, car))) release(slot, car);
+    }
+
+    /**
+     * Holds back the release of a removed car's registration number while a
+     * batch runs on this thread, since the batch only tells listeners about its
+     * removals when it ends. Until then the car cannot be parked elsewhere.
+     *
+     * @param release releases the registration number
+     * @return true if the release was held back, false if there is no batch
+     */
+    boolean deferRelease(Runnable release) {
+        BatchChanges changes = batchChanges.get();
+        if (changes == null) return false;
+        changes.releases.add(release);
+        return true;
+    }
+
+    /**
+     * Drops a removed car from the registration index and marks its slot free
+     * again, unless the car has been put back in the slot meanwhile (a batch
+     * that was undone) or the slot has been deleted.
+     *
+     * @param slot the slot the car was removed from
+     * @param car  the car that was removed
+     * @return true if the registration number was released
+     */
+    boolean release(ParkingSlot slot, Car car) {
+        synchronized (slot) {
+            Car current = slot.getParkedCar();
+            if (current == null && slot.getCarPark() == this) freeSlots(slot.isStaffSlot()).add(slot);
+            if (current != null && current.getRegistrationNumber().equals(car.getRegistrationNumber())) return false;
+            return unclaim(slot, car);
+        }
+    }
+
+    /**
+     * Drops a car's claim on a slot from the registration index.
+     *
+     * @param slot the slot the car was in
+     * @param car  the car
+     * @return true if the car was claimed by that slot
+     */
+    boolean unclaim(ParkingSlot slot, Car car) {
+        return carIndex.remove(car.getRegistrationNumber(), slot);
+    }
+
+    /**
+     * Detaches a slot that has been removed from the slot map.
+     *
+     * @param slot the removed slot
+     */
+    private void detach(ParkingSlot slot) {
+        slot.setCarPark(null);
+        freeSlots(slot.isStaffSlot()).remove(slot);
+    }
+
+    /**
+     * Returns the free-slot set for the given slot type.
+     *
+     * @param isStaffSlot true for the staff set, false for the visitor set
+     * @return the set of unoccupied slots of that type
+     */
+    private Set<ParkingSlot> freeSlots(boolean isStaffSlot) {
+        return isStaffSlot ? freeStaffSlots : freeVisitorSlots;
+    }
+
+    /**
+     * The changes made by a batch, held back until the batch has succeeded.
+     */
+    private static class BatchChanges {
+        private final List<ParkingSlot> slots = new ArrayList<>();
+        private final List<Car> cars = new ArrayList<>();
+
+        // slots and cars removed so far, for putting back if the batch fails
+        private final List<String> undo = new ArrayList<>();
+        private final List<Car> undoCars = new ArrayList<>();
+
+        // registration numbers of removed cars, released once the batch has been reported
+        private final List<Runnable> releases = new ArrayList<>();
+    }
+}
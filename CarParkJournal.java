@@ -0,0 +1,781 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Purpose: Used to keep a car park's state on disk so it survives restarts.
+ *
+ * Every change to the car park (slot added or deleted, car parked, removed or
+ * moved) is recorded in a journal file as a redo record, after it has been made
+ * in memory. Records are collected in memory and a background thread writes and
+ * fsyncs them in groups every few milliseconds, so parking a car never waits for
+ * the disk; a caller that must not acknowledge a change before it is on disk
+ * (e.g. CarParkServer) waits for it with awaitDurable. If the journal cannot be
+ * written, the records are kept and retried, and getFailure reports the error
+ * until a write succeeds again.
+ *
+ * From time to time the background thread writes the whole car park to a
+ * snapshot file and starts a new, empty journal, so recovery only has to load
+ * the snapshot and replay the changes made since. The snapshot is taken from
+ * the journal's own image of the car park, kept up to date from the same
+ * records under the same lock, so it is exactly the state after the records
+ * before it and never reads the car park from another thread. Snapshot and
+ * journal carry a generation number; a journal left over from before the
+ * latest snapshot is recognised as such and not replayed.
+ *
+ * Each journal record carries its length and a CRC32, so a record torn by a
+ * crash is detected and dropped on recovery.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class CarParkJournal implements CarParkListener, Closeable {
+
+    private static final String JOURNAL_FILE = "carpark.journal";
+    private static final String SNAPSHOT_FILE = "carpark.snapshot";
+    private static final int SNAPSHOT_MAGIC = 0x43505332; // "CPS2"
+    private static final int JOURNAL_MAGIC = 0x43504A32;  // "CPJ2"
+    private static final int JOURNAL_HEADER = 12;         // magic and generation
+
+    private static final byte ADD_SLOT = 'A';
+    private static final byte DELETE_SLOT = 'D';
+    private static final byte PARK = 'P';
+    private static final byte REMOVE = 'R';
+    private static final byte MOVE = 'M';
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final CarPark carPark;
+    private final Path journalPath;
+    private final Path snapshotPath;
+    private final FileChannel journal;
+    private final int snapshotEvery;
+    private final Thread committer;
+
+    // guards everything below up to writeLock; appends only hold this lock. A ReentrantLock
+    // rather than a monitor, so a virtual thread waiting in awaitDurable does not pin its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition(); // a commit finished, a write failed, or a snapshot is due
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private final Map<String, SlotImage> image = new HashMap<>(); // the car park as recorded so far
+    private long recorded;      // records appended so far
+    private long durable;       // records known to be on disk
+    private int recordsSinceSnapshot;
+    private boolean snapshotDue;
+    private boolean closed;
+    private IOException failure;
+
+    // held while writing to the journal or snapshot file; always taken before lock, never inside it
+    private final Object writeLock = new Object();
+    private long generation;         // of the latest snapshot
+    private long journalGeneration;  // written in the journal file's header
+    private long committedSize;      // end of the last record safely in the journal file
+
+    /**
+     * Restores a car park from the snapshot and journal in a directory, then
+     * starts journaling every further change to it.
+     *
+     * @param carPark              an empty car park to restore into and journal
+     * @param directory            the directory holding the journal and snapshot (created if missing)
+     * @param commitIntervalMillis how long records may wait before being written and fsynced together
+     * @param snapshotEvery        take a snapshot after this many journal records
+     * @throws IOException if the files cannot be read or created
+     * @throws IllegalArgumentException if the interval or snapshotEvery is not positive
+     */
+    public CarParkJournal(CarPark carPark, Path directory, int commitIntervalMillis, int snapshotEvery)
+            throws IOException {
+        if (commitIntervalMillis <= 0 || snapshotEvery <= 0) {
+            throw new IllegalArgumentException("The commit interval and snapshotEvery must be positive.");
+        }
+        this.carPark = carPark;
+        this.snapshotEvery = snapshotEvery;
+        Files.createDirectories(directory);
+        this.journalPath = directory.resolve(JOURNAL_FILE);
+        this.snapshotPath = directory.resolve(SNAPSHOT_FILE);
+
+        generation = loadSnapshot();
+        this.journal = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int replayed = replayJournal();
+        for (ParkingSlot slot : carPark.listSlots()) image.put(slot.getSlotId(), SlotImage.of(slot, slot.getParkedCar()));
+        if (replayed > 0) snapshot(); // start the next run from a snapshot alone
+
+        carPark.addListener(this);
+        committer = new Thread(() -> commitLoop(commitIntervalMillis), "carpark-journal");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Writes and fsyncs any records not yet on disk.
+     *
+     * @throws IOException if the journal cannot be written; the records are kept for the next try
+     */
+    public void sync() throws IOException {
+        synchronized (writeLock) {
+            commit();
+        }
+    }
+
+    /**
+     * Waits until every change recorded so far is on disk, which takes at most
+     * about one commit interval. Changes made by the calling thread before the
+     * call are recorded by then, so when this returns they survive a crash.
+     *
+     * @throws IOException if the journal cannot be written at the moment, or has been closed
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void awaitDurable() throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            long target = recorded;
+            while (durable < target) {
+                if (failure != null) throw failure;
+                if (closed && !committer.isAlive()) throw new IOException("The journal has been closed.");
+                changed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the error from the last failed attempt to write the journal or a
+     * snapshot, if no write has succeeded since. While there is one, changes
+     * are only kept in memory.
+     *
+     * @return the error, or null if the journal is being written normally
+     */
+    public IOException getFailure() {
+        lock.lock();
+        try {
+            return failure;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes the whole car park to the snapshot file and starts a new journal.
+     * The snapshot holds exactly the changes recorded before it; those records
+     * are first made durable in the current journal, and the new snapshot is
+     * written to a temporary file and moved into place, so a crash part way
+     * through leaves the previous snapshot and journal intact.
+     *
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void snapshot() throws IOException {
+        synchronized (writeLock) {
+            List<SlotImage> slots;
+            ByteBuffer batch;
+            long cut;
+            int covered;
+            lock.lock();
+            try {
+                slots = new ArrayList<>(image.values());
+                batch = takePending();
+                cut = recorded;
+                covered = recordsSinceSnapshot;
+            } finally {
+                lock.unlock();
+            }
+            if (batch != null) write(batch, cut);
+
+            Path temp = snapshotPath.resolveSibling(SNAPSHOT_FILE + ".tmp");
+            try {
+                try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                    out.writeInt(SNAPSHOT_MAGIC);
+                    out.writeLong(generation + 1);
+                    for (SlotImage slot : slots) {
+                        out.writeBoolean(true);
+                        writeString(out, slot.slotId);
+                        out.writeBoolean(slot.staff);
+                        out.writeBoolean(slot.registration != null);
+                        if (slot.registration != null) {
+                            writeString(out, slot.registration);
+                            writeString(out, slot.owner);
+                            out.writeLong(slot.parkedTime);
+                        }
+                    }
+                    out.writeBoolean(false); // end of the slots
+                    out.flush();
+                    file.getChannel().force(true);
+                }
+                // moved into place only once the file is closed
+                Files.move(temp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                fail(e);
+                throw e;
+            }
+            generation++;
+            lock.lock();
+            try {
+                recordsSinceSnapshot -= covered;
+                snapshotDue = recordsSinceSnapshot >= snapshotEvery;
+            } finally {
+                lock.unlock();
+            }
+            startJournal();
+        }
+    }
+
+    /**
+     * Stops journaling, writes a final snapshot and closes the journal.
+     *
+     * @throws IOException if the final snapshot cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        carPark.removeListener(this);
+        lock.lock();
+        try {
+            if (closed) return;
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            snapshot();
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Override
+    public void slotAdded(ParkingSlot slot) {
+        Car car = slot.getParkedCar();
+        lock.lock();
+        try {
+            int start = begin(ADD_SLOT);
+            putString(slot.getSlotId());
+            pending.put((byte) (slot.isStaffSlot() ? 1 : 0));
+            pending.put((byte) (car != null ? 1 : 0));
+            if (car != null) putCar(car);
+            end(start);
+            image.put(slot.getSlotId(), SlotImage.of(slot, car));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void slotDeleted(ParkingSlot slot) {
+        lock.lock();
+        try {
+            int start = begin(DELETE_SLOT);
+            putString(slot.getSlotId());
+            end(start);
+            image.remove(slot.getSlotId());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void carParked(ParkingSlot slot, Car car) {
+        lock.lock();
+        try {
+            int start = begin(PARK);
+            putString(slot.getSlotId());
+            putCar(car);
+            end(start);
+            image.put(slot.getSlotId(), SlotImage.of(slot, car));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void carRemoved(ParkingSlot slot, Car car) {
+        lock.lock();
+        try {
+            int start = begin(REMOVE);
+            putString(slot.getSlotId());
+            putString(car.getRegistrationNumber());
+            end(start);
+            image.put(slot.getSlotId(), SlotImage.of(slot, null));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void carMoved(ParkingSlot from, ParkingSlot to, Car car) {
+        lock.lock();
+        try {
+            int start = begin(MOVE);
+            putString(from.getSlotId());
+            putString(to.getSlotId());
+            putString(car.getRegistrationNumber());
+            end(start);
+            image.put(from.getSlotId(), SlotImage.of(from, null));
+            image.put(to.getSlotId(), SlotImage.of(to, car));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts a record in the pending buffer, leaving room for its length and CRC.
+     * Called while holding the lock.
+     *
+     * @param type the record type
+     * @return the position of the record header
+     */
+    private int begin(byte type) {
+        ensureRoom(1024);
+        int start = pending.position();
+        pending.putInt(0).putInt(0).put(type);
+        return start;
+    }
+
+    /**
+     * Fills in the length and CRC of the record started at a position, and asks
+     * the background thread for a snapshot once enough records have been added
+     * since the last one. Called while holding the lock.
+     *
+     * @param start the position returned by begin
+     */
+    private void end(int start) {
+        int length = pending.position() - start - 8;
+        CRC32 crc = new CRC32();
+        crc.update(pending.array(), start + 8, length);
+        pending.putInt(start, length).putInt(start + 4, (int) crc.getValue());
+        recorded++;
+        if (++recordsSinceSnapshot >= snapshotEvery && !snapshotDue) {
+            snapshotDue = true;
+            changed.signalAll();
+        }
+    }
+
+    /**
+     * Appends a parked car: registration, owner, type and parked time.
+     *
+     * @param car the car
+     */
+    private void putCar(Car car) {
+        putString(car.getRegistrationNumber());
+        putString(car.getOwner());
+        pending.put((byte) (car.isStaff() ? 1 : 0));
+        ensureRoom(8);
+        pending.putLong(toEpochNanos(car.getParkedTime()));
+    }
+
+    /**
+     * Appends a string as a four-byte length followed by its UTF-8 bytes.
+     *
+     * @param value the string
+     */
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensureRoom(bytes.length + 5);
+        pending.putInt(bytes.length).put(bytes);
+    }
+
+    /**
+     * Grows the pending buffer if it has less than the given room left.
+     *
+     * @param bytes the room needed
+     */
+    private void ensureRoom(int bytes) {
+        if (pending.remaining() >= bytes) return;
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + bytes));
+        pending.flip();
+        bigger.put(pending);
+        pending = bigger;
+    }
+
+    /**
+     * Takes the pending records for writing, leaving an empty buffer in their
+     * place. Called while holding the lock.
+     *
+     * @return the records, or null if there are none
+     */
+    private ByteBuffer takePending() {
+        if (pending.position() == 0) return null;
+        ByteBuffer batch = pending;
+        pending = spare != null ? spare : ByteBuffer.allocate(batch.capacity());
+        spare = null;
+        return batch;
+    }
+
+    /**
+     * Writes the pending records to the journal and fsyncs it. Called while
+     * holding the write lock; the pending buffer is swapped for the spare one
+     * under the lock, so new records can be added while the disk is busy.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    private void commit() throws IOException {
+        ByteBuffer batch;
+        long upTo;
+        lock.lock();
+        try {
+            batch = takePending();
+            upTo = recorded;
+        } finally {
+            lock.unlock();
+        }
+        if (batch != null) write(batch, upTo);
+        else if (journalGeneration != generation) startJournal();
+    }
+
+    /**
+     * Writes a batch of records after the last one safely in the journal and
+     * fsyncs it. If that fails, the batch is put back in front of the records
+     * added since, so nothing is lost and the next commit writes it over
+     * whatever part of it reached the file. Called while holding the write lock.
+     *
+     * @param batch the records
+     * @param upTo  the number of records recorded up to the end of the batch
+     * @throws IOException if the journal cannot be written
+     */
+    private void write(ByteBuffer batch, long upTo) throws IOException {
+        batch.flip();
+        try {
+            if (journalGeneration != generation) startJournal();
+            long position = committedSize;
+            while (batch.hasRemaining()) position += journal.write(batch, position);
+            journal.force(false);
+            committedSize = position;
+        } catch (IOException e) {
+            lock.lock();
+            try {
+                batch.rewind();
+                pending.flip();
+                ByteBuffer merged = ByteBuffer.allocate(Math.max(batch.capacity(), batch.remaining() + pending.remaining() + 1024));
+                merged.put(batch).put(pending);
+                pending.clear();
+                spare = pending;
+                pending = merged;
+            } finally {
+                lock.unlock();
+            }
+            fail(e);
+            throw e;
+        }
+        lock.lock();
+        try {
+            batch.clear();
+            spare = batch;
+            durable = upTo;
+            failure = null;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Empties the journal file and gives it the current generation, so it
+     * follows the latest snapshot. Called while holding the write lock.
+     *
+     * @throws IOException if the journal cannot be written
+     */
+    private void startJournal() throws IOException {
+        try {
+            journal.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(JOURNAL_HEADER).putInt(JOURNAL_MAGIC).putLong(generation).flip();
+            while (header.hasRemaining()) journal.write(header, header.position());
+            journal.force(true);
+        } catch (IOException e) {
+            fail(e);
+            throw e;
+        }
+        journalGeneration = generation;
+        committedSize = JOURNAL_HEADER;
+        lock.lock();
+        try {
+            failure = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records a failed write, to be reported by getFailure and awaitDurable.
+     *
+     * @param e the error
+     */
+    private void fail(IOException e) {
+        lock.lock();
+        try {
+            failure = e;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs on the committer thread: writes and fsyncs whatever has been
+     * recorded every interval, so many changes share one fsync, and takes a
+     * snapshot when one is due. After a failed write it tries again the next
+     * interval.
+     *
+     * @param intervalMillis the group commit interval
+     */
+    private void commitLoop(int intervalMillis) {
+        for (;;) {
+            boolean takeSnapshot;
+            lock.lock();
+            try {
+                if (closed) return;
+                try {
+                    if (!snapshotDue || failure != null) changed.await(intervalMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) return;
+                takeSnapshot = snapshotDue;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                if (takeSnapshot) snapshot();
+                else sync();
+            } catch (IOException e) {
+                fail(e); // already kept for retrying; see write
+            }
+        }
+    }
+
+    /**
+     * Loads the snapshot file, if there is one, into the car park.
+     *
+     * @return the snapshot's generation, or 0 if there is no snapshot
+     * @throws IOException if the snapshot cannot be read or is not a snapshot
+     */
+    private long loadSnapshot() throws IOException {
+        if (!Files.exists(snapshotPath)) return 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) throw new IOException("Not a car park snapshot: " + snapshotPath);
+            long snapshotGeneration = in.readLong();
+            while (in.readBoolean()) {
+                ParkingSlot slot = new ParkingSlot(readString(in), in.readBoolean());
+                if (in.readBoolean()) {
+                    Car car = new Car(readString(in), readString(in), slot.isStaffSlot());
+                    slot.parkCar(car, fromEpochNanos(in.readLong()));
+                }
+                addSlot(slot);
+            }
+            return snapshotGeneration;
+        }
+    }
+
+    /**
+     * Adds a restored slot to the car park. If its car is somehow already
+     * parked elsewhere, the slot is still added, empty, rather than lost.
+     *
+     * @param slot the slot, with its car if it had one
+     */
+    private void addSlot(ParkingSlot slot) {
+        if (carPark.addSlot(slot) || !slot.isOccupied()) return;
+        carPark.addSlot(new ParkingSlot(slot.getSlotId(), slot.isStaffSlot()));
+    }
+
+    /**
+     * Applies every intact journal record to the car park, and cuts the journal
+     * off after the last intact record. A journal from before the snapshot
+     * (its changes are all in the snapshot) or without a header is started afresh.
+     *
+     * @return the number of records replayed
+     * @throws IOException if the journal cannot be read, or is not a journal
+     */
+    private int replayJournal() throws IOException {
+        ByteBuffer data = ByteBuffer.allocate((int) journal.size());
+        journal.position(0);
+        while (data.hasRemaining() && journal.read(data) >= 0) { }
+        data.flip();
+        if (data.remaining() >= 4 && data.getInt(0) != JOURNAL_MAGIC) {
+            throw new IOException("Not a car park journal: " + journalPath);
+        }
+        if (data.remaining() < JOURNAL_HEADER || data.getLong(4) != generation) {
+            startJournal();
+            return 0;
+        }
+        data.position(JOURNAL_HEADER);
+        int count = 0;
+        while (data.remaining() >= 8) {
+            int start = data.position();
+            int length = data.getInt();
+            int crc = data.getInt();
+            if (length <= 0 || length > data.remaining()) break;
+            CRC32 check = new CRC32();
+            check.update(data.array(), data.position(), length);
+            if ((int) check.getValue() != crc) break;
+            ByteBuffer record = data.slice(data.position(), length);
+            data.position(start + 8 + length);
+            apply(record);
+            count++;
+        }
+        if (data.position() < journal.size()) journal.truncate(data.position()); // torn tail
+        journalGeneration = generation;
+        committedSize = data.position();
+        return count;
+    }
+
+    /**
+     * Applies one journal record to the car park. Records that no longer apply
+     * (e.g. a slot added again after a snapshot already held it) are ignored.
+     *
+     * @param record the record payload, starting with its type
+     */
+    private void apply(ByteBuffer record) {
+        byte type = record.get();
+        switch (type) {
+            case ADD_SLOT -> {
+                ParkingSlot slot = new ParkingSlot(getString(record), record.get() != 0);
+                if (record.get() != 0) {
+                    Car car = new Car(getString(record), getString(record), record.get() != 0);
+                    slot.parkCar(car, fromEpochNanos(record.getLong()));
+                }
+                addSlot(slot);
+            }
+            case DELETE_SLOT -> carPark.deleteSlot(getString(record));
+            case PARK -> {
+                String slotId = getString(record);
+                Car car = new Car(getString(record), getString(record), record.get() != 0);
+                carPark.parkCar(slotId, car, fromEpochNanos(record.getLong()));
+            }
+            case REMOVE -> {
+                String slotId = getString(record);
+                String registration = getString(record);
+                if (holds(slotId, registration)) carPark.removeCar(registration);
+            }
+            case MOVE -> {
+                String from = getString(record);
+                String to = getString(record);
+                String registration = getString(record);
+                if (holds(from, registration)) carPark.moveCar(registration, to);
+            }
+            default -> { } // unknown record type from a newer version; skip it
+        }
+    }
+
+    /**
+     * Checks whether a slot holds a given car, so a removal or move is only
+     * replayed from the slot it was recorded against.
+     *
+     * @param slotId       the slot ID
+     * @param registration the car's registration number
+     * @return true if the car is parked in that slot
+     */
+    private boolean holds(String slotId, String registration) {
+        ParkingSlot slot = carPark.findSlot(slotId);
+        Car car = slot == null ? null : slot.getParkedCar();
+        return car != null && car.getRegistrationNumber().equals(registration);
+    }
+
+    /**
+     * Reads a string written by putString.
+     *
+     * @param buffer the buffer to read from
+     * @return the string
+     */
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a string to a snapshot as a four-byte length followed by its UTF-8
+     * bytes (writeUTF cannot hold strings over 65535 bytes).
+     *
+     * @param out   the snapshot
+     * @param value the string
+     * @throws IOException if it cannot be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString.
+     *
+     * @param in the snapshot
+     * @return the string
+     * @throws IOException if it cannot be read
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts a parked time to nanoseconds since the epoch, reading it as UTC.
+     *
+     * @param time the parked time, or null
+     * @return the epoch nanoseconds, or NO_TIME for null
+     */
+    static long toEpochNanos(LocalDateTime time) {
+        if (time == null) return NO_TIME;
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + time.getNano();
+    }
+
+    /**
+     * Converts nanoseconds since the epoch back to a parked time.
+     *
+     * @param nanos the epoch nanoseconds, or NO_TIME
+     * @return the parked time, or null for NO_TIME
+     */
+    static LocalDateTime fromEpochNanos(long nanos) {
+        if (nanos == NO_TIME) return null;
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    /**
+     * One slot as the journal has recorded it. Immutable, so the image can be
+     * copied for a snapshot by copying references.
+     */
+    private static final class SlotImage {
+        final String slotId;
+        final boolean staff;
+        final String registration; // null if the slot is empty
+        final String owner;
+        final long parkedTime;
+
+        private SlotImage(String slotId, boolean staff, String registration, String owner, long parkedTime) {
+            this.slotId = slotId;
+            this.staff = staff;
+            this.registration = registration;
+            this.owner = owner;
+            this.parkedTime = parkedTime;
+        }
+
+        /**
+         * Captures a slot holding a car, or empty.
+         */
+        static SlotImage of(ParkingSlot slot, Car car) {
+            if (car == null) return new SlotImage(slot.getSlotId(), slot.isStaffSlot(), null, null, NO_TIME);
+            return new SlotImage(slot.getSlotId(), slot.isStaffSlot(), car.getRegistrationNumber(),
+                    car.getOwner(), toEpochNanos(car.getParkedTime()));
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.List;
+
+/**
+ * Purpose: Used to be notified of changes to a car park.
+ *
+ * Listeners are called on the thread that made the change, straight after it
+ * has been made, so they should return quickly. Every method does nothing by
+ * default, so a listener only needs to override the changes it cares about.
+ * Batches of changes arrive through the plural methods, which by default
+ * pass each change on to the single-change methods.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public interface CarParkListener {
+
+    /**
+     * Called after a slot has been added to the car park.
+     *
+     * @param slot the slot that was added
+     */
+    default void slotAdded(ParkingSlot slot) {
+    }
+
+    /**
+     * Called after a slot has been deleted from the car park.
+     *
+     * @param slot the slot that was deleted
+     */
+    default void slotDeleted(ParkingSlot slot) {
+    }
+
+    /**
+     * Called after a car has been parked in a slot of the car park.
+     *
+     * @param slot the slot the car was parked in
+     * @param car  the car that was parked
+     */
+    default void carParked(ParkingSlot slot, Car car) {
+    }
+
+    /**
+     * Called after a car has been removed from a slot of the car park.
+     *
+     * @param slot the slot the car was removed from
+     * @param car  the car that was removed
+     */
+    default void carRemoved(ParkingSlot slot, Car car) {
+    }
+
+    /**
+     * Called after a parked car has been moved from one slot to another.
+     *
+     * @param from the slot the car was moved out of
+     * @param to   the slot the car was moved into
+     * @param car  the car that was moved
+     */
+    default void carMoved(ParkingSlot from, ParkingSlot to, Car car) {
+    }
+
+    /**
+     * Called once after a batch of slots has been added (see CarPark.addSlots).
+     * By default passes each slot on to slotAdded.
+     *
+     * @param slots the slots that were added
+     */
+    default void slotsAdded(List<ParkingSlot> slots) {
+        for (ParkingSlot slot : slots) slotAdded(slot);
+    }
+
+    /**
+     * Called once after a batch of cars has been parked (see CarPark.parkAll).
+     * By default passes each car on to carParked.
+     *
+     * @param slots the slots the cars were parked in
+     * @param cars  the cars that were parked, in the same order
+     */
+    default void carsParked(List<ParkingSlot> slots, List<Car> cars) {
+        for (int i = 0; i < slots.size(); i++) carParked(slots.get(i), cars.get(i));
+    }
+
+    /**
+     * Called once after a batch of cars has been removed (see CarPark.removeAll).
+     * By default passes each car on to carRemoved.
+     *
+     * @param slots the slots the cars were removed from
+     * @param cars  the cars that were removed, in the same order
+     */
+    default void carsRemoved(List<ParkingSlot> slots, List<Car> cars) {
+        for (int i = 0; i < slots.size(); i++) carRemoved(slots.get(i), cars.get(i));
+    }
+}
@@ -0,0 +1,291 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Purpose: Used to count and time the operations of a car park, and to show
+ * the figures, with the car park's occupancy, through JMX.
+ *
+ * Creating the metrics attaches them to the car park, which from then on
+ * reports every operation here: each is counted, changes are timed, and
+ * failures are counted by reason. Counters are LongAdders and latencies go
+ * into LatencyHistograms, so threads reporting at once do not contend.
+ * Call register to make the figures visible in JConsole or JDK Mission Control.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class CarParkMetrics implements CarParkMetricsMXBean, AutoCloseable {
+
+    /**
+     * The operations that are counted. Lookups are only counted; the others are also timed.
+     */
+    public enum Operation {
+        ADD_SLOT, DELETE_SLOT, PARK, REMOVE, MOVE, FIND_SLOT, FIND_CAR;
+
+        /**
+         * Indicates whether calls to the operation are timed.
+         *
+         * @return true for operations that change the car park
+         */
+        boolean isTimed() {
+            return this != FIND_SLOT && this != FIND_CAR;
+        }
+    }
+
+    /**
+     * The reasons an operation can fail.
+     */
+    public enum Failure {
+        /** The slot ID or registration number is not in the required format. */
+        INVALID_ID,
+        /** No slot with the given ID exists. */
+        SLOT_NOT_FOUND,
+        /** The car is not parked in the car park. */
+        CAR_NOT_FOUND,
+        /** The slot holds a car. */
+        SLOT_OCCUPIED,
+        /** The car's type (staff or visitor) does not match the slot's type. */
+        TYPE_MISMATCH,
+        /** The car is already parked in another slot. */
+        ALREADY_PARKED,
+        /** A slot with the same ID already exists. */
+        SLOT_EXISTS,
+        /** No slot of the car's type is free. */
+        NO_FREE_SLOT,
+        /** The slot is reserved for another car. */
+        RESERVED;
+
+        /**
+         * Returns the failure that a park or move result stands for.
+         *
+         * @param result the result
+         * @return the failure, or null if the result is PARKED
+         */
+        static Failure of(ParkResult result) {
+            return switch (result) {
+                case PARKED -> null;
+                case SLOT_NOT_FOUND -> SLOT_NOT_FOUND;
+                case CAR_NOT_FOUND -> CAR_NOT_FOUND;
+                case SLOT_OCCUPIED -> SLOT_OCCUPIED;
+                case TYPE_MISMATCH -> TYPE_MISMATCH;
+                case ALREADY_PARKED -> ALREADY_PARKED;
+                case RESERVED -> RESERVED;
+            };
+        }
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Failure[] FAILURES = Failure.values();
+
+    private final CarPark carPark;
+    private final LongAdder[] counts = new LongAdder[OPERATIONS.length];
+    private final LongAdder[][] failures = new LongAdder[OPERATIONS.length][FAILURES.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private volatile long sinceNanos = System.nanoTime();
+    private ObjectName name;
+
+    /**
+     * Constructs metrics for a car park and attaches them to it, replacing any
+     * metrics it had.
+     *
+     * @param carPark the car park to measure
+     */
+    public CarParkMetrics(CarPark carPark) {
+        this.carPark = carPark;
+        for (Operation operation : OPERATIONS) {
+            int i = operation.ordinal();
+            counts[i] = new LongAdder();
+            for (int j = 0; j < FAILURES.length; j++) failures[i][j] = new LongAdder();
+            if (operation.isTimed()) latencies[i] = new LatencyHistogram();
+        }
+        carPark.setMetrics(this);
+    }
+
+    /**
+     * Records one call of an operation.
+     *
+     * @param operation  the operation
+     * @param startNanos the System.nanoTime when it started, or 0 if it was not timed
+     * @param failure    why it failed, or null if it succeeded
+     */
+    void record(Operation operation, long startNanos, Failure failure) {
+        int i = operation.ordinal();
+        if (failure != null) failures[i][failure.ordinal()].increment();
+        // a timed call is counted by its histogram alone, saving an update on the hot path
+        if (startNanos != 0 && latencies[i] != null) {
+            latencies[i].record(System.nanoTime() - startNanos);
+        } else {
+            counts[i].increment();
+        }
+    }
+
+    /**
+     * Records one call of a lookup.
+     *
+     * @param operation the operation
+     */
+    void recordLookup(Operation operation) {
+        counts[operation.ordinal()].increment();
+    }
+
+    /**
+     * Returns the latencies recorded for an operation.
+     *
+     * @param operation the operation
+     * @return its histogram, or null if the operation is not timed
+     */
+    public LatencyHistogram latency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    /**
+     * Returns the number of times an operation was called, successful or not.
+     *
+     * @param operation the operation
+     * @return the count
+     */
+    public long count(Operation operation) {
+        int i = operation.ordinal();
+        return counts[i].sum() + (latencies[i] == null ? 0 : latencies[i].count());
+    }
+
+    /**
+     * Returns the number of times an operation failed for a reason.
+     *
+     * @param operation the operation
+     * @param failure   the reason
+     * @return the count
+     */
+    public long failures(Operation operation, Failure failure) {
+        return failures[operation.ordinal()][failure.ordinal()].sum();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server, under
+     * ParkingSpotSystem:type=CarPark,name=(the given name).
+     *
+     * @param carParkName the name that tells this car park apart from others in the same JVM
+     * @return the name the metrics were registered under
+     * @throws JMException if the metrics cannot be registered, e.g. because the name is taken
+     */
+    public synchronized ObjectName register(String carParkName) throws JMException {
+        if (name != null) throw new IllegalStateException("The metrics are already registered as " + name);
+        ObjectName objectName = new ObjectName("ParkingSpotSystem:type=CarPark,name=" + ObjectName.quote(carParkName));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        name = objectName;
+        return objectName;
+    }
+
+    /**
+     * Detaches the metrics from the car park and removes them from the MBean server.
+     */
+    @Override
+    public synchronized void close() {
+        if (carPark.getMetrics() == this) carPark.setMetrics(null);
+        if (name == null) return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(name);
+        } catch (JMException e) {
+            // already gone
+        }
+        name = null;
+    }
+
+    @Override
+    public int getSlotCount() {
+        return carPark.listSlots().size();
+    }
+
+    @Override
+    public int getOccupiedCount() {
+        return getSlotCount() - getFreeStaffSlots() - getFreeVisitorSlots();
+    }
+
+    @Override
+    public double getOccupancy() {
+        int slots = getSlotCount();
+        return slots == 0 ? 0 : (double) getOccupiedCount() / slots;
+    }
+
+    @Override
+    public int getFreeStaffSlots() {
+        return carPark.countFreeSlots(true);
+    }
+
+    @Override
+    public int getFreeVisitorSlots() {
+        return carPark.countFreeSlots(false);
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) map.put(operation.name(), count(operation));
+        return map;
+    }
+
+    @Override
+    public Map<String, Double> getOperationRates() {
+        double seconds = Math.max(1e-9, (System.nanoTime() - sinceNanos) / 1e9);
+        Map<String, Double> map = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) map.put(operation.name(), count(operation) / seconds);
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getFailureReasons() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            for (Failure failure : FAILURES) {
+                long count = failures(operation, failure);
+                if (count > 0) map.put(operation.name() + " " + failure.name(), count);
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP50Nanos() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            if (operation.isTimed()) map.put(operation.name(), latency(operation).percentile(50));
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP99Nanos() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            if (operation.isTimed()) map.put(operation.name(), latency(operation).percentile(99));
+        }
+        return map;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyMaxNanos() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (Operation operation : OPERATIONS) {
+            if (operation.isTimed()) map.put(operation.name(), latency(operation).max());
+        }
+        return map;
+    }
+
+    @Override
+    public void resetStatistics() {
+        for (Operation operation : OPERATIONS) {
+            int i = operation.ordinal();
+            counts[i].reset();
+            for (LongAdder failure : failures[i]) failure.reset();
+            if (latencies[i] != null) latencies[i].reset();
+        }
+        sinceNanos = System.nanoTime();
+    }
+}
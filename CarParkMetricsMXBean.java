@@ -0,0 +1,98 @@
+import java.util.Map;
+
+/**
+ * Purpose: Used to define what CarParkMetrics shows through JMX, e.g. in
+ * JConsole or JDK Mission Control.
+ *
+ * Operation names are those of CarParkMetrics.Operation; failure reasons are
+ * given as "OPERATION REASON", e.g. "PARK SLOT_OCCUPIED". Counts, rates and
+ * latencies cover the time since the metrics were created or last reset.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public interface CarParkMetricsMXBean {
+
+    /**
+     * Returns the number of slots in the car park.
+     *
+     * @return the slot count
+     */
+    int getSlotCount();
+
+    /**
+     * Returns the number of occupied slots.
+     *
+     * @return the occupied count
+     */
+    int getOccupiedCount();
+
+    /**
+     * Returns the share of slots that are occupied.
+     *
+     * @return the occupancy, 0 to 1
+     */
+    double getOccupancy();
+
+    /**
+     * Returns the number of free staff slots.
+     *
+     * @return the free staff slot count
+     */
+    int getFreeStaffSlots();
+
+    /**
+     * Returns the number of free visitor slots.
+     *
+     * @return the free visitor slot count
+     */
+    int getFreeVisitorSlots();
+
+    /**
+     * Returns how many times each operation was called, successful or not.
+     *
+     * @return the count of each operation
+     */
+    Map<String, Long> getOperationCounts();
+
+    /**
+     * Returns how often each operation was called.
+     *
+     * @return the calls per second of each operation
+     */
+    Map<String, Double> getOperationRates();
+
+    /**
+     * Returns how many times each operation failed, by reason.
+     *
+     * @return the count of each operation and reason that occurred
+     */
+    Map<String, Long> getFailureReasons();
+
+    /**
+     * Returns the median latency of each timed operation.
+     *
+     * @return the median in nanoseconds, by operation
+     */
+    Map<String, Long> getLatencyP50Nanos();
+
+    /**
+     * Returns the 99th percentile latency of each timed operation.
+     *
+     * @return the 99th percentile in nanoseconds, by operation
+     */
+    Map<String, Long> getLatencyP99Nanos();
+
+    /**
+     * Returns the longest latency of each timed operation.
+     *
+     * @return the maximum in nanoseconds, by operation
+     */
+    Map<String, Long> getLatencyMaxNanos();
+
+    /**
+     * Starts the counts, rates and latencies afresh.
+     */
+    void resetStatistics();
+}
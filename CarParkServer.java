@@ -0,0 +1,514 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Purpose: Used to run a car park without a window, serving its operations over HTTP with JSON replies.
+ *
+ * Built on the JDK's com.sun.net.httpserver, with every request handled on its
+ * own virtual thread, so thousands of kiosks can wait on the server at once
+ * without tying up platform threads. The car park should be a
+ * ConcurrentCarPark, since requests run at the same time. If the car park is
+ * journaled (see setJournal), a change is only acknowledged once it is on disk,
+ * and changes are refused with 503 while the journal cannot be written.
+ *
+ * Requests (parameters go in the query string):
+ * <pre>
+ *   GET    /slots[?staff=true|false][&amp;occupied=true|false]   list slots, in ID order
+ *   POST   /slots?id=A01&amp;staff=true                          add a slot
+ *   GET    /slots/A01                                       find a slot
+ *   DELETE /slots/A01                                       delete an unoccupied slot
+ *   POST   /slots/A01/car?reg=T1234&amp;owner=Ann&amp;staff=false     park a car in a slot
+ *   POST   /cars?reg=T1234&amp;owner=Ann&amp;staff=false              park a car in any free slot
+ *   GET    /cars/T1234                                      find a car
+ *   DELETE /cars/T1234                                      remove a car
+ *   GET    /cars/T1234/fee                                  quote the fee if the car left now
+ * </pre>
+ * Errors are replied with a 4xx (or 5xx) status and {"error": "..."}; a park that is
+ * refused also gives the ParkResult, e.g. {"error": "...", "result": "SLOT_OCCUPIED"}.
+ * The details of an internal error are logged through System.Logger, not sent to the client.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class CarParkServer {
+
+    private static final System.Logger LOG = System.getLogger(CarParkServer.class.getName());
+
+    private final CarPark carPark;
+    private final TariffEngine tariff;
+    private final Clock clock;
+
+    private volatile CarParkJournal journal;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Constructs a server for a car park. Call start() to begin serving.
+     *
+     * @param carPark the car park to serve, normally a ConcurrentCarPark
+     * @param tariff  the tariff engine used for fee quotes
+     * @param clock   the clock giving parked times and quote times
+     */
+    public CarParkServer(CarPark carPark, TariffEngine tariff, Clock clock) {
+        this.carPark = carPark;
+        this.tariff = tariff;
+        this.clock = clock;
+    }
+
+    /**
+     * Sets the journal keeping the car park on disk. Each request that changes
+     * the car park then waits for its change to be durable before replying.
+     *
+     * @param journal the car park's journal, or null if it is not journaled
+     */
+    public void setJournal(CarParkJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Starts serving on an address. Use port 0 to pick any free port.
+     *
+     * @param address the address to listen on, e.g. loopback for local testing
+     * @throws IOException if the server cannot listen on the address
+     */
+    public void start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, 1024);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, waiting up to a given time for requests in progress to finish.
+     *
+     * @param delaySeconds the longest time to wait
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.close();
+    }
+
+    /**
+     * Routes one request and sends its reply.
+     *
+     * @param exchange the request
+     * @throws IOException if the reply cannot be sent
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        Reply reply;
+        String method = exchange.getRequestMethod();
+        boolean changes = !method.equals("GET");
+        CarParkJournal journal = this.journal;
+        try {
+            if (changes && journal != null && journal.getFailure() != null) {
+                reply = error(503, "The car park cannot be saved at the moment; try again later.");
+            } else {
+                reply = route(method, exchange.getRequestURI().getPath().split("/"),
+                        parseQuery(exchange.getRequestURI().getRawQuery()));
+                if (changes && journal != null && reply.status < 300) journal.awaitDurable();
+            }
+        } catch (IOException e) {
+            reply = error(503, "The change was made but could not be saved yet; check before retrying.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reply = error(503, "The server is shutting down.");
+        } catch (IllegalArgumentException e) {
+            reply = error(400, e.getMessage());
+        } catch (RuntimeException e) {
+            // the details go to the server's log, not to the client
+            LOG.log(System.Logger.Level.ERROR, "Internal error handling " + method + " "
+                    + exchange.getRequestURI().getPath(), e);
+            reply = error(500, "Internal error.");
+        }
+        byte[] body = reply.json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(reply.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Works out which operation a request is for and runs it.
+     *
+     * @param method the HTTP method
+     * @param path   the request path split on "/" (the first part is empty)
+     * @param query  the query parameters
+     * @return the reply
+     */
+    private Reply route(String method, String[] path, Map<String, String> query) {
+        if (path.length < 2) return error(404, "Unknown path.");
+        String resource = path[1];
+        String id = path.length > 2 ? path[2] : null;
+        String sub = path.length > 3 ? path[3] : null;
+        if (path.length > 4) return error(404, "Unknown path.");
+
+        if (resource.equals("slots")) {
+            if (id == null && method.equals("GET")) return listSlots(query);
+            if (id == null && method.equals("POST")) return addSlot(query);
+            if (id != null && sub == null && method.equals("GET")) return findSlot(id);
+            if (id != null && sub == null && method.equals("DELETE")) return deleteSlot(id);
+            if (id != null && "car".equals(sub) && method.equals("POST")) return parkCar(id, query);
+        } else if (resource.equals("cars")) {
+            if (id == null && method.equals("POST")) return parkCarAnywhere(query);
+            if (id != null && sub == null && method.equals("GET")) return findCar(id);
+            if (id != null && sub == null && method.equals("DELETE")) return removeCar(id);
+            if (id != null && "fee".equals(sub) && method.equals("GET")) return quoteFee(id);
+        } else {
+            return error(404, "Unknown path.");
+        }
+        return error(405, "Method not allowed.");
+    }
+
+    /**
+     * Lists the slots, optionally only those of one type or occupancy.
+     *
+     * @param query the staff and occupied filters, if given
+     * @return the slots
+     */
+    private Reply listSlots(Map<String, String> query) {
+        Boolean staff = query.containsKey("staff") ? parseBoolean(query, "staff") : null;
+        Boolean occupied = query.containsKey("occupied") ? parseBoolean(query, "occupied") : null;
+        List<ParkingSlot> slots = new ArrayList<>();
+        for (ParkingSlot slot : carPark.listSlots()) {
+            if (staff != null && slot.isStaffSlot() != staff) continue;
+            if (occupied != null && slot.isOccupied() != occupied) continue;
+            slots.add(slot);
+        }
+        slots.sort(Comparator.comparingInt(ParkingSlot::getSlotKey));
+        StringBuilder json = new StringBuilder("{\"slots\":[");
+        for (int i = 0; i < slots.size(); i++) {
+            if (i > 0) json.append(',');
+            appendSlot(json, slots.get(i));
+        }
+        return new Reply(200, json.append("]}").toString());
+    }
+
+    /**
+     * Adds a slot.
+     *
+     * @param query the id and staff parameters
+     * @return the new slot, or why it was not added
+     */
+    private Reply addSlot(Map<String, String> query) {
+        String id = required(query, "id");
+        if (!carPark.acceptsSlotId(id)) return error(400, "Invalid slot ID format (e.g. A01 or L2-A100).");
+        ParkingSlot slot = new ParkingSlot(id, parseBoolean(query, "staff"));
+        if (!carPark.addSlot(slot)) return error(409, "Slot " + id + " already exists.");
+        return new Reply(201, appendSlot(new StringBuilder(), slot).toString());
+    }
+
+    /**
+     * Finds a slot.
+     *
+     * @param id the slot ID
+     * @return the slot, or 404
+     */
+    private Reply findSlot(String id) {
+        ParkingSlot slot = carPark.findSlot(id);
+        if (slot == null) return error(404, "Slot " + id + " not found.");
+        return new Reply(200, appendSlot(new StringBuilder(), slot).toString());
+    }
+
+    /**
+     * Deletes an unoccupied slot.
+     *
+     * @param id the slot ID
+     * @return the deleted ID, or why it was not deleted
+     */
+    private Reply deleteSlot(String id) {
+        if (carPark.deleteSlot(id)) return new Reply(200, "{\"deleted\":" + quote(id) + "}");
+        return carPark.findSlot(id) == null ? error(404, "Slot " + id + " not found.")
+                : error(409, "Slot " + id + " is occupied.");
+    }
+
+    /**
+     * Parks a car in a given slot.
+     *
+     * @param slotId the slot ID
+     * @param query  the reg, owner and staff parameters
+     * @return the slot with its car, or why the car was not parked
+     */
+    private Reply parkCar(String slotId, Map<String, String> query) {
+        Car car = carFrom(query);
+        ParkResult result = carPark.parkCar(slotId, car, LocalDateTime.now(clock));
+        if (result == ParkResult.PARKED) {
+            return new Reply(201, appendSlot(new StringBuilder(), carPark.findSlot(slotId)).toString());
+        }
+        return refused(result, slotId, car);
+    }
+
+    /**
+     * Parks a car in any free slot of its type.
+     *
+     * @param query the reg, owner and staff parameters
+     * @return the slot with its car, or why the car was not parked
+     */
+    private Reply parkCarAnywhere(Map<String, String> query) {
+        Car car = carFrom(query);
+        if (carPark.findCar(car.getRegistrationNumber()) != null) return refused(ParkResult.ALREADY_PARKED, null, car);
+        ParkingSlot slot = carPark.parkCarAnywhere(car);
+        if (slot == null) {
+            // parkCarAnywhere also gives null if another request parked the car since the check above
+            if (carPark.findCar(car.getRegistrationNumber()) != null) return refused(ParkResult.ALREADY_PARKED, null, car);
+            return error(409, "No free " + (car.isStaff() ? "staff" : "visitor") + " slot.");
+        }
+        return new Reply(201, appendSlot(new StringBuilder(), slot).toString());
+    }
+
+    /**
+     * Finds the slot a car is parked in.
+     *
+     * @param reg the registration number
+     * @return the slot with its car, or 404
+     */
+    private Reply findCar(String reg) {
+        ParkingSlot slot = carPark.findCar(reg);
+        if (slot == null) return error(404, "Car " + reg + " not found.");
+        return new Reply(200, appendSlot(new StringBuilder(), slot).toString());
+    }
+
+    /**
+     * Removes a car.
+     *
+     * @param reg the registration number
+     * @return the removed registration, or 404
+     */
+    private Reply removeCar(String reg) {
+        if (!carPark.removeCar(reg)) return error(404, "Car " + reg + " not found.");
+        return new Reply(200, "{\"removed\":" + quote(reg) + "}");
+    }
+
+    /**
+     * Quotes the fee a parked car would pay if it left now.
+     *
+     * @param reg the registration number
+     * @return the fee, or why it cannot be quoted
+     */
+    private Reply quoteFee(String reg) {
+        ParkingSlot slot = carPark.findCar(reg);
+        Car car = slot == null ? null : slot.getParkedCar();
+        if (car == null) return error(404, "Car " + reg + " not found.");
+        if (car.getParkedTime() == null) return error(409, "Car " + reg + " has no parked time.");
+        LocalDateTime now = LocalDateTime.now(clock);
+        return new Reply(200, "{\"registration\":" + quote(reg) + ",\"slot\":" + quote(slot.getSlotId())
+                + ",\"parkedTime\":" + quote(car.getParkedTime().toString()) + ",\"quotedAt\":" + quote(now.toString())
+                + ",\"fee\":" + tariff.fee(car.isStaff(), car.getParkedTime(), now) + "}");
+    }
+
+    /**
+     * Builds the reply for a park that was refused.
+     *
+     * @param result the reason
+     * @param slotId the slot asked for, or null
+     * @param car    the car
+     * @return the reply
+     */
+    private Reply refused(ParkResult result, String slotId, Car car) {
+        String message = switch (result) {
+            case SLOT_NOT_FOUND -> "Slot " + slotId + " not found.";
+            case SLOT_OCCUPIED -> "Slot " + slotId + " is occupied.";
+            case TYPE_MISMATCH -> "Slot " + slotId + " is not a " + (car.isStaff() ? "staff" : "visitor") + " slot.";
+            case ALREADY_PARKED -> "Car " + car.getRegistrationNumber() + " is already parked.";
+            case RESERVED -> "Slot " + slotId + " is reserved for another car.";
+            default -> "Car could not be parked.";
+        };
+        int status = result == ParkResult.SLOT_NOT_FOUND || result == ParkResult.CAR_NOT_FOUND ? 404 : 409;
+        return new Reply(status, "{\"error\":" + quote(message) + ",\"result\":" + quote(result.name()) + "}");
+    }
+
+    /**
+     * Builds a Car from the reg, owner and staff parameters.
+     *
+     * @param query the query parameters
+     * @return the car
+     * @throws IllegalArgumentException if a parameter is missing or invalid
+     */
+    private static Car carFrom(Map<String, String> query) {
+        return new Car(required(query, "reg"), required(query, "owner"), parseBoolean(query, "staff"));
+    }
+
+    /**
+     * Appends a slot, and its car if it has one, as a JSON object.
+     *
+     * @param json the builder to append to
+     * @param slot the slot
+     * @return the builder
+     */
+    private static StringBuilder appendSlot(StringBuilder json, ParkingSlot slot) {
+        json.append("{\"id\":").append(quote(slot.getSlotId()))
+            .append(",\"staff\":").append(slot.isStaffSlot());
+        Car car = slot.getParkedCar();
+        json.append(",\"occupied\":").append(car != null);
+        if (car != null) {
+            json.append(",\"car\":{\"registration\":").append(quote(car.getRegistrationNumber()))
+                .append(",\"owner\":").append(quote(car.getOwner()))
+                .append(",\"staff\":").append(car.isStaff())
+                .append(",\"parkedTime\":")
+                .append(car.getParkedTime() == null ? "null" : quote(car.getParkedTime().toString()))
+                .append('}');
+        }
+        return json.append('}');
+    }
+
+    /**
+     * Quotes a string as a JSON string literal.
+     *
+     * @param text the string
+     * @return the quoted string
+     */
+    private static String quote(String text) {
+        StringBuilder sb = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /**
+     * Builds an error reply.
+     *
+     * @param status  the HTTP status
+     * @param message the error message
+     * @return the reply
+     */
+    private static Reply error(int status, String message) {
+        return new Reply(status, "{\"error\":" + quote(message) + "}");
+    }
+
+    /**
+     * Splits a raw query string into decoded parameters.
+     *
+     * @param rawQuery the query string, or null
+     * @return the parameters
+     */
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null) return query;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            query.put(key, value);
+        }
+        return query;
+    }
+
+    /**
+     * Returns a parameter that must be given.
+     *
+     * @param query the query parameters
+     * @param name  the parameter name
+     * @return the trimmed value
+     * @throws IllegalArgumentException if it is missing or blank
+     */
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isBlank()) throw new IllegalArgumentException("Missing parameter: " + name);
+        return value.trim();
+    }
+
+    /**
+     * Returns a parameter that must be true or false.
+     *
+     * @param query the query parameters
+     * @param name  the parameter name
+     * @return the value
+     * @throws IllegalArgumentException if it is missing or not true/false
+     */
+    private static boolean parseBoolean(Map<String, String> query, String name) {
+        String value = required(query, name);
+        if (value.equals("true")) return true;
+        if (value.equals("false")) return false;
+        throw new IllegalArgumentException("Parameter " + name + " must be true or false.");
+    }
+
+    /**
+     * A reply: its HTTP status and JSON body.
+     */
+    private static class Reply {
+        private final int status;
+        private final String json;
+
+        /**
+         * Constructs a reply.
+         *
+         * @param status the HTTP status
+         * @param json   the JSON body
+         */
+        Reply(int status, String json) {
+            this.status = status;
+            this.json = json;
+        }
+    }
+
+    /**
+     * Runs the server on its own with a new ConcurrentCarPark.
+     * The port is the first argument (default 8080); -Dcarpark.bind sets the
+     * address to listen on (default loopback only), and -Dcarpark.dataDir keeps
+     * the car park on disk as in Application.
+     *
+     * @param args optional port
+     * @throws IOException if the server cannot start or the car park cannot be restored
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        CarPark carPark = new ConcurrentCarPark();
+        CarParkServer server = new CarParkServer(carPark, TariffEngine.standard(), Clock.systemDefaultZone());
+        String dataDir = System.getProperty("carpark.dataDir");
+        if (dataDir != null) {
+            CarParkJournal journal = new CarParkJournal(carPark, Path.of(dataDir),
+                    Integer.getInteger("carpark.commitMillis", 5), Integer.getInteger("carpark.snapshotEvery", 10000));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    LOG.log(System.Logger.Level.ERROR, "Could not save car park", e);
+                }
+            }));
+            server.setJournal(journal);
+        }
+        try {
+            // count and time every operation; see ParkingSpotSystem in JConsole or JDK Mission Control
+            new CarParkMetrics(carPark).register("server");
+        } catch (javax.management.JMException e) {
+            LOG.log(System.Logger.Level.WARNING, "Could not register car park metrics", e);
+        }
+        server.start(new InetSocketAddress(System.getProperty("carpark.bind", "127.0.0.1"), port));
+        System.out.println("Car park server listening on port " + server.getPort());
+    }
+}
@@ -0,0 +1,412 @@
+import java.util.*;
+
+/**
+ * Purpose: Used to find parked cars from part of a registration number or owner name.
+ *
+ * Attached to a car park as a listener, it indexes every parked car as it is
+ * parked and drops it as it is removed, so no query has to look at the slots.
+ * Matching ignores case. Two indexes are kept:
+ * <ul>
+ *   <li>a sorted map of search keys (the registration number, the owner's
+ *       name and each word of it). The keys starting with a prefix are one
+ *       contiguous range of it, found in logarithmic time, and walking it in
+ *       order visits the keys as a depth-first walk of a trie would;</li>
+ *   <li>a 3-gram index from every run of 3 characters of a registration number
+ *       or owner name to the cars containing it. A substring query intersects
+ *       the sets of its 3-grams, smallest first, and checks the few cars left;
+ *       shorter text is looked for in the cars in registration order, which
+ *       stops as soon as enough are found.</li>
+ * </ul>
+ * Fuzzy queries find the keys within a few typing mistakes (insertions,
+ * deletions or substitutions) of the query. Walking the sorted keys like a
+ * trie, the edit distance table is shared by keys with a common prefix, and
+ * every key under a prefix that is already too far from the query is skipped
+ * in one step.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class CarSearchIndex implements CarParkListener {
+
+    // length of the n-grams indexed
+    private static final int GRAM = 3;
+
+    // parked cars by registration number; everything below is guarded by this
+    private final TreeMap<String, Match> cars = new TreeMap<>();
+
+    // search keys, upper-cased, with the registration numbers of the cars that have them
+    private final TreeMap<String, Set<String>> keys = new TreeMap<>();
+
+    // 3-grams, with the registration numbers of the cars containing them
+    private final Map<String, Set<String>> grams = new HashMap<>();
+
+    /**
+     * Constructs the index for a car park, indexing its parked cars once,
+     * and starts listening to it.
+     *
+     * @param carPark the car park to follow
+     */
+    public CarSearchIndex(CarPark carPark) {
+        synchronized (this) {
+            for (ParkingSlot slot : carPark.listSlots()) {
+                Car car = slot.getParkedCar();
+                if (car != null) add(car, slot.getSlotId());
+            }
+        }
+        carPark.addListener(this);
+    }
+
+    @Override
+    public synchronized void slotAdded(ParkingSlot slot) {
+        Car car = slot.getParkedCar();
+        if (car != null) add(car, slot.getSlotId());
+    }
+
+    @Override
+    public synchronized void slotDeleted(ParkingSlot slot) {
+        Car car = slot.getParkedCar();
+        if (car == null) return;
+        Match match = cars.get(car.getRegistrationNumber());
+        if (match != null && match.slotId.equals(slot.getSlotId())) remove(match.registrationNumber);
+    }
+
+    @Override
+    public synchronized void carParked(ParkingSlot slot, Car car) {
+        add(car, slot.getSlotId());
+    }
+
+    @Override
+    public synchronized void carRemoved(ParkingSlot slot, Car car) {
+        remove(car.getRegistrationNumber());
+    }
+
+    @Override
+    public synchronized void carMoved(ParkingSlot from, ParkingSlot to, Car car) {
+        Match match = cars.get(car.getRegistrationNumber());
+        if (match != null) cars.put(match.registrationNumber, new Match(match.registrationNumber, match.owner, to.getSlotId()));
+    }
+
+    /**
+     * Returns the number of cars indexed.
+     *
+     * @return the number of parked cars
+     */
+    public synchronized int size() {
+        return cars.size();
+    }
+
+    /**
+     * Finds the cars whose registration number, owner's name or a word of the
+     * owner's name starts with some text.
+     *
+     * @param prefix the text, in any case
+     * @param limit  the most cars to return
+     * @return the matching cars, in key order
+     */
+    public synchronized List<Match> findByPrefix(String prefix, int limit) {
+        String text = normalize(prefix);
+        Set<String> found = new LinkedHashSet<>();
+        if (text.isEmpty()) return new ArrayList<>();
+        for (Set<String> registrations : keys.subMap(text, true, text + Character.MAX_VALUE, false).values()) {
+            for (String registration : registrations) {
+                if (found.size() == limit) return matches(found);
+                found.add(registration);
+            }
+        }
+        return matches(found);
+    }
+
+    /**
+     * Finds the cars whose registration number or owner's name contains some text.
+     *
+     * @param part  the text, in any case
+     * @param limit the most cars to return
+     * @return the matching cars, by registration number
+     */
+    public synchronized List<Match> findBySubstring(String part, int limit) {
+        String text = normalize(part);
+        List<Match> found = new ArrayList<>();
+        if (text.isEmpty()) return found;
+        if (text.length() < GRAM) {
+            for (Match match : cars.values()) {
+                if (found.size() == limit) break;
+                if (contains(match, text)) found.add(match);
+            }
+            return found;
+        }
+
+        // intersect the cars of each 3-gram, starting from the rarest
+        List<Set<String>> postings = new ArrayList<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            Set<String> withGram = grams.get(text.substring(i, i + GRAM));
+            if (withGram == null) return found;
+            postings.add(withGram);
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+        // keep the first limit registration numbers in a heap, largest on top, rather than sorting them all
+        PriorityQueue<String> first = new PriorityQueue<>(Comparator.reverseOrder());
+        for (String registration : postings.get(0)) {
+            if (first.size() == limit && registration.compareTo(first.peek()) > 0) continue;
+            boolean inAll = true;
+            for (int i = 1; i < postings.size() && inAll; i++) inAll = postings.get(i).contains(registration);
+            if (!inAll || !contains(cars.get(registration), text)) continue;
+            first.add(registration);
+            if (first.size() > limit) first.poll();
+        }
+        List<String> registrations = new ArrayList<>(first);
+        Collections.sort(registrations);
+        return matches(registrations);
+    }
+
+    /**
+     * Finds the cars with a registration number, owner's name or word of the
+     * owner's name within a number of typing mistakes of some text.
+     *
+     * @param approximate the text, in any case
+     * @param maxEdits    the most insertions, deletions or substitutions allowed
+     * @param limit       the most cars to return
+     * @return the matching cars, closest first, then by registration number
+     */
+    public synchronized List<Match> findFuzzy(String approximate, int maxEdits, int limit) {
+        String text = normalize(approximate);
+        if (text.isEmpty()) return new ArrayList<>();
+
+        int m = text.length();
+
+        // rows.get(d) is the edit distance table row for the first d characters of the current key
+        List<int[]> rows = new ArrayList<>();
+        int[] top = new int[m + 1];
+        for (int j = 0; j <= m; j++) top[j] = j;
+        rows.add(top);
+
+        Map<String, Integer> distances = new HashMap<>();
+        String previous = "";
+        Iterator<Map.Entry<String, Set<String>>> walk = keys.entrySet().iterator();
+        while (walk.hasNext()) {
+            Map.Entry<String, Set<String>> entry = walk.next();
+            String key = entry.getKey();
+            // the rows for the prefix this key shares with the previous one are already filled in
+            int depth = commonPrefix(previous, key);
+            int tooFar = 0;
+            while (depth < key.length()) {
+                if (depth + 1 == rows.size()) rows.add(new int[m + 1]);
+                int[] above = rows.get(depth);
+                int[] row = rows.get(depth + 1);
+                char c = key.charAt(depth);
+                row[0] = depth + 1;
+                int best = row[0];
+                for (int j = 1; j <= m; j++) {
+                    int cost = text.charAt(j - 1) == c ? 0 : 1;
+                    row[j] = Math.min(Math.min(above[j] + 1, row[j - 1] + 1), above[j - 1] + cost);
+                    best = Math.min(best, row[j]);
+                }
+                depth++;
+                if (best > maxEdits) {
+                    tooFar = depth;
+                    break;
+                }
+            }
+            if (tooFar > 0) {
+                // no key starting with this prefix can come close enough, so skip them all
+                String prefix = key.substring(0, tooFar);
+                previous = prefix.substring(0, tooFar - 1);
+                walk = keys.tailMap(prefix + Character.MAX_VALUE, false).entrySet().iterator();
+                continue;
+            }
+            int distance = rows.get(key.length())[m];
+            if (distance <= maxEdits) {
+                for (String registration : entry.getValue()) distances.merge(registration, distance, Math::min);
+            }
+            previous = key;
+        }
+
+        List<String> found = new ArrayList<>(distances.keySet());
+        found.sort(Comparator.comparing((String registration) -> distances.get(registration))
+                .thenComparing(Comparator.naturalOrder()));
+        return matches(first(found, limit));
+    }
+
+    /**
+     * Finds cars for a search box: prefix matches first, then substring
+     * matches, then fuzzy matches (one mistake allowed for up to 4 characters,
+     * two for longer text).
+     *
+     * @param text  the text typed so far
+     * @param limit the most cars to return
+     * @return the matching cars, best first
+     */
+    public synchronized List<Match> search(String text, int limit) {
+        Map<String, Match> found = new LinkedHashMap<>();
+        for (Match match : findByPrefix(text, limit)) found.putIfAbsent(match.registrationNumber, match);
+        if (found.size() < limit) {
+            for (Match match : findBySubstring(text, limit)) {
+                if (found.size() < limit) found.putIfAbsent(match.registrationNumber, match);
+            }
+        }
+        if (found.size() < limit) {
+            int maxEdits = normalize(text).length() <= 4 ? 1 : 2;
+            for (Match match : findFuzzy(text, maxEdits, limit)) {
+                if (found.size() < limit) found.putIfAbsent(match.registrationNumber, match);
+            }
+        }
+        return new ArrayList<>(found.values());
+    }
+
+    /**
+     * Indexes a parked car, replacing any earlier entry for its registration.
+     *
+     * @param car    the car
+     * @param slotId the slot it is parked in
+     */
+    private void add(Car car, String slotId) {
+        remove(car.getRegistrationNumber());
+        Match match = new Match(car.getRegistrationNumber(), car.getOwner() == null ? "" : car.getOwner(), slotId);
+        cars.put(match.registrationNumber, match);
+        for (String key : keysOf(match)) keys.computeIfAbsent(key, k -> new TreeSet<>()).add(match.registrationNumber);
+        for (String gram : gramsOf(match)) grams.computeIfAbsent(gram, g -> new HashSet<>()).add(match.registrationNumber);
+    }
+
+    /**
+     * Drops a car from the index.
+     *
+     * @param registrationNumber the car's registration number
+     */
+    private void remove(String registrationNumber) {
+        Match match = cars.remove(registrationNumber);
+        if (match == null) return;
+        for (String key : keysOf(match)) drop(keys, key, registrationNumber);
+        for (String gram : gramsOf(match)) drop(grams, gram, registrationNumber);
+    }
+
+    /**
+     * Removes a registration number from one entry of an index, and the entry if it becomes empty.
+     */
+    private static void drop(Map<String, Set<String>> index, String key, String registrationNumber) {
+        Set<String> registrations = index.get(key);
+        if (registrations == null) return;
+        registrations.remove(registrationNumber);
+        if (registrations.isEmpty()) index.remove(key);
+    }
+
+    /**
+     * Returns the search keys of a car: its registration number, its owner's
+     * name and each word of the name, upper-cased.
+     */
+    private static Set<String> keysOf(Match match) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(match.registrationNumber);
+        String owner = normalize(match.owner);
+        if (!owner.isEmpty()) {
+            keys.add(owner);
+            for (String word : owner.split("\\s+")) if (!word.isEmpty()) keys.add(word);
+        }
+        return keys;
+    }
+
+    /**
+     * Returns every run of GRAM characters of a car's registration number and owner's name.
+     */
+    private static Set<String> gramsOf(Match match) {
+        Set<String> grams = new HashSet<>();
+        for (String text : new String[] {match.registrationNumber, normalize(match.owner)}) {
+            for (int i = 0; i + GRAM <= text.length(); i++) grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * Checks whether a car's registration number or owner's name contains upper-cased text.
+     */
+    private static boolean contains(Match match, String text) {
+        return match.registrationNumber.contains(text) || normalize(match.owner).contains(text);
+    }
+
+    /**
+     * Returns the length of the longest common prefix of two strings.
+     */
+    private static int commonPrefix(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+
+    /**
+     * Upper-cases and trims text for matching.
+     */
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Returns at most the first limit registration numbers.
+     */
+    private static List<String> first(List<String> registrations, int limit) {
+        return registrations.size() <= limit ? registrations : registrations.subList(0, limit);
+    }
+
+    /**
+     * Looks up the entries of registration numbers.
+     */
+    private List<Match> matches(Collection<String> registrations) {
+        List<Match> found = new ArrayList<>(registrations.size());
+        for (String registration : registrations) found.add(cars.get(registration));
+        return found;
+    }
+
+    /**
+     * A parked car found by a search.
+     */
+    public static class Match {
+        private final String registrationNumber;
+        private final String owner;
+        private final String slotId;
+
+        /**
+         * Constructs a match.
+         */
+        Match(String registrationNumber, String owner, String slotId) {
+            this.registrationNumber = registrationNumber;
+            this.owner = owner;
+            this.slotId = slotId;
+        }
+
+        /**
+         * Returns the registration number of the car.
+         *
+         * @return the registration number
+         */
+        public String getRegistrationNumber() {
+            return registrationNumber;
+        }
+
+        /**
+         * Returns the name of the car's owner.
+         *
+         * @return the owner's name, or "" if none was given
+         */
+        public String getOwner() {
+            return owner;
+        }
+
+        /**
+         * Returns the ID of the slot the car is parked in.
+         *
+         * @return the slot ID
+         */
+        public String getSlotId() {
+            return slotId;
+        }
+
+        /**
+         * Returns a string representation of the match, e.g. "T1234 (Alice) in F01".
+         *
+         * @return the registration number, owner and slot
+         */
+        @Override
+        public String toString() {
+            return registrationNumber + (owner.isEmpty() ? "" : " (" + owner + ")") + " in " + slotId;
+        }
+    }
+}
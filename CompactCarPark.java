@@ -0,0 +1,643 @@
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Purpose: Used to represent a whole car park with slot state held in primitive arrays.
+ *
+ * Slot IDs and registration numbers are encoded as integers (see IdCodec) and
+ * each slot's state lives in bitsets and arrays indexed by its slot code, so no
+ * ParkingSlot or Car objects are kept per slot. The ParkingSlot and Car objects
+ * returned by this class are views created on demand over that storage;
+ * parking or removing through a view writes straight back to the arrays.
+ * Unlike ConcurrentCarPark, this class is meant for use from a single thread.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class CompactCarPark extends CarPark {
+
+    /**
+     * Slots that exist, slots reserved for staff, and slots with a car parked, by slot code.
+     */
+    private final BitSet present = new BitSet(IdCodec.SLOT_ID_COUNT);
+    private final BitSet staffSlots = new BitSet(IdCodec.SLOT_ID_COUNT);
+    private final BitSet occupied = new BitSet(IdCodec.SLOT_ID_COUNT);
+
+    /**
+     * Unoccupied staff and visitor slots, by slot code.
+     */
+    private final BitSet freeStaffSlots = new BitSet(IdCodec.SLOT_ID_COUNT);
+    private final BitSet freeVisitorSlots = new BitSet(IdCodec.SLOT_ID_COUNT);
+
+    /**
+     * The parked car of each occupied slot: its registration code, owner and
+     * parked time (nanoseconds since the epoch, read as UTC).
+     */
+    private final int[] parkedRegistration = new int[IdCodec.SLOT_ID_COUNT];
+    private final String[] parkedOwner = new String[IdCodec.SLOT_ID_COUNT];
+    private final long[] parkedNanos = new long[IdCodec.SLOT_ID_COUNT];
+
+    /**
+     * An open-addressing table from registration code to slot code for parked cars.
+     * Keys are stored as code + 1 so that 0 marks an empty bucket.
+     */
+    private int[] registrationKeys = new int[64];
+    private int[] registrationSlots = new int[64];
+    private int registrationCount;
+
+    /**
+     * Adds a new parking slot to the car park. The slot's ID, type and any parked
+     * car are copied into the car park's storage; the given object is not kept.
+     *
+     * @param slot the ParkingSlot to add
+     * @return true if the slot was successfully added, false if a slot with the same ID
+     *         already exists or its car is already parked elsewhere
+     */
+    @Override
+    public boolean addSlot(ParkingSlot slot) {
+        long start = startTiming();
+        CarParkMetrics.Failure failure = tryAddSlot(slot);
+        record(CarParkMetrics.Operation.ADD_SLOT, start, failure);
+        return failure == null;
+    }
+
+    /**
+     * Adds a new parking slot to the car park, as addSlot.
+     *
+     * @param slot the ParkingSlot to add
+     * @return null if the slot was added, otherwise the reason it was not
+     */
+    private CarParkMetrics.Failure tryAddSlot(ParkingSlot slot) {
+        int code = IdCodec.encodeSlotId(slot.getSlotId());
+        if (code < 0) return CarParkMetrics.Failure.INVALID_ID;
+        if (present.get(code)) return CarParkMetrics.Failure.SLOT_EXISTS;
+        Car car = slot.getParkedCar();
+        if (car != null && lookupRegistration(IdCodec.encodeRegistration(car.getRegistrationNumber())) >= 0) {
+            return CarParkMetrics.Failure.ALREADY_PARKED;
+        }
+        present.set(code);
+        staffSlots.set(code, slot.isStaffSlot());
+        if (car != null) {
+            store(code, car, car.getParkedTime());
+        } else {
+            freeSlots(slot.isStaffSlot()).set(code);
+        }
+        if (hasListeners()) fireSlotAdded(new SlotView(code));
+        return null;
+    }
+
+    /**
+     * Deletes a parking slot from the car park if it exists and is unoccupied.
+     *
+     * @param slotId the ID of the slot to delete
+     * @return true if the slot was successfully deleted, false if the slot does not exist or is currently occupied
+     */
+    @Override
+    public boolean deleteSlot(String slotId) {
+        long start = startTiming();
+        CarParkMetrics.Failure failure = tryDeleteSlot(slotId);
+        record(CarParkMetrics.Operation.DELETE_SLOT, start, failure);
+        return failure == null;
+    }
+
+    /**
+     * Deletes a parking slot, as deleteSlot.
+     *
+     * @param slotId the ID of the slot to delete
+     * @return null if the slot was deleted, otherwise the reason it was not
+     */
+    private CarParkMetrics.Failure tryDeleteSlot(String slotId) {
+        int code = IdCodec.encodeSlotId(slotId);
+        if (code < 0) return CarParkMetrics.Failure.INVALID_ID;
+        if (!present.get(code)) return CarParkMetrics.Failure.SLOT_NOT_FOUND;
+        if (occupied.get(code)) return CarParkMetrics.Failure.SLOT_OCCUPIED;
+        ParkingSlot deleted = hasListeners() ? new SlotView(code) : null;
+        present.clear(code);
+        freeSlots(staffSlots.get(code)).clear(code);
+        staffSlots.clear(code);
+        if (deleted != null) fireSlotDeleted(deleted);
+        return null;
+    }
+
+    /**
+     * Deletes all unoccupied parking slots from the car park.
+     * Occupied slots remain untouched.
+     */
+    @Override
+    public void deleteAllUnoccupiedSlots() {
+        List<ParkingSlot> deleted = new ArrayList<>();
+        if (hasListeners()) {
+            for (int code = present.nextSetBit(0); code >= 0; code = present.nextSetBit(code + 1)) {
+                if (!occupied.get(code)) deleted.add(new SlotView(code));
+            }
+        }
+        present.and(occupied);
+        staffSlots.and(occupied);
+        freeStaffSlots.clear();
+        freeVisitorSlots.clear();
+        for (ParkingSlot slot : deleted) fireSlotDeleted(slot);
+    }
+
+    /**
+     * Checks whether this car park can hold a slot with the given ID. Slot codes
+     * only cover the IDs "A00" to "Z99" (see IdCodec), so IDs with a site, a
+     * level or a bay above 99 are not accepted.
+     *
+     * @param slotId the slot ID to check
+     * @return true if the ID has a slot code
+     */
+    @Override
+    public boolean acceptsSlotId(String slotId) {
+        return IdCodec.isValidSlotId(slotId);
+    }
+
+    /**
+     * Finds a parking slot by its ID.
+     *
+     * @param slotId the ID of the slot to find
+     * @return a view of the slot with the given ID, or null if no such slot exists
+     */
+    @Override
+    public ParkingSlot findSlot(String slotId) {
+        count(CarParkMetrics.Operation.FIND_SLOT);
+        int code = IdCodec.encodeSlotId(slotId);
+        if (code < 0 || !present.get(code)) return null;
+        return new SlotView(code);
+    }
+
+    /**
+     * Finds the parking slot where a car with the given registration number is parked.
+     *
+     * @param registrationNumber the registration number of the car
+     * @return a view of the slot containing the car, or null if the car is not found in any slot
+     */
+    @Override
+    public ParkingSlot findCar(String registrationNumber) {
+        count(CarParkMetrics.Operation.FIND_CAR);
+        int code = lookupRegistration(IdCodec.encodeRegistration(registrationNumber));
+        return code < 0 ? null : new SlotView(code);
+    }
+
+    /**
+     * Parks a car in the slot with the given ID, recording a given parked time.
+     *
+     * @param slotId     the ID of the slot to park in
+     * @param car        the Car to park
+     * @param parkedTime the time the car was parked
+     * @return PARKED on success, otherwise the reason the car could not be parked
+     */
+    @Override
+    public ParkResult parkCar(String slotId, Car car, LocalDateTime parkedTime) {
+        ParkEvent event = new ParkEvent();
+        event.begin();
+        long start = startTiming();
+        ParkResult result = tryParkCar(slotId, car, parkedTime);
+        record(CarParkMetrics.Operation.PARK, start, CarParkMetrics.Failure.of(result));
+        event.finish(slotId, car, result);
+        return result;
+    }
+
+    /**
+     * Parks a car in the slot with the given ID, as parkCar.
+     *
+     * @param slotId     the ID of the slot to park in
+     * @param car        the Car to park
+     * @param parkedTime the time the car was parked
+     * @return PARKED on success, otherwise the reason the car could not be parked
+     */
+    private ParkResult tryParkCar(String slotId, Car car, LocalDateTime parkedTime) {
+        int code = IdCodec.encodeSlotId(slotId);
+        if (code < 0 || !present.get(code)) return ParkResult.SLOT_NOT_FOUND;
+        if (lookupRegistration(IdCodec.encodeRegistration(car.getRegistrationNumber())) >= 0) {
+            return ParkResult.ALREADY_PARKED;
+        }
+        if (occupied.get(code)) return ParkResult.SLOT_OCCUPIED;
+        if (car.isStaff() != staffSlots.get(code)) return ParkResult.TYPE_MISMATCH;
+        if (isReserved(code, car.getRegistrationNumber(), now())) return ParkResult.RESERVED;
+        return park(code, car, parkedTime) ? ParkResult.PARKED : ParkResult.ALREADY_PARKED;
+    }
+
+    /**
+     * Moves a parked car to another slot, keeping its original parked time.
+     *
+     * @param registrationNumber the registration number of the car to move
+     * @param targetSlotId       the ID of the slot to move it to
+     * @return PARKED on success, otherwise the reason the car could not be moved
+     */
+    @Override
+    public ParkResult moveCar(String registrationNumber, String targetSlotId) {
+        long start = startTiming();
+        ParkResult result = tryMoveCar(registrationNumber, targetSlotId);
+        record(CarParkMetrics.Operation.MOVE, start, CarParkMetrics.Failure.of(result));
+        return result;
+    }
+
+    /**
+     * Moves a parked car to another slot, as moveCar.
+     *
+     * @param registrationNumber the registration number of the car to move
+     * @param targetSlotId       the ID of the slot to move it to
+     * @return PARKED on success, otherwise the reason the car could not be moved
+     */
+    private ParkResult tryMoveCar(String registrationNumber, String targetSlotId) {
+        int target = IdCodec.encodeSlotId(targetSlotId);
+        if (target < 0 || !present.get(target)) return ParkResult.SLOT_NOT_FOUND;
+        int source = lookupRegistration(IdCodec.encodeRegistration(registrationNumber));
+        if (source < 0) return ParkResult.CAR_NOT_FOUND;
+        if (occupied.get(target)) return ParkResult.SLOT_OCCUPIED;
+        if (staffSlots.get(source) != staffSlots.get(target)) return ParkResult.TYPE_MISMATCH;
+        if (isReserved(target, registrationNumber, now())) return ParkResult.RESERVED;
+        int registration = parkedRegistration[source];
+        String owner = parkedOwner[source];
+        long nanos = parkedNanos[source];
+        Car car = hasListeners() ? carAt(source) : null;
+        release(source);
+        store(target, registration, owner, nanos);
+        if (car != null) fireCarMoved(new SlotView(source), new SlotView(target), car);
+        return ParkResult.PARKED;
+    }
+
+    /**
+     * Removes a car from the car park by its registration number.
+     *
+     * @param registrationNumber the registration number of the car to remove
+     * @return true if the car was successfully removed, false if the car was not found
+     */
+    @Override
+    public boolean removeCar(String registrationNumber) {
+        RemoveEvent event = new RemoveEvent();
+        event.begin();
+        long start = startTiming();
+        int code = lookupRegistration(IdCodec.encodeRegistration(registrationNumber));
+        boolean removed = code >= 0 && vacate(code);
+        record(CarParkMetrics.Operation.REMOVE, start, removed ? null : CarParkMetrics.Failure.CAR_NOT_FOUND);
+        event.finish(registrationNumber, removed ? code : -1);
+        return removed;
+    }
+
+    /**
+     * Returns the next free slot of the given type.
+     *
+     * @param isStaffSlot true to look for a staff slot, false for a visitor slot
+     * @return a view of an unoccupied slot of that type, or null if every such slot is taken
+     */
+    @Override
+    public ParkingSlot findFreeSlot(boolean isStaffSlot) {
+        int code = freeSlots(isStaffSlot).nextSetBit(0);
+        return code < 0 ? null : new SlotView(code);
+    }
+
+    /**
+     * Returns the number of free slots of the given type.
+     *
+     * @param isStaffSlot true to count staff slots, false to count visitor slots
+     * @return the number of unoccupied slots of that type
+     */
+    @Override
+    public int countFreeSlots(boolean isStaffSlot) {
+        return freeSlots(isStaffSlot).cardinality();
+    }
+
+    /**
+     * Parks a car in the next free slot matching its type (staff or visitor),
+     * passing over slots reserved for other cars.
+     *
+     * @param car the Car to park
+     * @return a view of the slot the car was parked in, or null if the car is already
+     *         parked or there is no free slot of the right type
+     */
+    @Override
+    public ParkingSlot parkCarAnywhere(Car car) {
+        ParkEvent event = new ParkEvent();
+        event.begin();
+        long start = startTiming();
+        LocalDateTime now = now();
+        BitSet free = freeSlots(car.isStaff());
+        int code = free.nextSetBit(0);
+        while (code >= 0 && isReserved(code, car.getRegistrationNumber(), now)) code = free.nextSetBit(code + 1);
+        ParkResult result = code < 0 ? null : park(code, car, now) ? ParkResult.PARKED : ParkResult.ALREADY_PARKED;
+        record(CarParkMetrics.Operation.PARK, start,
+                result == null ? CarParkMetrics.Failure.NO_FREE_SLOT : CarParkMetrics.Failure.of(result));
+        if (result != null) event.finish(code, car, result);
+        return result == ParkResult.PARKED ? new SlotView(code) : null;
+    }
+
+    /**
+     * Copies the parked time and type of every parked car into arrays, straight
+     * from the car park's storage.
+     *
+     * @param startEpochSeconds receives the parked times
+     * @param isStaff           receives whether each car belongs to staff
+     * @return the number of parked cars with a recorded parked time; if more
+     *         than the arrays hold, only the first that fit were copied
+     */
+    @Override
+    public int collectParkedTimes(long[] startEpochSeconds, boolean[] isStaff) {
+        int count = 0;
+        for (int code = occupied.nextSetBit(0); code >= 0; code = occupied.nextSetBit(code + 1)) {
+            if (!present.get(code) || parkedNanos[code] == Long.MIN_VALUE) continue;
+            if (count < startEpochSeconds.length) {
+                startEpochSeconds[count] = Math.floorDiv(parkedNanos[code], 1_000_000_000L);
+                isStaff[count] = staffSlots.get(code);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a collection of all parking slots in the car park, in slot ID order.
+     * The collection is backed by the car park's storage; a view is created for
+     * each slot only as it is iterated.
+     *
+     * @return a Collection of ParkingSlot views
+     */
+    @Override
+    public Collection<ParkingSlot> listSlots() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<ParkingSlot> iterator() {
+                return new Iterator<>() {
+                    private int next = present.nextSetBit(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public ParkingSlot next() {
+                        if (next < 0) throw new NoSuchElementException();
+                        ParkingSlot view = new SlotView(next);
+                        next = present.nextSetBit(next + 1);
+                        return view;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return present.cardinality();
+            }
+        };
+    }
+
+    /**
+     * Grows the registration table once to hold a batch of newly parked cars.
+     *
+     * @param newSlots the number of slots about to be added
+     * @param newCars  the number of cars about to be parked
+     */
+    @Override
+    protected void reserve(int newSlots, int newCars) {
+        int needed = (registrationCount + newCars) * 2;
+        if (needed <= registrationKeys.length) return;
+        int[] oldKeys = registrationKeys;
+        int[] oldSlots = registrationSlots;
+        int capacity = Integer.highestOneBit(needed - 1) << 1;
+        registrationKeys = new int[capacity];
+        registrationSlots = new int[capacity];
+        registrationCount = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) insertRegistration(oldKeys[i] - 1, oldSlots[i]);
+        }
+    }
+
+    /**
+     * Parks a car in the slot with the given code.
+     *
+     * @param code       the slot code
+     * @param car        the Car to park
+     * @param parkedTime the time to record as the car's parked time
+     * @return true if the car was parked, false if the slot is missing or occupied,
+     *         the type does not match, or the car is already parked elsewhere
+     */
+    private boolean park(int code, Car car, LocalDateTime parkedTime) {
+        if (!present.get(code) || occupied.get(code)) return false;
+        if (car.isStaff() != staffSlots.get(code)) return false; // staff/visitor mismatch
+        if (lookupRegistration(IdCodec.encodeRegistration(car.getRegistrationNumber())) >= 0) return false;
+        if (isReserved(code, car.getRegistrationNumber(), now())) return false; // booked for another car
+        car.setParkedTime(parkedTime);
+        store(code, car, parkedTime);
+        if (hasListeners()) fireCarParked(new SlotView(code), car);
+        return true;
+    }
+
+    /**
+     * Checks whether the slot with the given code is reserved for another car at a time.
+     * Only decodes the slot ID when bookings are attached.
+     *
+     * @param code               the slot code
+     * @param registrationNumber the registration number of the car to park in it
+     * @param time               when it would be parked
+     * @return true if a booking for another car is active then
+     */
+    private boolean isReserved(int code, String registrationNumber, LocalDateTime time) {
+        return getReservations() != null && isReservedAgainst(IdCodec.decodeSlotId(code), registrationNumber, time);
+    }
+
+    /**
+     * Writes a parked car into the slot with the given code.
+     *
+     * @param code       the slot code
+     * @param car        the parked car
+     * @param parkedTime the time the car was parked, or null if unknown
+     */
+    private void store(int code, Car car, LocalDateTime parkedTime) {
+        store(code, IdCodec.encodeRegistration(car.getRegistrationNumber()), car.getOwner(),
+                parkedTime == null ? Long.MIN_VALUE
+                        : parkedTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + parkedTime.getNano());
+    }
+
+    /**
+     * Writes an already-encoded parked car into the slot with the given code.
+     *
+     * @param code         the slot code
+     * @param registration the registration code
+     * @param owner        the owner's name
+     * @param nanos        the parked time in nanoseconds since the epoch (UTC), or Long.MIN_VALUE if unknown
+     */
+    private void store(int code, int registration, String owner, long nanos) {
+        occupied.set(code);
+        freeSlots(staffSlots.get(code)).clear(code);
+        parkedRegistration[code] = registration;
+        parkedOwner[code] = owner;
+        parkedNanos[code] = nanos;
+        insertRegistration(registration, code);
+    }
+
+    /**
+     * Removes the car from the slot with the given code.
+     *
+     * @param code the slot code
+     * @return true if a car was removed, false if the slot is missing or empty
+     */
+    private boolean vacate(int code) {
+        if (!present.get(code) || !occupied.get(code)) return false;
+        Car car = hasListeners() ? carAt(code) : null;
+        release(code);
+        if (car != null) fireCarRemoved(new SlotView(code), car);
+        return true;
+    }
+
+    /**
+     * Clears the parked car from an occupied slot without notifying listeners.
+     *
+     * @param code the slot code
+     */
+    private void release(int code) {
+        deleteRegistration(parkedRegistration[code]);
+        occupied.clear(code);
+        parkedOwner[code] = null;
+        freeSlots(staffSlots.get(code)).set(code);
+    }
+
+    /**
+     * Builds a Car from the stored state of an occupied slot.
+     *
+     * @param code the slot code
+     * @return a Car holding the slot's registration, owner, type and parked time
+     */
+    private Car carAt(int code) {
+        Car car = new Car(IdCodec.decodeRegistration(parkedRegistration[code]),
+                parkedOwner[code], staffSlots.get(code));
+        long nanos = parkedNanos[code];
+        if (nanos != Long.MIN_VALUE) {
+            car.setParkedTime(LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                    (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC));
+        }
+        return car;
+    }
+
+    /**
+     * Returns the free-slot bitset for the given slot type.
+     *
+     * @param isStaffSlot true for the staff bitset, false for the visitor bitset
+     * @return the bitset of unoccupied slots of that type
+     */
+    private BitSet freeSlots(boolean isStaffSlot) {
+        return isStaffSlot ? freeStaffSlots : freeVisitorSlots;
+    }
+
+    /**
+     * Looks up the slot a registration code is parked in.
+     *
+     * @param registration the registration code, or -1
+     * @return the slot code, or -1 if the car is not parked
+     */
+    private int lookupRegistration(int registration) {
+        if (registration < 0) return -1;
+        int mask = registrationKeys.length - 1;
+        for (int i = bucket(registration, mask); registrationKeys[i] != 0; i = (i + 1) & mask) {
+            if (registrationKeys[i] == registration + 1) return registrationSlots[i];
+        }
+        return -1;
+    }
+
+    /**
+     * Records that a registration code is parked in a slot, growing the table when it is half full.
+     *
+     * @param registration the registration code
+     * @param slotCode     the slot code
+     */
+    private void insertRegistration(int registration, int slotCode) {
+        if ((registrationCount + 1) * 2 > registrationKeys.length) {
+            int[] oldKeys = registrationKeys;
+            int[] oldSlots = registrationSlots;
+            registrationKeys = new int[oldKeys.length * 2];
+            registrationSlots = new int[oldKeys.length * 2];
+            registrationCount = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) insertRegistration(oldKeys[i] - 1, oldSlots[i]);
+            }
+        }
+        int mask = registrationKeys.length - 1;
+        int i = bucket(registration, mask);
+        while (registrationKeys[i] != 0) i = (i + 1) & mask;
+        registrationKeys[i] = registration + 1;
+        registrationSlots[i] = slotCode;
+        registrationCount++;
+    }
+
+    /**
+     * Removes a registration code from the table, shifting later entries of the
+     * probe sequence back so that lookups never stop at a hole.
+     *
+     * @param registration the registration code
+     */
+    private void deleteRegistration(int registration) {
+        int mask = registrationKeys.length - 1;
+        int i = bucket(registration, mask);
+        while (registrationKeys[i] != registration + 1) {
+            if (registrationKeys[i] == 0) return;
+            i = (i + 1) & mask;
+        }
+        registrationCount--;
+        int hole = i;
+        for (int j = (hole + 1) & mask; registrationKeys[j] != 0; j = (j + 1) & mask) {
+            int home = bucket(registrationKeys[j] - 1, mask);
+            // move the entry back if the hole lies between its home bucket and its current bucket
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                registrationKeys[hole] = registrationKeys[j];
+                registrationSlots[hole] = registrationSlots[j];
+                hole = j;
+            }
+        }
+        registrationKeys[hole] = 0;
+    }
+
+    /**
+     * Returns the home bucket of a registration code.
+     *
+     * @param registration the registration code
+     * @param mask         the table length minus one
+     * @return the bucket index
+     */
+    private static int bucket(int registration, int mask) {
+        return (registration * 0x9E3779B9 >>> 7) & mask;
+    }
+
+    /**
+     * A ParkingSlot view over one slot code of this car park.
+     */
+    private class SlotView extends ParkingSlot {
+        private final int code;
+
+        /**
+         * Constructs a view of the slot with the given code.
+         *
+         * @param code the slot code
+         */
+        SlotView(int code) {
+            super(IdCodec.decodeSlotId(code), staffSlots.get(code));
+            this.code = code;
+        }
+
+        @Override
+        public boolean isOccupied() {
+            return present.get(code) && occupied.get(code);
+        }
+
+        @Override
+        public Car getParkedCar() {
+            return isOccupied() ? carAt(code) : null;
+        }
+
+        @Override
+        public boolean parkCar(Car car) {
+            return park(code, car, now()); // by this car park's clock; the view has no carPark set
+        }
+
+        @Override
+        public boolean parkCar(Car car, LocalDateTime parkedTime) {
+            return park(code, car, parkedTime);
+        }
+
+        @Override
+        public boolean removeCar() {
+            return vacate(code);
+        }
+    }
+}
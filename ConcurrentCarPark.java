@@ -0,0 +1,133 @@
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Purpose: Used to represent a whole car park that can be shared by several threads,
+ * e.g. one per entry or exit gate.
+ *
+ * Slots and the registration index are held in concurrent maps. Each operation
+ * that changes a slot (park, remove, move, delete) holds only that slot's lock
+ * (or the two slots' locks for a move), so gates working on different slots never
+ * wait for each other. The registration index claims a registration number
+ * atomically, so a car can only be parked in one slot at a time.
+ *
+ * Free slots of each type are handed out in turn from a lock-free queue, so
+ * gates asking at the same time are given different slots rather than all
+ * racing for the same one, and finding a free slot takes constant time
+ * however full the car park is.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class ConcurrentCarPark extends CarPark {
+
+    private final FreeSlots freeStaffSlots;
+    private final FreeSlots freeVisitorSlots;
+
+    /**
+     * Constructs an empty thread-safe car park.
+     */
+    public ConcurrentCarPark() {
+        this(new FreeSlots(), new FreeSlots());
+    }
+
+    /**
+     * Constructs an empty thread-safe car park with the given free slot sets.
+     *
+     * @param freeStaffSlots   the set to hold unoccupied staff slots
+     * @param freeVisitorSlots the set to hold unoccupied visitor slots
+     */
+    private ConcurrentCarPark(FreeSlots freeStaffSlots, FreeSlots freeVisitorSlots) {
+        super(new ConcurrentHashMap<>(), new ConcurrentHashMap<>(), freeStaffSlots, freeVisitorSlots);
+        this.freeStaffSlots = freeStaffSlots;
+        this.freeVisitorSlots = freeVisitorSlots;
+    }
+
+    /**
+     * Returns true: this car park may be shared by several threads.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    /**
+     * Returns the next free slot of the given type, taking turns: each call
+     * gives the slot after the one the previous call gave, so gates parking at
+     * the same time are spread over the free slots.
+     *
+     * @param isStaffSlot true to look for a staff slot, false for a visitor slot
+     * @return an unoccupied ParkingSlot of that type, or null if every such slot is taken
+     */
+    @Override
+    public ParkingSlot findFreeSlot(boolean isStaffSlot) {
+        return (isStaffSlot ? freeStaffSlots : freeVisitorSlots).next();
+    }
+
+    /**
+     * The free slots of one type: a concurrent set, for membership and size,
+     * and a queue of the same slots in the order they are handed out.
+     *
+     * A slot leaves the set as soon as it is taken, but its entry stays in the
+     * queue until it reaches the front, where it is dropped; each slot has at
+     * most one entry, so the queue never holds more entries than there are slots.
+     */
+    private static class FreeSlots extends AbstractSet<ParkingSlot> {
+        private final Set<ParkingSlot> free = ConcurrentHashMap.newKeySet();
+        private final Set<ParkingSlot> queued = ConcurrentHashMap.newKeySet();
+        private final ConcurrentLinkedQueue<ParkingSlot> queue = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public boolean add(ParkingSlot slot) {
+            if (!free.add(slot)) return false;
+            if (queued.add(slot)) queue.offer(slot);
+            return true;
+        }
+
+        @Override
+        public boolean remove(Object slot) {
+            return free.remove(slot);
+        }
+
+        @Override
+        public boolean contains(Object slot) {
+            return free.contains(slot);
+        }
+
+        @Override
+        public int size() {
+            return free.size();
+        }
+
+        @Override
+        public Iterator<ParkingSlot> iterator() {
+            return free.iterator();
+        }
+
+        /**
+         * Returns the free slot at the front of the queue and moves it to the
+         * back, dropping the entries of slots that have been taken on the way.
+         *
+         * @return a free slot, or null if there is none
+         */
+        ParkingSlot next() {
+            ParkingSlot slot;
+            while ((slot = queue.poll()) != null) {
+                if (free.contains(slot)) {
+                    queue.offer(slot);
+                    return slot;
+                }
+                queued.remove(slot);
+                // freed again while its entry was on the way out; add must have skipped queueing it
+                if (free.contains(slot) && queued.add(slot)) queue.offer(slot);
+            }
+            return null;
+        }
+    }
+}
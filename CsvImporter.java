@@ -0,0 +1,733 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Purpose: Used to load slot layouts and parked cars into a car park from CSV files.
+ *
+ * Two layouts are read, each optionally starting with a header row:
+ * <ul>
+ *   <li>slots: {@code slot_id,type}, where type is staff or visitor. Further
+ *       columns are ignored, so a SlotReport export can be read back;</li>
+ *   <li>cars: {@code registration,owner,staff,slot_id[,parked_time]}, where
+ *       staff is yes or no and parked_time is e.g. 2025-01-31T08:30. A car
+ *       without a parked time is parked now.</li>
+ * </ul>
+ * Fields may be quoted as SlotReport writes them.
+ *
+ * The file is streamed through a fixed-size buffer and parsed a chunk of rows
+ * at a time. Each chunk is validated in parallel on a fork-join pool while the
+ * next chunk is parsed, then fed to the car park as one batch (see
+ * CarPark.addSlots and CarPark.parkAll) on the calling thread. At most two
+ * chunks are held at once, and a row longer than MAX_ROW_CHARS is refused
+ * rather than buffered, so memory stays bounded however long the file is.
+ *
+ * A row that cannot be imported is skipped and reported with its line number;
+ * the other rows of its chunk are still imported. Only the first MAX_ERRORS
+ * errors are kept, the rest are only counted.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class CsvImporter {
+
+    /** The number of rows parsed, validated and imported together, unless given. */
+    public static final int DEFAULT_CHUNK_ROWS = 8192;
+
+    /** The most row errors kept in a result. */
+    public static final int MAX_ERRORS = 1000;
+
+    /** The longest row read; longer rows are refused. */
+    public static final int MAX_ROW_CHARS = 4096;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // rows validated by one fork-join task before it stops splitting
+    private static final int VALIDATION_GRAIN = 512;
+
+    /**
+     * The kinds of file that can be imported.
+     */
+    public enum Layout {
+        /** Slots: slot_id,type. */
+        SLOTS("slot_id", 2, "Expected slot_id,type."),
+        /** Parked cars: registration,owner,staff,slot_id[,parked_time]. */
+        CARS("registration", 4, "Expected registration,owner,staff,slot_id[,parked_time].");
+
+        private final String firstColumn;
+        private final int columns;
+        private final String usage;
+
+        Layout(String firstColumn, int columns, String usage) {
+            this.firstColumn = firstColumn;
+            this.columns = columns;
+            this.usage = usage;
+        }
+    }
+
+    /**
+     * Receives the progress of an import.
+     */
+    @FunctionalInterface
+    public interface Progress {
+        /**
+         * Reports how far an import has got.
+         *
+         * @param rows       the number of rows handled so far
+         * @param bytesRead  the number of bytes of the file read so far
+         * @param totalBytes the size of the file
+         */
+        void update(long rows, long bytesRead, long totalBytes);
+    }
+
+    private final CarPark carPark;
+    private final ForkJoinPool pool;
+    private final int chunkRows;
+
+    /**
+     * Constructs an importer into a car park, validating on the common
+     * fork-join pool with the default chunk size.
+     *
+     * @param carPark the car park to import into
+     */
+    public CsvImporter(CarPark carPark) {
+        this(carPark, ForkJoinPool.commonPool(), DEFAULT_CHUNK_ROWS);
+    }
+
+    /**
+     * Constructs an importer into a car park.
+     *
+     * @param carPark   the car park to import into
+     * @param pool      the pool that validates rows
+     * @param chunkRows the number of rows imported together
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public CsvImporter(CarPark carPark, ForkJoinPool pool, int chunkRows) {
+        if (chunkRows <= 0) throw new IllegalArgumentException("Chunk size must be positive.");
+        this.carPark = carPark;
+        this.pool = pool;
+        this.chunkRows = chunkRows;
+    }
+
+    /**
+     * Imports a CSV file. The car park is only changed on the calling thread.
+     *
+     * @param file      the file to read
+     * @param layout    what the file holds
+     * @param progress  receives the progress after each chunk, on the calling thread
+     * @param cancelled checked before each chunk; once it returns true the import stops
+     * @return the counts, errors and throughput of the import
+     * @throws IOException if the file cannot be read
+     */
+    public Result importFile(Path file, Layout layout, Progress progress, BooleanSupplier cancelled)
+            throws IOException {
+        long start = System.nanoTime();
+        LocalDateTime now = carPark.now();
+        Result result = new Result();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long totalBytes = channel.size();
+            RowReader reader = new RowReader(channel);
+            Chunk current = new Chunk(chunkRows);
+            Chunk spare = new Chunk(chunkRows);
+            reader.read(current);
+            if (current.size > 0 && current.fields[0].length > 0
+                    && current.fields[0][0].trim().equalsIgnoreCase(layout.firstColumn)) {
+                current.start = 1; // header row
+            }
+            while (current.size > current.start && !cancelled.getAsBoolean()) {
+                ForkJoinTask<Void> validation = pool.submit(new Validation(current, layout, now, current.start, current.size));
+                spare.clear();
+                reader.read(spare); // parse the next chunk while this one is validated
+                validation.join();
+                int errorsBefore = result.errors.size();
+                if (layout == Layout.SLOTS) addSlots(current, result);
+                else parkCars(current, result);
+                // rows refused by the car park are reported after those refused by validation
+                result.errors.subList(errorsBefore, result.errors.size()).sort(Comparator.comparingLong(RowError::getLine));
+                result.rows += current.size - current.start;
+                result.bytes = reader.bytesRead;
+                progress.update(result.rows, reader.bytesRead, totalBytes);
+                Chunk done = current;
+                current = spare;
+                spare = done;
+            }
+        }
+        result.elapsed = Duration.ofNanos(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * Adds the valid slots of a chunk as one batch. If some cannot be added,
+     * e.g. because their IDs are taken, they are reported and the others are
+     * added without them.
+     *
+     * @param chunk  the validated chunk
+     * @param result where counts and errors are recorded
+     */
+    private void addSlots(Chunk chunk, Result result) {
+        List<ParkingSlot> batch = new ArrayList<>(chunk.size);
+        List<Long> lines = new ArrayList<>(chunk.size);
+        for (int i = chunk.start; i < chunk.size; i++) {
+            if (chunk.errors[i] != null) {
+                result.error(chunk.lines[i], chunk.errors[i]);
+                continue;
+            }
+            batch.add(chunk.slots[i]);
+            lines.add(chunk.lines[i]);
+        }
+        if (batch.isEmpty()) return;
+        BatchResult<Boolean> outcome = carPark.addSlots(batch);
+        if (outcome.isApplied()) {
+            result.imported += batch.size();
+            return;
+        }
+        List<ParkingSlot> retry = new ArrayList<>(batch.size());
+        List<Long> retryLines = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (!outcome.getResults().get(i)) {
+                result.error(lines.get(i), "Slot " + batch.get(i).getSlotId() + " already exists.");
+                continue;
+            }
+            retry.add(batch.get(i));
+            retryLines.add(lines.get(i));
+        }
+        if (retry.isEmpty()) return;
+        if (carPark.addSlots(retry).isApplied()) {
+            result.imported += retry.size();
+            return;
+        }
+        // something else changed the car park meanwhile; add them one by one
+        for (int i = 0; i < retry.size(); i++) {
+            if (carPark.addSlot(retry.get(i))) result.imported++;
+            else result.error(retryLines.get(i), "Slot " + retry.get(i).getSlotId() + " already exists.");
+        }
+    }
+
+    /**
+     * Parks the valid cars of a chunk as one batch. If some cannot be parked,
+     * they are reported and the others are parked without them.
+     *
+     * @param chunk  the validated chunk
+     * @param result where counts and errors are recorded
+     */
+    private void parkCars(Chunk chunk, Result result) {
+        List<String> slotIds = new ArrayList<>(chunk.size);
+        List<Car> cars = new ArrayList<>(chunk.size);
+        List<Long> lines = new ArrayList<>(chunk.size);
+        for (int i = chunk.start; i < chunk.size; i++) {
+            if (chunk.errors[i] != null) {
+                result.error(chunk.lines[i], chunk.errors[i]);
+                continue;
+            }
+            slotIds.add(chunk.slotIds[i]);
+            cars.add(chunk.cars[i]);
+            lines.add(chunk.lines[i]);
+        }
+        if (cars.isEmpty()) return;
+        BatchResult<ParkResult> outcome = carPark.parkAll(slotIds, cars);
+        if (outcome.isApplied()) {
+            result.imported += cars.size();
+            return;
+        }
+        List<String> retrySlots = new ArrayList<>(cars.size());
+        List<Car> retryCars = new ArrayList<>(cars.size());
+        List<Long> retryLines = new ArrayList<>(cars.size());
+        for (int i = 0; i < cars.size(); i++) {
+            ParkResult refused = outcome.getResults().get(i);
+            if (refused != ParkResult.PARKED) {
+                result.error(lines.get(i), describe(refused, slotIds.get(i), cars.get(i)));
+                continue;
+            }
+            retrySlots.add(slotIds.get(i));
+            retryCars.add(cars.get(i));
+            retryLines.add(lines.get(i));
+        }
+        if (retryCars.isEmpty()) return;
+        if (carPark.parkAll(retrySlots, retryCars).isApplied()) {
+            result.imported += retryCars.size();
+            return;
+        }
+        // something else changed the car park meanwhile; park them one by one
+        for (int i = 0; i < retryCars.size(); i++) {
+            Car car = retryCars.get(i);
+            LocalDateTime parkedTime = car.getParkedTime() != null ? car.getParkedTime() : carPark.now();
+            ParkResult parked = carPark.parkCar(retrySlots.get(i), car, parkedTime);
+            if (parked == ParkResult.PARKED) result.imported++;
+            else result.error(retryLines.get(i), describe(parked, retrySlots.get(i), car));
+        }
+    }
+
+    /**
+     * Explains why a car could not be parked.
+     *
+     * @param result the reason
+     * @param slotId the slot it was meant for
+     * @param car    the car
+     * @return the message
+     */
+    private static String describe(ParkResult result, String slotId, Car car) {
+        return switch (result) {
+            case SLOT_NOT_FOUND -> "Slot " + slotId + " not found.";
+            case SLOT_OCCUPIED -> "Slot " + slotId + " is occupied.";
+            case TYPE_MISMATCH -> "Slot " + slotId + " is not a " + (car.isStaff() ? "staff" : "visitor") + " slot.";
+            case ALREADY_PARKED -> "Car " + car.getRegistrationNumber() + " is already parked.";
+            case RESERVED -> "Slot " + slotId + " is reserved for another car.";
+            default -> "Car " + car.getRegistrationNumber() + " could not be parked (" + result + ").";
+        };
+    }
+
+    /**
+     * Checks one slot row and builds its slot.
+     *
+     * @param chunk the chunk
+     * @param i     the row's index in the chunk
+     * @return an error message, or null if the row is valid
+     */
+    private String validateSlot(Chunk chunk, int i) {
+        String[] fields = chunk.fields[i];
+        String id = fields[0].trim();
+        if (!carPark.acceptsSlotId(id)) return "Invalid slot ID \"" + id + "\".";
+        Boolean staff = parseFlag(fields[1], "staff", "visitor");
+        if (staff == null) return "Type must be staff or visitor, not \"" + fields[1].trim() + "\".";
+        chunk.slots[i] = new ParkingSlot(id, staff);
+        return null;
+    }
+
+    /**
+     * Checks one car row and builds its car.
+     *
+     * @param chunk the chunk
+     * @param i     the row's index in the chunk
+     * @param now   the time of the import; cars cannot have been parked after it
+     * @return an error message, or null if the row is valid
+     */
+    private String validateCar(Chunk chunk, int i, LocalDateTime now) {
+        String[] fields = chunk.fields[i];
+        String registration = fields[0].trim();
+        if (!IdCodec.isValidRegistration(registration)) {
+            return "Invalid registration number \"" + registration + "\" (e.g. T1234).";
+        }
+        Boolean staff = parseFlag(fields[2], "yes", "no");
+        if (staff == null) return "Staff must be yes or no, not \"" + fields[2].trim() + "\".";
+        String slotId = fields[3].trim();
+        if (!carPark.acceptsSlotId(slotId)) return "Invalid slot ID \"" + slotId + "\".";
+        LocalDateTime parkedTime = null;
+        if (fields.length > 4 && !fields[4].isBlank()) {
+            try {
+                parkedTime = LocalDateTime.parse(fields[4].trim());
+            } catch (DateTimeParseException e) {
+                return "Invalid parked time \"" + fields[4].trim() + "\" (e.g. 2025-01-31T08:30).";
+            }
+            if (parkedTime.isAfter(now)) return "Parked time " + parkedTime + " is in the future.";
+        }
+        Car car = new Car(registration, fields[1].trim(), staff);
+        car.setParkedTime(parkedTime);
+        chunk.cars[i] = car;
+        chunk.slotIds[i] = slotId;
+        return null;
+    }
+
+    /**
+     * Reads a two-valued field, ignoring case. Also accepts true and false.
+     *
+     * @param field the field
+     * @param yes   the word for true
+     * @param no    the word for false
+     * @return the value, or null if the field is neither
+     */
+    private static Boolean parseFlag(String field, String yes, String no) {
+        String value = field.trim().toLowerCase(Locale.ROOT);
+        if (value.equals(yes) || value.equals("true")) return Boolean.TRUE;
+        if (value.equals(no) || value.equals("false")) return Boolean.FALSE;
+        return null;
+    }
+
+    /**
+     * Validates the rows of a chunk, splitting the range across the pool.
+     * Each row is only written by the task that validates it.
+     */
+    private class Validation extends RecursiveAction {
+        private final Chunk chunk;
+        private final Layout layout;
+        private final LocalDateTime now;
+        private final int from;
+        private final int to;
+
+        Validation(Chunk chunk, Layout layout, LocalDateTime now, int from, int to) {
+            this.chunk = chunk;
+            this.layout = layout;
+            this.now = now;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > VALIDATION_GRAIN) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Validation(chunk, layout, now, from, middle), new Validation(chunk, layout, now, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                if (chunk.errors[i] != null) continue; // could not be parsed
+                if (chunk.fields[i].length < layout.columns) {
+                    chunk.errors[i] = layout.usage;
+                    continue;
+                }
+                try {
+                    chunk.errors[i] = layout == Layout.SLOTS ? validateSlot(chunk, i) : validateCar(chunk, i, now);
+                } catch (IllegalArgumentException e) {
+                    chunk.errors[i] = e.getMessage();
+                }
+            }
+        }
+    }
+
+    /**
+     * A chunk of rows: their fields as parsed, then what validating them produced.
+     * Reused from one chunk to the next.
+     */
+    private static class Chunk {
+        final long[] lines;
+        final String[][] fields;
+        final String[] errors;
+        final ParkingSlot[] slots;
+        final Car[] cars;
+        final String[] slotIds;
+        int size;
+        int start;
+
+        Chunk(int capacity) {
+            lines = new long[capacity];
+            fields = new String[capacity][];
+            errors = new String[capacity];
+            slots = new ParkingSlot[capacity];
+            cars = new Car[capacity];
+            slotIds = new String[capacity];
+        }
+
+        /**
+         * Adds a parsed row.
+         */
+        void add(long line, String[] rowFields, String error) {
+            lines[size] = line;
+            fields[size] = rowFields;
+            errors[size] = error;
+            size++;
+        }
+
+        boolean isFull() {
+            return size == lines.length;
+        }
+
+        /**
+         * Empties the chunk, dropping its rows so they can be collected.
+         */
+        void clear() {
+            Arrays.fill(fields, 0, size, null);
+            Arrays.fill(errors, 0, size, null);
+            Arrays.fill(slots, 0, size, null);
+            Arrays.fill(cars, 0, size, null);
+            Arrays.fill(slotIds, 0, size, null);
+            size = 0;
+            start = 0;
+        }
+    }
+
+    /**
+     * Splits a file channel into CSV rows, decoding UTF-8 through fixed
+     * buffers. Quoted fields may hold commas, doubled quotes and line breaks;
+     * blank lines are skipped. Bytes that are not valid UTF-8 are replaced.
+     */
+    private static class RowReader {
+        private final FileChannel channel;
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private boolean endOfInput;
+        long bytesRead;
+
+        // the row being read
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private long line = 1;
+        private long rowLine;
+        private int rowChars;
+        private boolean inRow;
+        private boolean quoted;
+        private boolean afterQuote;
+
+        RowReader(FileChannel channel) {
+            this.channel = channel;
+            bytes.flip();
+            chars.flip();
+        }
+
+        /**
+         * Reads rows into a chunk until it is full or the file ends.
+         *
+         * @param chunk the chunk to fill
+         * @throws IOException if the file cannot be read
+         */
+        void read(Chunk chunk) throws IOException {
+            while (!chunk.isFull()) {
+                if (!chars.hasRemaining() && !fill()) {
+                    if (inRow) endRow(chunk, quoted ? "Quoted field is not closed." : null);
+                    return;
+                }
+                char c = chars.get();
+                if (quoted) {
+                    if (c == '"') {
+                        quoted = false;
+                        afterQuote = true;
+                    } else {
+                        if (c == '\n') line++;
+                        append(c);
+                    }
+                    continue;
+                }
+                switch (c) {
+                    case ',' -> {
+                        startRow();
+                        rowChars++;
+                        endField();
+                    }
+                    case '\n' -> {
+                        if (inRow) endRow(chunk, null);
+                        line++;
+                    }
+                    case '\r' -> { }
+                    case '"' -> {
+                        startRow();
+                        if (afterQuote) append('"'); // a doubled quote inside a quoted field
+                        if (afterQuote || field.length() == 0) quoted = true;
+                        else append(c);
+                        afterQuote = false;
+                    }
+                    default -> {
+                        startRow();
+                        append(c);
+                        afterQuote = false;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Notes where a row starts when its first character is read.
+         */
+        private void startRow() {
+            if (inRow) return;
+            inRow = true;
+            rowLine = line;
+        }
+
+        /**
+         * Adds a character to the current field, unless the row is already too long.
+         */
+        private void append(char c) {
+            if (++rowChars <= MAX_ROW_CHARS) field.append(c);
+        }
+
+        /**
+         * Finishes the current field, unless the row is already too long.
+         */
+        private void endField() {
+            if (rowChars <= MAX_ROW_CHARS) fields.add(field.toString());
+            field.setLength(0);
+            afterQuote = false;
+        }
+
+        /**
+         * Finishes the current row and adds it to the chunk.
+         */
+        private void endRow(Chunk chunk, String error) {
+            endField();
+            if (error == null && rowChars > MAX_ROW_CHARS) error = "Row is longer than " + MAX_ROW_CHARS + " characters.";
+            chunk.add(rowLine, fields.toArray(new String[0]), error);
+            fields.clear();
+            rowChars = 0;
+            inRow = false;
+            quoted = false;
+        }
+
+        /**
+         * Decodes the next run of the file into the character buffer.
+         *
+         * @return false if the file has ended
+         * @throws IOException if the file cannot be read
+         */
+        private boolean fill() throws IOException {
+            chars.clear();
+            while (chars.position() == 0 && !endOfInput) {
+                bytes.compact();
+                int n = channel.read(bytes);
+                bytes.flip();
+                if (n < 0) endOfInput = true;
+                else bytesRead += n;
+                decoder.decode(bytes, chars, endOfInput);
+                if (endOfInput) decoder.flush(chars);
+            }
+            chars.flip();
+            return chars.hasRemaining();
+        }
+    }
+
+    /**
+     * A row that could not be imported.
+     */
+    public static final class RowError {
+        private final long line;
+        private final String message;
+
+        RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * Returns the line of the file the row starts on.
+         *
+         * @return the line number, from 1
+         */
+        public long getLine() {
+            return line;
+        }
+
+        /**
+         * Returns why the row could not be imported.
+         *
+         * @return the message
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * Returns a string representation of the error, e.g. "Line 12: Slot F01 already exists.".
+         *
+         * @return the line and message
+         */
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+
+    /**
+     * The outcome of an import: what was imported, what was not and why, and how fast.
+     */
+    public static final class Result {
+        private long rows;
+        private long imported;
+        private long failed;
+        private long bytes;
+        private Duration elapsed = Duration.ZERO;
+        private final List<RowError> errors = new ArrayList<>();
+
+        /**
+         * Records a row that could not be imported.
+         */
+        void error(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_ERRORS) errors.add(new RowError(line, message));
+        }
+
+        /**
+         * Returns the number of data rows read, not counting a header.
+         *
+         * @return the number of rows
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * Returns the number of rows imported.
+         *
+         * @return the number of slots added or cars parked
+         */
+        public long getImported() {
+            return imported;
+        }
+
+        /**
+         * Returns the number of rows that could not be imported.
+         *
+         * @return the number of failed rows
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        /**
+         * Returns the first errors, in file order.
+         *
+         * @return at most MAX_ERRORS errors
+         */
+        public List<RowError> getErrors() {
+            return Collections.unmodifiableList(errors);
+        }
+
+        /**
+         * Returns how long the import took.
+         *
+         * @return the elapsed time
+         */
+        public Duration getElapsed() {
+            return elapsed;
+        }
+
+        /**
+         * Returns the throughput of the import.
+         *
+         * @return rows handled per second
+         */
+        public double getRowsPerSecond() {
+            return elapsed.isZero() ? 0 : rows * 1e9 / elapsed.toNanos();
+        }
+
+        /**
+         * Returns the read throughput of the import.
+         *
+         * @return megabytes read per second
+         */
+        public double getMegabytesPerSecond() {
+            return elapsed.isZero() ? 0 : bytes * 1e9 / elapsed.toNanos() / (1024 * 1024);
+        }
+
+        /**
+         * Returns a summary of the import, e.g.
+         * "Imported 9998 of 10000 rows (2 failed) in 0.41 s, 24390 rows/s (1.2 MB/s).".
+         *
+         * @return the summary
+         */
+        @Override
+        public String toString() {
+            return String.format("Imported %d of %d rows (%d failed) in %.2f s, %.0f rows/s (%.1f MB/s).",
+                    imported, rows, failed, elapsed.toNanos() / 1e9, getRowsPerSecond(), getMegabytesPerSecond());
+        }
+    }
+}
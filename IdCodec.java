@@ -0,0 +1,128 @@
+/**
+ * Purpose: Used to validate and encode slot IDs and registration numbers as compact integers.
+ *
+ * A slot ID (one uppercase letter followed by two digits, e.g. "F01") maps to
+ * letter * 100 + number, giving codes 0 to 2599. A registration number (one
+ * uppercase letter followed by four digits, e.g. "T1234") maps to
+ * letter * 10000 + number, giving codes 0 to 259999.
+ *
+ * Validation and encoding are done in a single pass over the characters, without
+ * regular expressions and without allocating, so IDs can be checked on every
+ * operation at no real cost.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public final class IdCodec {
+
+    /**
+     * The number of distinct slot IDs, and so the size of any array indexed by slot code.
+     */
+    public static final int SLOT_ID_COUNT = 26 * 100;
+
+    /**
+     * The number of distinct registration numbers.
+     */
+    public static final int REGISTRATION_COUNT = 26 * 10000;
+
+    private IdCodec() {
+    }
+
+    /**
+     * Checks whether a slot ID is one uppercase letter followed by two digits.
+     *
+     * @param slotId the slot ID to check
+     * @return true if the slot ID is in the required format
+     */
+    public static boolean isValidSlotId(String slotId) {
+        return encodeSlotId(slotId) >= 0;
+    }
+
+    /**
+     * Checks whether a registration number is one uppercase letter followed by four digits.
+     *
+     * @param registrationNumber the registration number to check
+     * @return true if the registration number is in the required format
+     */
+    public static boolean isValidRegistration(String registrationNumber) {
+        return encodeRegistration(registrationNumber) >= 0;
+    }
+
+    /**
+     * Encodes a slot ID as an integer.
+     *
+     * @param slotId the slot ID (e.g. "F01")
+     * @return the slot code, or -1 if the slot ID is not in the required format
+     */
+    public static int encodeSlotId(String slotId) {
+        return encode(slotId, 2);
+    }
+
+    /**
+     * Decodes a slot code back into its slot ID.
+     *
+     * @param code a slot code returned by encodeSlotId
+     * @return the slot ID
+     */
+    public static String decodeSlotId(int code) {
+        return decode(code, 2);
+    }
+
+    /**
+     * Encodes a registration number as an integer.
+     *
+     * @param registrationNumber the registration number (e.g. "T1234")
+     * @return the registration code, or -1 if the number is not in the required format
+     */
+    public static int encodeRegistration(String registrationNumber) {
+        return encode(registrationNumber, 4);
+    }
+
+    /**
+     * Decodes a registration code back into its registration number.
+     *
+     * @param code a registration code returned by encodeRegistration
+     * @return the registration number
+     */
+    public static String decodeRegistration(int code) {
+        return decode(code, 4);
+    }
+
+    /**
+     * Parses one uppercase letter followed by exactly the given number of digits.
+     *
+     * @param id     the text to parse
+     * @param digits the number of digits after the letter
+     * @return the letter index times 10^digits plus the number, or -1 if the text does not match
+     */
+    private static int encode(String id, int digits) {
+        if (id == null || id.length() != digits + 1) return -1;
+        char letter = id.charAt(0);
+        if (letter < 'A' || letter > 'Z') return -1;
+        int value = letter - 'A';
+        for (int i = 1; i <= digits; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Formats a code as one uppercase letter followed by zero-padded digits.
+     *
+     * @param code   the code to format
+     * @param digits the number of digits after the letter
+     * @return the formatted ID
+     */
+    private static String decode(int code, int digits) {
+        char[] chars = new char[digits + 1];
+        for (int i = digits; i >= 1; i--) {
+            chars[i] = (char) ('0' + code % 10);
+            code /= 10;
+        }
+        chars[0] = (char) ('A' + code);
+        return new String(chars);
+    }
+}
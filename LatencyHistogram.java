@@ -0,0 +1,123 @@
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Purpose: Used to record how long an operation takes, cheaply enough to leave
+ * on in production and safely from many threads at once.
+ *
+ * Latencies are counted in buckets: one per nanosecond below 4 ns, then four
+ * per power of two, so a percentile is accurate to within about 25%. Each
+ * bucket is a LongAdder, so threads recording at the same time do not contend,
+ * and recording a latency touches just that bucket (and the maximum, when it grows).
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class LatencyHistogram {
+
+    /**
+     * Four buckets below 4 ns, then four per power of two up to 2^63 ns.
+     */
+    private static final int BUCKETS = 4 + 61 * 4;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAccumulator max = new LongAccumulator(Long::max, 0);
+
+    /**
+     * Constructs an empty histogram.
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) counts[i] = new LongAdder();
+    }
+
+    /**
+     * Records one latency.
+     *
+     * @param nanos the latency in nanoseconds; negative values count as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts[bucket(nanos)].increment();
+        max.accumulate(nanos);
+    }
+
+    /**
+     * Returns the number of latencies recorded.
+     *
+     * @return the count
+     */
+    public long count() {
+        long count = 0;
+        for (LongAdder bucket : counts) count += bucket.sum();
+        return count;
+    }
+
+    /**
+     * Returns the longest latency recorded.
+     *
+     * @return the maximum in nanoseconds, or 0 if nothing was recorded
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Returns a latency that the given share of recorded latencies do not exceed.
+     * The answer is the top of the bucket the percentile falls in.
+     *
+     * @param percentile the percentile, 0 to 100
+     * @return the latency in nanoseconds, or 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+        if (count == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), max());
+        }
+        return max();
+    }
+
+    /**
+     * Forgets every recorded latency. Latencies recorded while this runs may or may not be kept.
+     */
+    public void reset() {
+        for (LongAdder bucket : counts) bucket.reset();
+        max.reset();
+    }
+
+    /**
+     * Returns the bucket a latency is counted in.
+     *
+     * @param nanos the latency, not negative
+     * @return the bucket index
+     */
+    private static int bucket(long nanos) {
+        if (nanos < 4) return (int) nanos;
+        int power = 63 - Long.numberOfLeadingZeros(nanos); // 2 or more
+        int quarter = (int) (nanos >>> (power - 2)) & 3;
+        return 4 + (power - 2) * 4 + quarter;
+    }
+
+    /**
+     * Returns the largest latency counted in a bucket.
+     *
+     * @param bucket the bucket index
+     * @return the latency in nanoseconds
+     */
+    private static long upperBound(int bucket) {
+        if (bucket < 4) return bucket;
+        int power = (bucket - 4) / 4 + 2;
+        int quarter = (bucket - 4) % 4;
+        long lower = (long) (4 + quarter) << (power - 2);
+        return lower + (1L << (power - 2)) - 1;
+    }
+}
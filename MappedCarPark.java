@@ -0,0 +1,837 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Purpose: Used to represent a whole car park whose state lives in a memory-mapped snapshot file.
+ *
+ * The file has a fixed layout, so opening it only maps it into memory: nothing
+ * is read or rebuilt up front, and opening a full site takes the same time as
+ * opening an empty one. Reads go straight to the mapped bytes, and the
+ * ParkingSlot and Car objects returned are views created on demand, as in
+ * CompactCarPark. Changes are written straight back to the mapping; call
+ * force() to make sure they have reached the disk.
+ *
+ * File layout (all values big-endian):
+ * <pre>
+ *   header    64 bytes: magic, version, slot count, free staff and visitor
+ *             slot counts, owner heap end, live owner bytes, owner heap
+ *             capacity, slot and registration code counts
+ *   slots     one 24-byte record per slot code (see IdCodec):
+ *             int slot code, byte flags (present, staff, occupied), 3 unused bytes,
+ *             int registration code, int owner reference, long parked time
+ *             (nanoseconds since the epoch read as UTC, or Long.MIN_VALUE if unknown)
+ *   cars      one short per registration code: the slot code it is parked in + 1, or 0
+ *   owners    the owner heap: an int length followed by the UTF-8 bytes of each
+ *             owner name; owner references are offsets into it
+ * </pre>
+ * Like CompactCarPark, this class is meant for use from a single thread.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class MappedCarPark extends CarPark {
+
+    private static final int MAGIC = 0x43504d31; // "CPM1"
+    private static final int VERSION = 1;
+
+    // header fields
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_SLOT_COUNT = 8;
+    private static final int H_FREE_STAFF = 12;
+    private static final int H_FREE_VISITOR = 16;
+    private static final int H_HEAP_END = 20;
+    private static final int H_HEAP_LIVE = 24;
+    private static final int H_HEAP_CAPACITY = 28;
+    private static final int H_SLOT_CODES = 32;
+    private static final int H_REGISTRATION_CODES = 36;
+    private static final int HEADER_SIZE = 64;
+
+    // slot record fields
+    private static final int RECORD_SIZE = 24;
+    private static final int R_SLOT = 0;
+    private static final int R_FLAGS = 4;
+    private static final int R_REGISTRATION = 8;
+    private static final int R_OWNER = 12;
+    private static final int R_NANOS = 16;
+
+    private static final byte PRESENT = 1;
+    private static final byte STAFF = 2;
+    private static final byte OCCUPIED = 4;
+
+    private static final int SLOTS_OFFSET = HEADER_SIZE;
+    private static final int CARS_OFFSET = SLOTS_OFFSET + IdCodec.SLOT_ID_COUNT * RECORD_SIZE;
+    private static final int HEAP_OFFSET = CARS_OFFSET + IdCodec.REGISTRATION_COUNT * 2;
+    private static final int INITIAL_HEAP_CAPACITY = 64 * 1024;
+
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+
+    /**
+     * Maps an open snapshot file. Use open() to create one.
+     *
+     * @param channel the file, opened for reading and writing
+     * @param buffer  the whole file, mapped
+     */
+    private MappedCarPark(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Opens a snapshot file as a car park, creating an empty one if the file does not exist.
+     *
+     * @param file the snapshot file
+     * @return the car park backed by the file
+     * @throws IOException if the file cannot be opened or is not a car park snapshot
+     */
+    public static MappedCarPark open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEAP_OFFSET + INITIAL_HEAP_CAPACITY);
+                buffer.putInt(H_MAGIC, MAGIC).putInt(H_VERSION, VERSION)
+                      .putInt(H_HEAP_CAPACITY, INITIAL_HEAP_CAPACITY)
+                      .putInt(H_SLOT_CODES, IdCodec.SLOT_ID_COUNT)
+                      .putInt(H_REGISTRATION_CODES, IdCodec.REGISTRATION_COUNT);
+                return new MappedCarPark(channel, buffer);
+            }
+            if (channel.size() < HEAP_OFFSET) throw new IOException("Not a car park snapshot: " + file);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            if (buffer.getInt(H_MAGIC) != MAGIC || buffer.getInt(H_VERSION) != VERSION
+                    || buffer.getInt(H_SLOT_CODES) != IdCodec.SLOT_ID_COUNT
+                    || buffer.getInt(H_REGISTRATION_CODES) != IdCodec.REGISTRATION_COUNT
+                    || HEAP_OFFSET + (long) buffer.getInt(H_HEAP_CAPACITY) > channel.size()) {
+                throw new IOException("Not a car park snapshot, or from another version: " + file);
+            }
+            return new MappedCarPark(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes any car park to a snapshot file that open() can map. The snapshot is
+     * built in a temporary file and moved into place, so an existing snapshot is
+     * only replaced once the new one is complete. The file only holds plain zone
+     * and bay IDs up to 99 (see acceptsSlotId); if the car park has any other
+     * slots, nothing is written.
+     *
+     * @param carPark the car park to save
+     * @param file    the snapshot file to create or replace
+     * @throws IOException if the file cannot be written, or some slots cannot be
+     *                     stored in it (the message lists them)
+     */
+    public static void write(CarPark carPark, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        MappedCarPark snapshot = open(temp);
+        List<String> rejected = new ArrayList<>();
+        try {
+            for (ParkingSlot slot : carPark.listSlots()) {
+                if (!snapshot.addSlot(slot)) rejected.add(slot.getSlotId());
+            }
+            if (rejected.isEmpty()) snapshot.force();
+        } finally {
+            snapshot.channel.close();
+        }
+        if (!rejected.isEmpty()) {
+            Files.deleteIfExists(temp);
+            throw new IOException("Cannot store " + rejected.size() + " slot(s) in a snapshot file: "
+                    + String.join(", ", rejected.subList(0, Math.min(rejected.size(), 20)))
+                    + (rejected.size() > 20 ? ", ..." : ""));
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Writes any changes still in memory to the snapshot file.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Adds a new parking slot to the car park. The slot's ID, type and any parked
+     * car are copied into the file; the given object is not kept.
+     *
+     * @param slot the ParkingSlot to add
+     * @return true if the slot was successfully added, false if a slot with the same ID
+     *         already exists or its car is already parked elsewhere
+     */
+    @Override
+    public boolean addSlot(ParkingSlot slot) {
+        long start = startTiming();
+        CarParkMetrics.Failure failure = tryAddSlot(slot);
+        record(CarParkMetrics.Operation.ADD_SLOT, start, failure);
+        return failure == null;
+    }
+
+    /**
+     * Adds a new parking slot to the car park, as addSlot.
+     *
+     * @param slot the ParkingSlot to add
+     * @return null if the slot was added, otherwise the reason it was not
+     */
+    private CarParkMetrics.Failure tryAddSlot(ParkingSlot slot) {
+        int code = IdCodec.encodeSlotId(slot.getSlotId());
+        if (code < 0) return CarParkMetrics.Failure.INVALID_ID;
+        if (isPresent(code)) return CarParkMetrics.Failure.SLOT_EXISTS;
+        Car car = slot.getParkedCar();
+        if (car != null && lookupRegistration(IdCodec.encodeRegistration(car.getRegistrationNumber())) >= 0) {
+            return CarParkMetrics.Failure.ALREADY_PARKED;
+        }
+        int record = record(code);
+        buffer.putInt(record + R_SLOT, code);
+        buffer.put(record + R_FLAGS, (byte) (PRESENT | (slot.isStaffSlot() ? STAFF : 0)));
+        addToHeader(H_SLOT_COUNT, 1);
+        addToHeader(freeCountField(slot.isStaffSlot()), 1);
+        if (car != null) store(code, car, car.getParkedTime());
+        if (hasListeners()) fireSlotAdded(new SlotView(code));
+        return null;
+    }
+
+    /**
+     * Deletes a parking slot from the car park if it exists and is unoccupied.
+     *
+     * @param slotId the ID of the slot to delete
+     * @return true if the slot was successfully deleted, false if the slot does not exist or is currently occupied
+     */
+    @Override
+    public boolean deleteSlot(String slotId) {
+        long start = startTiming();
+        CarParkMetrics.Failure failure = tryDeleteSlot(slotId);
+        record(CarParkMetrics.Operation.DELETE_SLOT, start, failure);
+        return failure == null;
+    }
+
+    /**
+     * Deletes a parking slot, as deleteSlot.
+     *
+     * @param slotId the ID of the slot to delete
+     * @return null if the slot was deleted, otherwise the reason it was not
+     */
+    private CarParkMetrics.Failure tryDeleteSlot(String slotId) {
+        int code = IdCodec.encodeSlotId(slotId);
+        if (code < 0) return CarParkMetrics.Failure.INVALID_ID;
+        if (!isPresent(code)) return CarParkMetrics.Failure.SLOT_NOT_FOUND;
+        if (isOccupied(code)) return CarParkMetrics.Failure.SLOT_OCCUPIED;
+        ParkingSlot deleted = hasListeners() ? new SlotView(code) : null;
+        clearSlot(code);
+        if (deleted != null) fireSlotDeleted(deleted);
+        return null;
+    }
+
+    /**
+     * Deletes all unoccupied parking slots from the car park.
+     * Occupied slots remain untouched.
+     */
+    @Override
+    public void deleteAllUnoccupiedSlots() {
+        List<ParkingSlot> deleted = new ArrayList<>();
+        for (int code = 0; code < IdCodec.SLOT_ID_COUNT; code++) {
+            if (!isPresent(code) || isOccupied(code)) continue;
+            if (hasListeners()) deleted.add(new SlotView(code));
+            clearSlot(code);
+        }
+        for (ParkingSlot slot : deleted) fireSlotDeleted(slot);
+    }
+
+    /**
+     * Checks whether this car park can hold a slot with the given ID. Slot codes
+     * only cover the IDs "A00" to "Z99" (see IdCodec), so IDs with a site, a
+     * level or a bay above 99 are not accepted.
+     *
+     * @param slotId the slot ID to check
+     * @return true if the ID has a slot code
+     */
+    @Override
+    public boolean acceptsSlotId(String slotId) {
+        return IdCodec.isValidSlotId(slotId);
+    }
+
+    /**
+     * Finds a parking slot by its ID.
+     *
+     * @param slotId the ID of the slot to find
+     * @return a view of the slot with the given ID, or null if no such slot exists
+     */
+    @Override
+    public ParkingSlot findSlot(String slotId) {
+        count(CarParkMetrics.Operation.FIND_SLOT);
+        int code = IdCodec.encodeSlotId(slotId);
+        if (code < 0 || !isPresent(code)) return null;
+        return new SlotView(code);
+    }
+
+    /**
+     * Finds the parking slot where a car with the given registration number is parked.
+     *
+     * @param registrationNumber the registration number of the car
+     * @return a view of the slot containing the car, or null if the car is not found in any slot
+     */
+    @Override
+    public ParkingSlot findCar(String registrationNumber) {
+        count(CarParkMetrics.Operation.FIND_CAR);
+        int code = lookupRegistration(IdCodec.encodeRegistration(registrationNumber));
+        return code < 0 ? null : new SlotView(code);
+    }
+
+    /**
+     * Parks a car in the slot with the given ID, recording a given parked time.
+     *
+     * @param slotId     the ID of the slot to park in
+     * @param car        the Car to park
+     * @param parkedTime the time the car was parked
+     * @return PARKED on success, otherwise the reason the car could not be parked
+     */
+    @Override
+    public ParkResult parkCar(String slotId, Car car, LocalDateTime parkedTime) {
+        ParkEvent event = new ParkEvent();
+        event.begin();
+        long start = startTiming();
+        ParkResult result = tryParkCar(slotId, car, parkedTime);
+        record(CarParkMetrics.Operation.PARK, start, CarParkMetrics.Failure.of(result));
+        event.finish(slotId, car, result);
+        return result;
+    }
+
+    /**
+     * Parks a car in the slot with the given ID, as parkCar.
+     *
+     * @param slotId     the ID of the slot to park in
+     * @param car        the Car to park
+     * @param parkedTime the time the car was parked
+     * @return PARKED on success, otherwise the reason the car could not be parked
+     */
+    private ParkResult tryParkCar(String slotId, Car car, LocalDateTime parkedTime) {
+        int code = IdCodec.encodeSlotId(slotId);
+        if (code < 0 || !isPresent(code)) return ParkResult.SLOT_NOT_FOUND;
+        if (lookupRegistration(IdCodec.encodeRegistration(car.getRegistrationNumber())) >= 0) {
+            return ParkResult.ALREADY_PARKED;
+        }
+        if (isOccupied(code)) return ParkResult.SLOT_OCCUPIED;
+        if (car.isStaff() != isStaff(code)) return ParkResult.TYPE_MISMATCH;
+        if (isReserved(code, car.getRegistrationNumber(), now())) return ParkResult.RESERVED;
+        return park(code, car, parkedTime) ? ParkResult.PARKED : ParkResult.ALREADY_PARKED;
+    }
+
+    /**
+     * Moves a parked car to another slot, keeping its original parked time.
+     *
+     * @param registrationNumber the registration number of the car to move
+     * @param targetSlotId       the ID of the slot to move it to
+     * @return PARKED on success, otherwise the reason the car could not be moved
+     */
+    @Override
+    public ParkResult moveCar(String registrationNumber, String targetSlotId) {
+        long start = startTiming();
+        ParkResult result = tryMoveCar(registrationNumber, targetSlotId);
+        record(CarParkMetrics.Operation.MOVE, start, CarParkMetrics.Failure.of(result));
+        return result;
+    }
+
+    /**
+     * Moves a parked car to another slot, as moveCar.
+     *
+     * @param registrationNumber the registration number of the car to move
+     * @param targetSlotId       the ID of the slot to move it to
+     * @return PARKED on success, otherwise the reason the car could not be moved
+     */
+    private ParkResult tryMoveCar(String registrationNumber, String targetSlotId) {
+        int target = IdCodec.encodeSlotId(targetSlotId);
+        if (target < 0 || !isPresent(target)) return ParkResult.SLOT_NOT_FOUND;
+        int registration = IdCodec.encodeRegistration(registrationNumber);
+        int source = lookupRegistration(registration);
+        if (source < 0) return ParkResult.CAR_NOT_FOUND;
+        if (isOccupied(target)) return ParkResult.SLOT_OCCUPIED;
+        if (isStaff(source) != isStaff(target)) return ParkResult.TYPE_MISMATCH;
+        if (isReserved(target, registrationNumber, now())) return ParkResult.RESERVED;
+        Car car = hasListeners() ? carAt(source) : null;
+
+        // the owner reference moves with the car, so the owner name is not copied
+        int from = record(source);
+        int to = record(target);
+        buffer.putInt(to + R_REGISTRATION, registration);
+        buffer.putInt(to + R_OWNER, buffer.getInt(from + R_OWNER));
+        buffer.putLong(to + R_NANOS, buffer.getLong(from + R_NANOS));
+        setFlag(source, OCCUPIED, false);
+        setFlag(target, OCCUPIED, true);
+        buffer.putShort(CARS_OFFSET + registration * 2, (short) (target + 1));
+
+        if (car != null) fireCarMoved(new SlotView(source), new SlotView(target), car);
+        return ParkResult.PARKED;
+    }
+
+    /**
+     * Removes a car from the car park by its registration number.
+     *
+     * @param registrationNumber the registration number of the car to remove
+     * @return true if the car was successfully removed, false if the car was not found
+     */
+    @Override
+    public boolean removeCar(String registrationNumber) {
+        RemoveEvent event = new RemoveEvent();
+        event.begin();
+        long start = startTiming();
+        int code = lookupRegistration(IdCodec.encodeRegistration(registrationNumber));
+        boolean removed = code >= 0 && vacate(code);
+        record(CarParkMetrics.Operation.REMOVE, start, removed ? null : CarParkMetrics.Failure.CAR_NOT_FOUND);
+        event.finish(registrationNumber, removed ? code : -1);
+        return removed;
+    }
+
+    /**
+     * Returns the first free slot of the given type, in slot ID order.
+     *
+     * @param isStaffSlot true to look for a staff slot, false for a visitor slot
+     * @return a view of an unoccupied slot of that type, or null if every such slot is taken
+     */
+    @Override
+    public ParkingSlot findFreeSlot(boolean isStaffSlot) {
+        int code = nextFreeSlot(isStaffSlot);
+        return code < 0 ? null : new SlotView(code);
+    }
+
+    /**
+     * Returns the number of free slots of the given type, as kept in the file header.
+     *
+     * @param isStaffSlot true to count staff slots, false to count visitor slots
+     * @return the number of unoccupied slots of that type
+     */
+    @Override
+    public int countFreeSlots(boolean isStaffSlot) {
+        return buffer.getInt(freeCountField(isStaffSlot));
+    }
+
+    /**
+     * Parks a car in the first free slot matching its type (staff or visitor),
+     * passing over slots reserved for other cars.
+     *
+     * @param car the Car to park
+     * @return a view of the slot the car was parked in, or null if the car is already
+     *         parked or there is no free slot of the right type
+     */
+    @Override
+    public ParkingSlot parkCarAnywhere(Car car) {
+        ParkEvent event = new ParkEvent();
+        event.begin();
+        long start = startTiming();
+        LocalDateTime now = now();
+        int code = nextFreeSlot(car.isStaff(), 0);
+        while (code >= 0 && isReserved(code, car.getRegistrationNumber(), now)) code = nextFreeSlot(car.isStaff(), code + 1);
+        ParkResult result = code < 0 ? null : park(code, car, now) ? ParkResult.PARKED : ParkResult.ALREADY_PARKED;
+        record(CarParkMetrics.Operation.PARK, start,
+                result == null ? CarParkMetrics.Failure.NO_FREE_SLOT : CarParkMetrics.Failure.of(result));
+        if (result != null) event.finish(code, car, result);
+        return result == ParkResult.PARKED ? new SlotView(code) : null;
+    }
+
+    /**
+     * Copies the parked time and type of every parked car into arrays, straight
+     * from the mapped file.
+     *
+     * @param startEpochSeconds receives the parked times
+     * @param isStaff           receives whether each car belongs to staff
+     * @return the number of parked cars with a recorded parked time; if more
+     *         than the arrays hold, only the first that fit were copied
+     */
+    @Override
+    public int collectParkedTimes(long[] startEpochSeconds, boolean[] isStaff) {
+        int count = 0;
+        for (int code = 0; code < IdCodec.SLOT_ID_COUNT; code++) {
+            byte flags = buffer.get(record(code) + R_FLAGS);
+            if ((flags & (PRESENT | OCCUPIED)) != (PRESENT | OCCUPIED)) continue;
+            long nanos = buffer.getLong(record(code) + R_NANOS);
+            if (nanos == Long.MIN_VALUE) continue;
+            if (count < startEpochSeconds.length) {
+                startEpochSeconds[count] = Math.floorDiv(nanos, 1_000_000_000L);
+                isStaff[count] = (flags & STAFF) != 0;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a collection of all parking slots in the car park, in slot ID order.
+     * The collection is backed by the mapped file; a view is created for each
+     * slot only as it is iterated.
+     *
+     * @return a Collection of ParkingSlot views
+     */
+    @Override
+    public Collection<ParkingSlot> listSlots() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<ParkingSlot> iterator() {
+                return new Iterator<>() {
+                    private int next = nextPresent(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return next >= 0;
+                    }
+
+                    @Override
+                    public ParkingSlot next() {
+                        if (next < 0) throw new NoSuchElementException();
+                        ParkingSlot view = new SlotView(next);
+                        next = nextPresent(next + 1);
+                        return view;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return buffer.getInt(H_SLOT_COUNT);
+            }
+        };
+    }
+
+    /**
+     * Parks a car in the slot with the given code.
+     *
+     * @param code       the slot code
+     * @param car        the Car to park
+     * @param parkedTime the time to record as the car's parked time
+     * @return true if the car was parked, false if the slot is missing or occupied,
+     *         the type does not match, or the car is already parked elsewhere
+     */
+    private boolean park(int code, Car car, LocalDateTime parkedTime) {
+        if (!isPresent(code) || isOccupied(code)) return false;
+        if (car.isStaff() != isStaff(code)) return false; // staff/visitor mismatch
+        if (lookupRegistration(IdCodec.encodeRegistration(car.getRegistrationNumber())) >= 0) return false;
+        if (isReserved(code, car.getRegistrationNumber(), now())) return false; // booked for another car
+        car.setParkedTime(parkedTime);
+        store(code, car, parkedTime);
+        if (hasListeners()) fireCarParked(new SlotView(code), car);
+        return true;
+    }
+
+    /**
+     * Checks whether the slot with the given code is reserved for another car at a time.
+     * Only decodes the slot ID when bookings are attached.
+     *
+     * @param code               the slot code
+     * @param registrationNumber the registration number of the car to park in it
+     * @param time               when it would be parked
+     * @return true if a booking for another car is active then
+     */
+    private boolean isReserved(int code, String registrationNumber, LocalDateTime time) {
+        return getReservations() != null && isReservedAgainst(IdCodec.decodeSlotId(code), registrationNumber, time);
+    }
+
+    /**
+     * Writes a parked car into the slot with the given code.
+     *
+     * @param code       the slot code
+     * @param car        the parked car
+     * @param parkedTime the time the car was parked, or null if unknown
+     */
+    private void store(int code, Car car, LocalDateTime parkedTime) {
+        int registration = IdCodec.encodeRegistration(car.getRegistrationNumber());
+        int owner = putOwner(car.getOwner());
+        int record = record(code);
+        buffer.putInt(record + R_REGISTRATION, registration);
+        buffer.putInt(record + R_OWNER, owner);
+        buffer.putLong(record + R_NANOS, parkedTime == null ? Long.MIN_VALUE
+                : parkedTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + parkedTime.getNano());
+        setFlag(code, OCCUPIED, true);
+        addToHeader(freeCountField(isStaff(code)), -1);
+        buffer.putShort(CARS_OFFSET + registration * 2, (short) (code + 1));
+    }
+
+    /**
+     * Removes the car from the slot with the given code.
+     *
+     * @param code the slot code
+     * @return true if a car was removed, false if the slot is missing or empty
+     */
+    private boolean vacate(int code) {
+        if (!isPresent(code) || !isOccupied(code)) return false;
+        Car car = hasListeners() ? carAt(code) : null;
+        int record = record(code);
+        buffer.putShort(CARS_OFFSET + buffer.getInt(record + R_REGISTRATION) * 2, (short) 0);
+        addToHeader(H_HEAP_LIVE, -(4 + buffer.getInt(HEAP_OFFSET + buffer.getInt(record + R_OWNER))));
+        setFlag(code, OCCUPIED, false);
+        addToHeader(freeCountField(isStaff(code)), 1);
+        if (car != null) fireCarRemoved(new SlotView(code), car);
+        return true;
+    }
+
+    /**
+     * Clears the record of an unoccupied slot and updates the header counts.
+     *
+     * @param code the slot code
+     */
+    private void clearSlot(int code) {
+        addToHeader(freeCountField(isStaff(code)), -1);
+        addToHeader(H_SLOT_COUNT, -1);
+        buffer.put(record(code) + R_FLAGS, (byte) 0);
+    }
+
+    /**
+     * Builds a Car from the stored state of an occupied slot.
+     *
+     * @param code the slot code
+     * @return a Car holding the slot's registration, owner, type and parked time
+     */
+    private Car carAt(int code) {
+        int record = record(code);
+        Car car = new Car(IdCodec.decodeRegistration(buffer.getInt(record + R_REGISTRATION)),
+                getOwner(buffer.getInt(record + R_OWNER)), isStaff(code));
+        long nanos = buffer.getLong(record + R_NANOS);
+        if (nanos != Long.MIN_VALUE) {
+            car.setParkedTime(LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                    (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC));
+        }
+        return car;
+    }
+
+    /**
+     * Looks up the slot a registration code is parked in.
+     *
+     * @param registration the registration code, or -1
+     * @return the slot code, or -1 if the car is not parked
+     */
+    private int lookupRegistration(int registration) {
+        if (registration < 0) return -1;
+        return (buffer.getShort(CARS_OFFSET + registration * 2) & 0xFFFF) - 1;
+    }
+
+    /**
+     * Returns the first free slot of a type at or after slot code 0.
+     *
+     * @param isStaffSlot the slot type
+     * @return the slot code, or -1 if there is none
+     */
+    private int nextFreeSlot(boolean isStaffSlot) {
+        return nextFreeSlot(isStaffSlot, 0);
+    }
+
+    /**
+     * Returns the first free slot of a type at or after a slot code.
+     *
+     * @param isStaffSlot the slot type
+     * @param from        the slot code to start at
+     * @return the slot code, or -1 if there is none
+     */
+    private int nextFreeSlot(boolean isStaffSlot, int from) {
+        if (countFreeSlots(isStaffSlot) == 0) return -1;
+        byte wanted = (byte) (PRESENT | (isStaffSlot ? STAFF : 0));
+        for (int code = from; code < IdCodec.SLOT_ID_COUNT; code++) {
+            if ((buffer.get(record(code) + R_FLAGS) & (PRESENT | STAFF | OCCUPIED)) == wanted) return code;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the first slot that exists at or after a slot code.
+     *
+     * @param from the slot code to start at
+     * @return the slot code, or -1 if there is none
+     */
+    private int nextPresent(int from) {
+        for (int code = from; code < IdCodec.SLOT_ID_COUNT; code++) {
+            if (isPresent(code)) return code;
+        }
+        return -1;
+    }
+
+    /**
+     * Appends an owner name to the owner heap, making room first if needed.
+     *
+     * @param owner the owner's name
+     * @return the owner reference
+     */
+    private int putOwner(String owner) {
+        byte[] bytes = owner.getBytes(StandardCharsets.UTF_8);
+        int needed = 4 + bytes.length;
+        if (buffer.getInt(H_HEAP_END) + needed > buffer.getInt(H_HEAP_CAPACITY)) makeRoom(needed);
+        int ref = buffer.getInt(H_HEAP_END);
+        buffer.putInt(HEAP_OFFSET + ref, bytes.length);
+        buffer.put(HEAP_OFFSET + ref + 4, bytes);
+        buffer.putInt(H_HEAP_END, ref + needed);
+        addToHeader(H_HEAP_LIVE, needed);
+        return ref;
+    }
+
+    /**
+     * Reads an owner name from the owner heap.
+     *
+     * @param ref the owner reference
+     * @return the owner's name
+     */
+    private String getOwner(int ref) {
+        byte[] bytes = new byte[buffer.getInt(HEAP_OFFSET + ref)];
+        buffer.get(HEAP_OFFSET + ref + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes room in the owner heap. Names of cars that have left are dropped by
+     * packing the live names to the start of the heap; if that would not free
+     * enough, the file is grown to double the heap and mapped again.
+     *
+     * @param needed the bytes needed at the end of the heap
+     */
+    private void makeRoom(int needed) {
+        int capacity = buffer.getInt(H_HEAP_CAPACITY);
+        int live = buffer.getInt(H_HEAP_LIVE);
+        if (live + needed <= capacity / 2) {
+            byte[] packed = new byte[live];
+            int end = 0;
+            for (int code = 0; code < IdCodec.SLOT_ID_COUNT; code++) {
+                if (!isPresent(code) || !isOccupied(code)) continue;
+                int record = record(code);
+                int ref = buffer.getInt(record + R_OWNER);
+                int length = 4 + buffer.getInt(HEAP_OFFSET + ref);
+                buffer.get(HEAP_OFFSET + ref, packed, end, length);
+                buffer.putInt(record + R_OWNER, end);
+                end += length;
+            }
+            buffer.put(HEAP_OFFSET, packed, 0, end);
+            buffer.putInt(H_HEAP_END, end);
+            return;
+        }
+        // the heap is not compacted when it grows, so the new value goes after its current end
+        int newCapacity = Math.max(capacity * 2, buffer.getInt(H_HEAP_END) + needed);
+        try {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) HEAP_OFFSET + newCapacity);
+        } catch (IOException e) {
+            throw new java.io.UncheckedIOException("Could not grow the car park snapshot file", e);
+        }
+        buffer.putInt(H_HEAP_CAPACITY, newCapacity);
+    }
+
+    /**
+     * Returns the header field holding the free slot count of a slot type.
+     *
+     * @param isStaffSlot the slot type
+     * @return the header offset
+     */
+    private static int freeCountField(boolean isStaffSlot) {
+        return isStaffSlot ? H_FREE_STAFF : H_FREE_VISITOR;
+    }
+
+    /**
+     * Adds to an int field of the header.
+     *
+     * @param field the header offset
+     * @param delta the amount to add
+     */
+    private void addToHeader(int field, int delta) {
+        buffer.putInt(field, buffer.getInt(field) + delta);
+    }
+
+    /**
+     * Returns the file offset of a slot's record.
+     *
+     * @param code the slot code
+     * @return the offset
+     */
+    private static int record(int code) {
+        return SLOTS_OFFSET + code * RECORD_SIZE;
+    }
+
+    /**
+     * Checks whether a slot exists.
+     *
+     * @param code the slot code
+     * @return true if the slot exists
+     */
+    private boolean isPresent(int code) {
+        return (buffer.get(record(code) + R_FLAGS) & PRESENT) != 0;
+    }
+
+    /**
+     * Checks whether a slot is reserved for staff.
+     *
+     * @param code the slot code
+     * @return true for a staff slot
+     */
+    private boolean isStaff(int code) {
+        return (buffer.get(record(code) + R_FLAGS) & STAFF) != 0;
+    }
+
+    /**
+     * Checks whether a slot has a car parked in it.
+     *
+     * @param code the slot code
+     * @return true if the slot is occupied
+     */
+    private boolean isOccupied(int code) {
+        return (buffer.get(record(code) + R_FLAGS) & OCCUPIED) != 0;
+    }
+
+    /**
+     * Sets or clears one flag of a slot's record.
+     *
+     * @param code the slot code
+     * @param flag the flag bit
+     * @param on   true to set it, false to clear it
+     */
+    private void setFlag(int code, byte flag, boolean on) {
+        int at = record(code) + R_FLAGS;
+        byte flags = buffer.get(at);
+        buffer.put(at, (byte) (on ? flags | flag : flags & ~flag));
+    }
+
+    /**
+     * A ParkingSlot view over one slot record of the mapped file.
+     */
+    private class SlotView extends ParkingSlot {
+        private final int code;
+
+        /**
+         * Constructs a view of the slot with the given code.
+         *
+         * @param code the slot code
+         */
+        SlotView(int code) {
+            super(IdCodec.decodeSlotId(code), MappedCarPark.this.isStaff(code));
+            this.code = code;
+        }
+
+        @Override
+        public boolean isOccupied() {
+            return isPresent(code) && MappedCarPark.this.isOccupied(code);
+        }
+
+        @Override
+        public Car getParkedCar() {
+            return isOccupied() ? carAt(code) : null;
+        }
+
+        @Override
+        public boolean parkCar(Car car) {
+            return park(code, car, now()); // by this car park's clock; the view has no carPark set
+        }
+
+        @Override
+        public boolean parkCar(Car car, LocalDateTime parkedTime) {
+            return park(code, car, parkedTime);
+        }
+
+        @Override
+        public boolean removeCar() {
+            return vacate(code);
+        }
+    }
+}
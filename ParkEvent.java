@@ -0,0 +1,67 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Purpose: Used to record each attempt to park a car in a Java Flight Recorder
+ * recording, for profiling a live car park in JDK Mission Control.
+ *
+ * While no recording asks for the event, creating and finishing it costs next
+ * to nothing.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+@Name("carpark.Park")
+@Label("Park Car")
+@Category("Car Park")
+@Description("An attempt to park a car in a slot")
+public class ParkEvent extends Event {
+
+    @Label("Slot ID")
+    String slotId;
+
+    @Label("Registration Number")
+    String registrationNumber;
+
+    @Label("Staff")
+    boolean staff;
+
+    @Label("Result")
+    String result;
+
+    /**
+     * Ends the event and, if a recording wants it, fills it in and commits it.
+     *
+     * @param slotId the slot the car was to be parked in
+     * @param car    the car
+     * @param result the outcome
+     */
+    void finish(String slotId, Car car, ParkResult result) {
+        end();
+        if (!shouldCommit() || CarPark.isUndoingBatch()) return; // not asked for: a failed batch being undone
+        this.slotId = slotId;
+        this.registrationNumber = car.getRegistrationNumber();
+        this.staff = car.isStaff();
+        this.result = result.name();
+        commit();
+    }
+
+    /**
+     * Ends the event and, if a recording wants it, fills it in and commits it.
+     * For car parks that keep slots as codes (see IdCodec): the slot ID is only
+     * decoded if the event is committed.
+     *
+     * @param slotCode the code of the slot the car was to be parked in, or -1 if there was none
+     * @param car      the car
+     * @param result   the outcome
+     */
+    void finish(int slotCode, Car car, ParkResult result) {
+        end();
+        if (!shouldCommit()) return;
+        finish(slotCode < 0 ? null : IdCodec.decodeSlotId(slotCode), car, result);
+    }
+}
@@ -0,0 +1,22 @@
+/**
+ * Purpose: Used to report the outcome of parking or moving a car in a car park.
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public enum ParkResult {
+    /** The car was parked (or moved) successfully. */
+    PARKED,
+    /** No slot with the given ID exists in the car park. */
+    SLOT_NOT_FOUND,
+    /** The car to move is not parked in the car park. */
+    CAR_NOT_FOUND,
+    /** The slot already holds a car. */
+    SLOT_OCCUPIED,
+    /** The car's type (staff or visitor) does not match the slot's type. */
+    TYPE_MISMATCH,
+    /** A car with the same registration number is already parked in another slot. */
+    ALREADY_PARKED,
+    /** The slot is reserved for another car at that time (see ReservationBook). */
+    RESERVED
+}
@@ -0,0 +1,242 @@
+import java.time.Clock;
+import java.time.LocalDateTime;
+
+/**
+ * Purpose: Used to keep live occupancy, arrival/departure and dwell-time figures for a car park.
+ *
+ * Attached to a car park as a listener, it updates its figures as slots are
+ * added or deleted and cars are parked or removed, so none of its queries has
+ * to look at the slots:
+ * <ul>
+ *   <li>occupancy: counts of slots and occupied slots of each type;</li>
+ *   <li>arrival and departure rates: per-minute counts for the last hour in a
+ *       ring, from which any window up to 60 minutes is summed;</li>
+ *   <li>dwell time: a log-linear histogram of stay lengths in seconds (in the
+ *       style of an HDR histogram, within about 1.6% of the true value), from
+ *       which percentiles are read.</li>
+ * </ul>
+ * Every query costs a fixed amount of work however large the car park is.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class ParkingAnalytics implements CarParkListener {
+
+    private static final int WINDOW_MINUTES = 60;
+
+    // dwell histogram: 64 linear sub-buckets for each power of two of seconds
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final Clock clock;
+
+    // occupancy, by slot type (index 1 = staff, 0 = visitor); guarded by this
+    private final int[] slots = new int[2];
+    private final int[] occupied = new int[2];
+
+    // per-minute arrivals and departures for the last hour; bucket = minute % 60
+    private final int[] arrivals = new int[WINDOW_MINUTES];
+    private final int[] departures = new int[WINDOW_MINUTES];
+    private long currentMinute = Long.MIN_VALUE;
+
+    private final long[] dwellCounts = new long[(Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS];
+    private long dwellTotal;
+
+    /**
+     * Constructs the analytics for a car park, counting its current slots once,
+     * and starts listening to it.
+     *
+     * @param carPark the car park to follow
+     * @param clock   the clock giving the time of each event
+     */
+    public ParkingAnalytics(CarPark carPark, Clock clock) {
+        this.clock = clock;
+        synchronized (this) {
+            for (ParkingSlot slot : carPark.listSlots()) {
+                slots[type(slot)]++;
+                if (slot.isOccupied()) occupied[type(slot)]++;
+            }
+        }
+        carPark.addListener(this);
+    }
+
+    @Override
+    public synchronized void slotAdded(ParkingSlot slot) {
+        slots[type(slot)]++;
+        if (slot.isOccupied()) occupied[type(slot)]++;
+    }
+
+    @Override
+    public synchronized void slotDeleted(ParkingSlot slot) {
+        slots[type(slot)]--;
+    }
+
+    @Override
+    public synchronized void carParked(ParkingSlot slot, Car car) {
+        occupied[type(slot)]++;
+        arrivals[bucket(advance())]++;
+    }
+
+    @Override
+    public synchronized void carRemoved(ParkingSlot slot, Car car) {
+        occupied[type(slot)]--;
+        departures[bucket(advance())]++;
+        if (car.getParkedTime() != null) {
+            long seconds = TariffEngine.toEpochSecond(LocalDateTime.now(clock))
+                    - TariffEngine.toEpochSecond(car.getParkedTime());
+            dwellCounts[dwellBucket(Math.max(seconds, 0))]++;
+            dwellTotal++;
+        }
+    }
+
+    /**
+     * Returns the number of slots of a type.
+     *
+     * @param isStaffSlot true for staff slots, false for visitor slots
+     * @return the slot count
+     */
+    public synchronized int slotCount(boolean isStaffSlot) {
+        return slots[isStaffSlot ? 1 : 0];
+    }
+
+    /**
+     * Returns the number of occupied slots of a type.
+     *
+     * @param isStaffSlot true for staff slots, false for visitor slots
+     * @return the occupied slot count
+     */
+    public synchronized int occupiedCount(boolean isStaffSlot) {
+        return occupied[isStaffSlot ? 1 : 0];
+    }
+
+    /**
+     * Returns the number of cars parked in the last few minutes, counting the current minute.
+     *
+     * @param minutes the window length, 1 to 60
+     * @return the number of arrivals in the window
+     */
+    public synchronized int arrivals(int minutes) {
+        return sumWindow(arrivals, minutes);
+    }
+
+    /**
+     * Returns the number of cars removed in the last few minutes, counting the current minute.
+     *
+     * @param minutes the window length, 1 to 60
+     * @return the number of departures in the window
+     */
+    public synchronized int departures(int minutes) {
+        return sumWindow(departures, minutes);
+    }
+
+    /**
+     * Returns the number of stays recorded in the dwell-time histogram.
+     *
+     * @return the number of removed cars whose parked time was known
+     */
+    public synchronized long dwellCount() {
+        return dwellTotal;
+    }
+
+    /**
+     * Returns a dwell-time percentile.
+     *
+     * @param percentile the percentile, 0 to 100
+     * @return the stay length in seconds that this percentage of stays did not exceed,
+     *         or 0 if no stay has been recorded
+     */
+    public synchronized long dwellPercentile(double percentile) {
+        if (dwellTotal == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * dwellTotal));
+        long seen = 0;
+        for (int i = 0; i < dwellCounts.length; i++) {
+            seen += dwellCounts[i];
+            if (seen >= rank) return bucketHighest(i);
+        }
+        return bucketHighest(dwellCounts.length - 1);
+    }
+
+    /**
+     * Returns the type index of a slot.
+     *
+     * @param slot the slot
+     * @return 1 for a staff slot, 0 for a visitor slot
+     */
+    private static int type(ParkingSlot slot) {
+        return slot.isStaffSlot() ? 1 : 0;
+    }
+
+    /**
+     * Moves the per-minute rings on to the current minute, clearing the minutes
+     * that have passed since the last event.
+     *
+     * @return the current minute
+     */
+    private long advance() {
+        long minute = Math.floorDiv(clock.millis(), 60_000L);
+        if (minute > currentMinute) {
+            long passed = currentMinute == Long.MIN_VALUE ? WINDOW_MINUTES
+                    : Math.min(minute - currentMinute, WINDOW_MINUTES);
+            for (long m = minute - passed + 1; m <= minute; m++) {
+                arrivals[bucket(m)] = 0;
+                departures[bucket(m)] = 0;
+            }
+            currentMinute = minute;
+        }
+        return currentMinute;
+    }
+
+    /**
+     * Sums the last few minutes of a per-minute ring.
+     *
+     * @param ring    the ring
+     * @param minutes the window length, 1 to 60
+     * @return the sum
+     */
+    private int sumWindow(int[] ring, int minutes) {
+        if (minutes < 1 || minutes > WINDOW_MINUTES) {
+            throw new IllegalArgumentException("Window must be 1 to " + WINDOW_MINUTES + " minutes.");
+        }
+        long now = advance();
+        int sum = 0;
+        for (long m = now - minutes + 1; m <= now; m++) sum += ring[bucket(m)];
+        return sum;
+    }
+
+    /**
+     * Returns the ring bucket of a minute.
+     *
+     * @param minute the minute since the epoch
+     * @return the bucket index
+     */
+    private static int bucket(long minute) {
+        return (int) Math.floorMod(minute, (long) WINDOW_MINUTES);
+    }
+
+    /**
+     * Returns the dwell histogram bucket of a stay length. Values below 64 get a
+     * bucket each; above that each power of two is split into 64 equal buckets.
+     *
+     * @param seconds the stay length, not negative
+     * @return the bucket index
+     */
+    private static int dwellBucket(long seconds) {
+        if (seconds < SUB_BUCKETS) return (int) seconds;
+        int shift = 63 - Long.numberOfLeadingZeros(seconds) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (seconds >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Returns the largest stay length that falls in a dwell histogram bucket.
+     *
+     * @param bucket the bucket index
+     * @return the stay length in seconds
+     */
+    private static long bucketHighest(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long top = SUB_BUCKETS + bucket % SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
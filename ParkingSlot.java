@@ -7,21 +7,26 @@
 
 public class ParkingSlot {
     private String slotId;
+    private int slotKey;
     private boolean isStaffSlot;
     private Car parkedCar;
+    private CarPark carPark;
 
     /**
      * Constructs a new ParkingSlot with the given slot ID and type.
      *
-     * @param slotId      the unique ID of the slot (format: one uppercase letter followed by two digits, e.g., "F01")
+     * @param slotId      the unique ID of the slot (a zone letter and bay number, optionally
+     *                    after a site and level, e.g. "F01" or "S3-L2-F100"; see SlotId)
      * @param isStaffSlot true if the slot is for staff, false if it is for visitors
      * @throws IllegalArgumentException if the slot ID does not match the required format
      */
     public ParkingSlot(String slotId, boolean isStaffSlot) {
-        if (!slotId.matches("^[A-Z]\\d{2}$")) {
-            throw new IllegalArgumentException("Invalid slot ID format (e.g. F01).");
+        int key = SlotId.encode(slotId);
+        if (key < 0) {
+            throw new IllegalArgumentException("Invalid slot ID format (e.g. F01 or L2-F100).");
         }
         this.slotId = slotId;
+        this.slotKey = key;
         this.isStaffSlot = isStaffSlot;
     }
 
@@ -34,6 +39,16 @@ public class ParkingSlot {
         return slotId;
     }
 
+    /**
+     * Returns the key of this slot's ID (see SlotId). Slots sort by key in
+     * site, level, zone and bay order.
+     *
+     * @return the slot key
+     */
+    public int getSlotKey() {
+        return slotKey;
+    }
+
     /**
      * Indicates whether this slot is reserved for staff or visitor.
      *
@@ -66,16 +81,35 @@ public class ParkingSlot {
      * 
      * A car can only be parked if the slot is unoccupied and the car type
      * (staff or visitor) matches the slot type. When parked, the current time
-     * is recorded in the Car object.
+     * (by the car park's clock, see CarPark.setClock) is recorded in the Car
+     * object. If the slot belongs to a car park, the car must not already be
+     * parked in another slot of that car park, and the slot must not be
+     * reserved for another car now (see ReservationBook).
+     * The check and the park happen under this slot's lock.
      *
      * @param car the Car to park
      * @return true if the car was successfully parked, false if not
      */
     public boolean parkCar(Car car) {
+        return parkCar(car, carPark != null ? carPark.now() : java.time.LocalDateTime.now());
+    }
+
+    /**
+     * Attempts to park a car in this slot with a given parked time, e.g. when a
+     * car park is restored from disk. The same checks as parkCar(Car) apply.
+     *
+     * @param car        the Car to park
+     * @param parkedTime the time to record as the car's parked time
+     * @return true if the car was successfully parked, false if not
+     */
+    public synchronized boolean parkCar(Car car, java.time.LocalDateTime parkedTime) {
         if (isOccupied()) return false;
         if (car.isStaff() != isStaffSlot) return false; // staff/visitor mismatch
+        if (carPark != null && carPark.isReservedAgainst(slotId, car.getRegistrationNumber(), carPark.now())) return false; // booked for another car
+        if (carPark != null && !carPark.carParking(this, car)) return false; // already parked elsewhere
         this.parkedCar = car;
-        car.setParkedTime(java.time.LocalDateTime.now()); // record parked time
+        car.setParkedTime(parkedTime); // record parked time
+        if (carPark != null) carPark.carParked(this, car);
         return true;
     }
 
@@ -84,12 +118,43 @@ public class ParkingSlot {
      *
      * @return true if a car was successfully removed, false if the slot was already empty
      */
-    public boolean removeCar() {
+    public synchronized boolean removeCar() {
         if (!isOccupied()) return false;
+        Car car = parkedCar;
         this.parkedCar = null;
+        if (carPark != null) carPark.carRemoved(this, car);
         return true;
     }
 
+    /**
+     * Returns the car park this slot belongs to.
+     *
+     * @return the owning car park, or null if the slot is not in a car park
+     */
+    CarPark getCarPark() {
+        return carPark;
+    }
+
+    /**
+     * Sets the car park this slot belongs to, so that parking and removal
+     * can keep the car park's indexes up to date.
+     *
+     * @param carPark the owning car park, or null when the slot is removed from it
+     */
+    void setCarPark(CarPark carPark) {
+        this.carPark = carPark;
+    }
+
+    /**
+     * Sets the parked car directly, without any checks or car park callbacks.
+     * Used by the car park when it moves a car between slots it has locked.
+     *
+     * @param car the car now in this slot, or null to empty it
+     */
+    void setParkedCar(Car car) {
+        this.parkedCar = car;
+    }
+
     /**
      * Returns a string representation of this parking slot, including its ID,
      * type (staff or visitor), and occupancy status.
@@ -100,7 +165,7 @@ public class ParkingSlot {
     public String toString() {
         String type = isStaffSlot ? "Staff" : "Visitor";
         if (isOccupied()) {
-            return slotId + " [" + type + "] - Occupied by " + parkedCar.toString();
+            return slotId + " [" + type + "] - Occupied by " + getParkedCar().toString();
         } else {
             return slotId + " [" + type + "] - Empty";
         }
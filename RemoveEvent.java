@@ -0,0 +1,62 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Purpose: Used to record each attempt to remove a car in a Java Flight Recorder
+ * recording, for profiling a live car park in JDK Mission Control.
+ *
+ * While no recording asks for the event, creating and finishing it costs next
+ * to nothing.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+@Name("carpark.Remove")
+@Label("Remove Car")
+@Category("Car Park")
+@Description("An attempt to remove a car from the car park")
+public class RemoveEvent extends Event {
+
+    @Label("Registration Number")
+    String registrationNumber;
+
+    @Label("Slot ID")
+    @Description("The slot the car was removed from; empty if it was not parked")
+    String slotId;
+
+    @Label("Removed")
+    boolean removed;
+
+    /**
+     * Ends the event and, if a recording wants it, fills it in and commits it.
+     *
+     * @param registrationNumber the car's registration number
+     * @param slotId             the slot the car was removed from, or null if it was not parked
+     */
+    void finish(String registrationNumber, String slotId) {
+        end();
+        if (!shouldCommit() || CarPark.isUndoingBatch()) return; // not asked for: a failed batch being undone
+        this.registrationNumber = registrationNumber;
+        this.slotId = slotId;
+        this.removed = slotId != null;
+        commit();
+    }
+
+    /**
+     * Ends the event and, if a recording wants it, fills it in and commits it.
+     * For car parks that keep slots as codes (see IdCodec): the slot ID is only
+     * decoded if the event is committed.
+     *
+     * @param registrationNumber the car's registration number
+     * @param slotCode           the code of the slot the car was removed from, or -1 if it was not parked
+     */
+    void finish(String registrationNumber, int slotCode) {
+        end();
+        if (!shouldCommit()) return;
+        finish(registrationNumber, slotCode < 0 ? null : IdCodec.decodeSlotId(slotCode));
+    }
+}
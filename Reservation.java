@@ -0,0 +1,101 @@
+import java.time.LocalDateTime;
+
+/**
+ * Purpose: Used to represent a booking of one slot for one car over a period of time.
+ *
+ * The period runs from its start up to, but not including, its end, so a
+ * booking ending at 10:00 and another starting at 10:00 do not overlap.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public final class Reservation {
+    private final long id;
+    private final String slotId;
+    private final String registrationNumber;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+
+    /**
+     * Constructs a reservation.
+     *
+     * @param id                 the reservation's number, unique within its ReservationBook
+     * @param slotId             the ID of the slot booked
+     * @param registrationNumber the registration number of the car the slot is held for
+     * @param from               when the booking starts
+     * @param to                 when the booking ends (exclusive)
+     */
+    Reservation(long id, String slotId, String registrationNumber, LocalDateTime from, LocalDateTime to) {
+        this.id = id;
+        this.slotId = slotId;
+        this.registrationNumber = registrationNumber;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Returns the reservation's number.
+     *
+     * @return the number, unique within its ReservationBook
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the ID of the slot booked.
+     *
+     * @return the slot ID
+     */
+    public String getSlotId() {
+        return slotId;
+    }
+
+    /**
+     * Returns the registration number of the car the slot is held for.
+     *
+     * @return the registration number
+     */
+    public String getRegistrationNumber() {
+        return registrationNumber;
+    }
+
+    /**
+     * Returns when the booking starts.
+     *
+     * @return the start time
+     */
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    /**
+     * Returns when the booking ends.
+     *
+     * @return the end time (exclusive)
+     */
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    /**
+     * Checks whether the booking covers a point in time.
+     *
+     * @param time the time
+     * @return true if the time is at or after the start and before the end
+     */
+    public boolean isActiveAt(LocalDateTime time) {
+        return !time.isBefore(from) && time.isBefore(to);
+    }
+
+    /**
+     * Returns a string representation of this reservation.
+     *
+     * @return the number, slot, car and period
+     */
+    @Override
+    public String toString() {
+        return "#" + id + " " + slotId + " for " + registrationNumber + " " + from + " - " + to;
+    }
+}
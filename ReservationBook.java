@@ -0,0 +1,288 @@
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Purpose: Used to book slots of a car park in advance and keep other cars out of them.
+ *
+ * Each slot with bookings has a calendar: its reservations in a tree keyed by
+ * start time. Bookings of one slot never overlap, so the booking with the
+ * latest start before a time is the only one that can cover that time, and
+ * the booking with the latest start before the end of a period is the only
+ * one that can overlap the period; both are found in logarithmic time.
+ *
+ * Attached to a car park, the book is consulted whenever a car is parked or
+ * moved: a slot cannot take any car but the booked one while a reservation is
+ * active, and the car park reports RESERVED instead. Slots without bookings
+ * cost one hash lookup on that path, so the live car park does not slow down
+ * as bookings for other slots accumulate. Bookings of a slot are dropped when
+ * the slot is deleted. Bookings that have ended are dropped from a slot's
+ * calendar whenever it is booked again or a car is parked there, and from every
+ * calendar by expire, so they do not pile up while the car park runs.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class ReservationBook implements CarParkListener {
+
+    private final CarPark carPark;
+
+    // booked slots' calendars by slot ID; each calendar is guarded by itself
+    private final Map<String, TreeMap<LocalDateTime, Reservation>> calendars = new ConcurrentHashMap<>();
+    private final Map<Long, Reservation> byId = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * Constructs an empty book for a car park and attaches it, so that
+     * reservations are enforced from now on.
+     *
+     * @param carPark the car park whose slots are booked
+     */
+    public ReservationBook(CarPark carPark) {
+        this.carPark = carPark;
+        carPark.setReservations(this);
+        carPark.addListener(this);
+    }
+
+    /**
+     * Books a slot for a car over a period.
+     *
+     * @param slotId             the ID of the slot to book
+     * @param registrationNumber the registration number of the car to hold it for
+     * @param from               when the booking starts
+     * @param to                 when the booking ends (exclusive)
+     * @return the reservation, or null if no such slot exists or the slot is
+     *         already booked for part of the period
+     * @throws IllegalArgumentException if the period does not end after it starts
+     */
+    public Reservation reserve(String slotId, String registrationNumber, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) throw new IllegalArgumentException("A reservation must end after it starts.");
+        for (;;) {
+            TreeMap<LocalDateTime, Reservation> calendar = calendars.computeIfAbsent(slotId, id -> new TreeMap<>());
+            synchronized (calendar) {
+                if (calendars.get(slotId) != calendar) continue; // dropped by slotDeleted meanwhile
+                // checked under the calendar's lock, which slotDeleted takes to drop it
+                if (carPark.findSlot(slotId) == null) {
+                    if (calendar.isEmpty()) calendars.remove(slotId, calendar);
+                    return null;
+                }
+                dropEnded(calendar, carPark.now());
+                if (overlapping(calendar, from, to) != null) return null;
+                Reservation reservation = new Reservation(nextId.getAndIncrement(), slotId, registrationNumber, from, to);
+                calendar.put(from, reservation);
+                byId.put(reservation.getId(), reservation);
+                return reservation;
+            }
+        }
+    }
+
+    /**
+     * Cancels a reservation.
+     *
+     * @param id the reservation's number
+     * @return true if it was cancelled, false if there is no such reservation
+     */
+    public boolean cancel(long id) {
+        Reservation reservation = byId.remove(id);
+        if (reservation == null) return false;
+        TreeMap<LocalDateTime, Reservation> calendar = calendars.get(reservation.getSlotId());
+        if (calendar != null) {
+            synchronized (calendar) {
+                calendar.remove(reservation.getFrom(), reservation);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds a reservation by its number.
+     *
+     * @param id the reservation's number
+     * @return the reservation, or null if there is no such reservation
+     */
+    public Reservation find(long id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Returns the reservations of one slot, earliest first.
+     *
+     * @param slotId the slot ID
+     * @return the slot's reservations
+     */
+    public List<Reservation> findBySlot(String slotId) {
+        TreeMap<LocalDateTime, Reservation> calendar = calendars.get(slotId);
+        if (calendar == null) return new ArrayList<>();
+        synchronized (calendar) {
+            return new ArrayList<>(calendar.values());
+        }
+    }
+
+    /**
+     * Returns the reservations held for one car, earliest first.
+     * Looks at every reservation.
+     *
+     * @param registrationNumber the registration number
+     * @return the car's reservations
+     */
+    public List<Reservation> findByRegistration(String registrationNumber) {
+        List<Reservation> found = new ArrayList<>();
+        for (Reservation reservation : byId.values()) {
+            if (reservation.getRegistrationNumber().equals(registrationNumber)) found.add(reservation);
+        }
+        found.sort(Comparator.comparing(Reservation::getFrom));
+        return found;
+    }
+
+    /**
+     * Returns the reservation of a slot that covers a point in time.
+     *
+     * @param slotId the slot ID
+     * @param time   the time
+     * @return the active reservation, or null if the slot is not booked then
+     */
+    public Reservation findActive(String slotId, LocalDateTime time) {
+        TreeMap<LocalDateTime, Reservation> calendar = calendars.get(slotId);
+        if (calendar == null) return null;
+        synchronized (calendar) {
+            Map.Entry<LocalDateTime, Reservation> latest = calendar.floorEntry(time);
+            return latest != null && latest.getValue().isActiveAt(time) ? latest.getValue() : null;
+        }
+    }
+
+    /**
+     * Finds the slots of a type that are free for a whole period: not booked
+     * for any part of it and, if the period has already started, empty now.
+     * Every slot of the car park is looked at, and each slot with bookings is
+     * checked in logarithmic time in its number of bookings, so this takes time
+     * linear in the number of slots; on a car park shared with other threads it
+     * sees each slot as it is when reached. Run it off the event thread.
+     *
+     * @param isStaffSlot true for staff slots, false for visitor slots
+     * @param from        when the period starts
+     * @param to          when the period ends (exclusive)
+     * @return the free slots, in slot ID order
+     */
+    public List<ParkingSlot> findFreeSlots(boolean isStaffSlot, LocalDateTime from, LocalDateTime to) {
+        boolean started = !from.isAfter(carPark.now());
+        List<ParkingSlot> free = new ArrayList<>();
+        for (ParkingSlot slot : carPark.listSlots()) {
+            if (slot.isStaffSlot() != isStaffSlot) continue;
+            if (started && slot.isOccupied()) continue;
+            TreeMap<LocalDateTime, Reservation> calendar = calendars.get(slot.getSlotId());
+            if (calendar != null) {
+                synchronized (calendar) {
+                    if (overlapping(calendar, from, to) != null) continue;
+                }
+            }
+            free.add(slot);
+        }
+        free.sort(Comparator.comparingInt(ParkingSlot::getSlotKey));
+        return free;
+    }
+
+    /**
+     * Drops the reservations that ended at or before a time.
+     *
+     * @param time the time
+     * @return the number of reservations dropped
+     */
+    public int expire(LocalDateTime time) {
+        int dropped = 0;
+        for (Map.Entry<String, TreeMap<LocalDateTime, Reservation>> entry : calendars.entrySet()) {
+            TreeMap<LocalDateTime, Reservation> calendar = entry.getValue();
+            synchronized (calendar) {
+                dropped += dropEnded(calendar, time);
+                if (calendar.isEmpty()) calendars.remove(entry.getKey(), calendar);
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Returns the number of reservations held.
+     *
+     * @return the number of reservations
+     */
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Drops the bookings of a deleted slot.
+     *
+     * @param slot the slot that was deleted
+     */
+    @Override
+    public void slotDeleted(ParkingSlot slot) {
+        TreeMap<LocalDateTime, Reservation> calendar = calendars.get(slot.getSlotId());
+        if (calendar == null) return;
+        synchronized (calendar) {
+            // removed under its lock, so a reserve that has it locked finishes first
+            calendars.remove(slot.getSlotId(), calendar);
+            for (Reservation reservation : calendar.values()) byId.remove(reservation.getId());
+        }
+    }
+
+    /**
+     * Checks whether a slot is held for another car at a point in time.
+     * Called by the car park every time a car is parked or moved.
+     *
+     * @param slotId             the slot ID
+     * @param registrationNumber the registration number of the car being parked
+     * @param time               the time it is parked
+     * @return true if a reservation for a different car is active then
+     */
+    boolean blocks(String slotId, String registrationNumber, LocalDateTime time) {
+        TreeMap<LocalDateTime, Reservation> calendar = calendars.get(slotId);
+        if (calendar == null) return false;
+        synchronized (calendar) {
+            // the car is parked now, so bookings that ended before it never matter again
+            dropEnded(calendar, time);
+            if (calendar.isEmpty()) {
+                // removed under its lock, so a reserve waiting for it looks the calendar up again
+                calendars.remove(slotId, calendar);
+                return false;
+            }
+            Map.Entry<LocalDateTime, Reservation> latest = calendar.floorEntry(time);
+            return latest != null && latest.getValue().isActiveAt(time)
+                    && !latest.getValue().getRegistrationNumber().equals(registrationNumber);
+        }
+    }
+
+    /**
+     * Drops the bookings of a calendar that ended at or before a time. Bookings
+     * do not overlap, so they end in the order they start and only the front of
+     * the calendar is looked at.
+     *
+     * @param calendar the slot's calendar, locked by the caller
+     * @param time     the time
+     * @return the number of reservations dropped
+     */
+    private int dropEnded(TreeMap<LocalDateTime, Reservation> calendar, LocalDateTime time) {
+        int dropped = 0;
+        Map.Entry<LocalDateTime, Reservation> first;
+        while ((first = calendar.firstEntry()) != null && !first.getValue().getTo().isAfter(time)) {
+            calendar.pollFirstEntry();
+            byId.remove(first.getValue().getId());
+            dropped++;
+        }
+        return dropped;
+    }
+
+    /**
+     * Finds the booking in a calendar that overlaps a period.
+     *
+     * @param calendar the slot's calendar, locked by the caller
+     * @param from     when the period starts
+     * @param to       when the period ends (exclusive)
+     * @return the overlapping reservation, or null if there is none
+     */
+    private static Reservation overlapping(TreeMap<LocalDateTime, Reservation> calendar,
+                                           LocalDateTime from, LocalDateTime to) {
+        Map.Entry<LocalDateTime, Reservation> latest = calendar.lowerEntry(to);
+        return latest != null && latest.getValue().getTo().isAfter(from) ? latest.getValue() : null;
+    }
+}
@@ -0,0 +1,464 @@
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Purpose: Used to keep the history of finished parking sessions.
+ *
+ * Attached to a car park as a listener, it appends one session (registration,
+ * owner, slot, entry time, exit time and fee) every time a car is removed.
+ * Sessions are kept in one partition per day of exit. Each partition stores its
+ * sessions column by column in primitive arrays, with registrations and slots
+ * encoded as integers (see IdCodec and SlotId) and owner names stored once per
+ * partition, so a session takes 37 bytes across the columns. The columns double
+ * as they fill, so up to as much again may be spare capacity, and the
+ * registration and slot indexes take 16 to 32 bytes for each car and slot seen
+ * that day. Partitions older than the retention period are dropped, which keeps
+ * memory bounded however many sessions are recorded.
+ *
+ * Within a partition, sessions with the same registration or slot are chained
+ * together, so looking them up only visits matching sessions. Sessions are
+ * appended in exit time order, so a time range is found by binary search.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class SessionHistory implements CarParkListener {
+
+    private final TariffEngine tariff;
+    private final int retentionDays;
+    private final Clock clock;
+
+    // partitions by day of exit (days since the epoch, read as UTC); guarded by this
+    private final TreeMap<Long, DayPartition> partitions = new TreeMap<>();
+    private long sessionCount;
+
+    /**
+     * Constructs an empty history.
+     *
+     * @param tariff        the tariff engine used to price each session
+     * @param retentionDays how many days of sessions to keep, counting the newest day
+     */
+    public SessionHistory(TariffEngine tariff, int retentionDays) {
+        this(tariff, retentionDays, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructs an empty history that takes exit times from a given clock.
+     *
+     * @param tariff        the tariff engine used to price each session
+     * @param retentionDays how many days of sessions to keep, counting the newest day
+     * @param clock         the clock giving the exit time of removed cars
+     */
+    public SessionHistory(TariffEngine tariff, int retentionDays, Clock clock) {
+        if (retentionDays < 1) throw new IllegalArgumentException("Retention must be at least one day.");
+        this.tariff = tariff;
+        this.retentionDays = retentionDays;
+        this.clock = clock;
+    }
+
+    /**
+     * Records the session of a car that has just been removed, ending now.
+     *
+     * @param slot the slot the car was parked in
+     * @param car  the car
+     */
+    @Override
+    public void carRemoved(ParkingSlot slot, Car car) {
+        record(slot.getSlotId(), car, LocalDateTime.now(clock));
+    }
+
+    /**
+     * Appends a finished session. A session that left before the retention
+     * period of the newest day held would be dropped straight away, so it is
+     * not recorded.
+     *
+     * @param slotId   the slot the car was parked in
+     * @param car      the car, holding its registration, owner, type and parked time
+     * @param exitTime the time the car left
+     * @return true if the session was recorded, false if it is too old to keep
+     */
+    public synchronized boolean record(String slotId, Car car, LocalDateTime exitTime) {
+        long exit = TariffEngine.toEpochSecond(exitTime);
+        long entry = car.getParkedTime() != null ? TariffEngine.toEpochSecond(car.getParkedTime()) : exit;
+        int fee = car.getParkedTime() != null ? tariff.tariff(car.isStaff()).fee(entry, exit) : 0;
+
+        long day = Math.floorDiv(exit, 86_400L);
+        if (!partitions.isEmpty() && day <= partitions.lastKey() - retentionDays) return false;
+        DayPartition partition = partitions.get(day);
+        if (partition == null) {
+            partition = new DayPartition();
+            partitions.put(day, partition);
+            while (partitions.firstKey() <= partitions.lastKey() - retentionDays) {
+                sessionCount -= partitions.pollFirstEntry().getValue().size;
+            }
+        }
+        partition.append(IdCodec.encodeRegistration(car.getRegistrationNumber()), car.getOwner(),
+                SlotId.encode(slotId), car.isStaff(), entry, exit, fee);
+        sessionCount++;
+        return true;
+    }
+
+    /**
+     * Returns the number of sessions held.
+     *
+     * @return the number of sessions in the retained partitions
+     */
+    public synchronized long size() {
+        return sessionCount;
+    }
+
+    /**
+     * Returns the days that have sessions, oldest first.
+     *
+     * @return the days held
+     */
+    public synchronized List<LocalDate> days() {
+        List<LocalDate> days = new ArrayList<>();
+        for (long day : partitions.keySet()) days.add(LocalDate.ofEpochDay(day));
+        return days;
+    }
+
+    /**
+     * Finds the sessions of one car, oldest first.
+     *
+     * @param registrationNumber the registration number
+     * @return the car's sessions
+     */
+    public synchronized List<Session> findByRegistration(String registrationNumber) {
+        int registration = IdCodec.encodeRegistration(registrationNumber);
+        List<Session> found = new ArrayList<>();
+        if (registration < 0) return found;
+        for (DayPartition partition : partitions.values()) {
+            int start = found.size();
+            for (int i = partition.lastByRegistration.get(registration); i >= 0;
+                    i = partition.previousByRegistration[i]) {
+                found.add(partition.session(i));
+            }
+            Collections.reverse(found.subList(start, found.size()));
+        }
+        return found;
+    }
+
+    /**
+     * Finds the sessions in one slot, oldest first.
+     *
+     * @param slotId the slot ID
+     * @return the slot's sessions
+     */
+    public synchronized List<Session> findBySlot(String slotId) {
+        int slot = SlotId.encode(slotId);
+        List<Session> found = new ArrayList<>();
+        if (slot < 0) return found;
+        for (DayPartition partition : partitions.values()) {
+            int start = found.size();
+            for (int i = partition.lastBySlot.get(slot); i >= 0; i = partition.previousBySlot[i]) {
+                found.add(partition.session(i));
+            }
+            Collections.reverse(found.subList(start, found.size()));
+        }
+        return found;
+    }
+
+    /**
+     * Finds the sessions that overlap a period: those that started before it
+     * ended and ended at or after it started. Sessions are listed by exit time.
+     *
+     * @param from the start of the period
+     * @param to   the end of the period
+     * @return the matching sessions
+     */
+    public synchronized List<Session> findBetween(LocalDateTime from, LocalDateTime to) {
+        long fromSecond = TariffEngine.toEpochSecond(from);
+        long toSecond = TariffEngine.toEpochSecond(to);
+        List<Session> found = new ArrayList<>();
+        // only sessions that ended on or after the start day can overlap
+        for (DayPartition partition : partitions.tailMap(Math.floorDiv(fromSecond, 86_400L), true).values()) {
+            if (partition.minEntry > toSecond) continue;
+            for (int i = partition.firstExitAtOrAfter(fromSecond); i < partition.size; i++) {
+                if (partition.entry[i] <= toSecond && partition.exit(i) >= fromSecond) {
+                    found.add(partition.session(i));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The sessions that ended on one day, stored column by column.
+     */
+    private static class DayPartition {
+        private static final int INITIAL_CAPACITY = 256;
+
+        private int size;
+        private int[] registration = new int[INITIAL_CAPACITY];
+        private int[] owner = new int[INITIAL_CAPACITY];
+        private int[] slot = new int[INITIAL_CAPACITY]; // slot keys (see SlotId)
+        private boolean[] staff = new boolean[INITIAL_CAPACITY];
+        private long[] entry = new long[INITIAL_CAPACITY];
+        private int[] duration = new int[INITIAL_CAPACITY]; // exit - entry, in seconds
+        private int[] fee = new int[INITIAL_CAPACITY];
+
+        // the previous session with the same registration / slot, or -1
+        private int[] previousByRegistration = new int[INITIAL_CAPACITY];
+        private int[] previousBySlot = new int[INITIAL_CAPACITY];
+        private final LastRowTable lastByRegistration = new LastRowTable();
+        private final LastRowTable lastBySlot = new LastRowTable();
+
+        // owner names, each stored once
+        private final List<String> owners = new ArrayList<>();
+        private final Map<String, Integer> ownerIds = new HashMap<>();
+
+        private long minEntry = Long.MAX_VALUE;
+        private long lastExit = Long.MIN_VALUE;
+        private boolean exitOrdered = true;
+
+        /**
+         * Appends a session, linking it into the registration and slot chains.
+         */
+        void append(int registrationCode, String ownerName, int slotKey, boolean isStaff,
+                    long entrySecond, long exitSecond, int amount) {
+            if (size == entry.length) grow();
+            registration[size] = registrationCode;
+            owner[size] = ownerIds.computeIfAbsent(ownerName, name -> {
+                owners.add(name);
+                return owners.size() - 1;
+            });
+            slot[size] = slotKey;
+            staff[size] = isStaff;
+            entry[size] = entrySecond;
+            duration[size] = (int) Math.min(exitSecond - entrySecond, Integer.MAX_VALUE);
+            fee[size] = amount;
+
+            previousByRegistration[size] = registrationCode >= 0
+                    ? lastByRegistration.put(registrationCode, size) : -1;
+            previousBySlot[size] = slotKey >= 0 ? lastBySlot.put(slotKey, size) : -1;
+
+            minEntry = Math.min(minEntry, entrySecond);
+            if (exitSecond < lastExit) exitOrdered = false; // clock went back; range queries scan instead
+            lastExit = Math.max(lastExit, exitSecond);
+            size++;
+        }
+
+        /**
+         * Returns the exit time of a row, in seconds since the epoch.
+         */
+        long exit(int row) {
+            return entry[row] + duration[row];
+        }
+
+        /**
+         * Returns the first row whose exit time is at or after a time, or 0 if
+         * the rows are not in exit order.
+         */
+        int firstExitAtOrAfter(long second) {
+            if (!exitOrdered) return 0;
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (exit(mid) < second) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+
+        /**
+         * Builds the Session for a row.
+         */
+        Session session(int row) {
+            return new Session(IdCodec.decodeRegistration(registration[row]), owners.get(owner[row]),
+                    slot[row] >= 0 ? SlotId.decode(slot[row]) : null, staff[row],
+                    LocalDateTime.ofEpochSecond(entry[row], 0, ZoneOffset.UTC),
+                    LocalDateTime.ofEpochSecond(exit(row), 0, ZoneOffset.UTC), fee[row]);
+        }
+
+        /**
+         * Doubles the capacity of every column.
+         */
+        private void grow() {
+            int capacity = entry.length * 2;
+            registration = Arrays.copyOf(registration, capacity);
+            owner = Arrays.copyOf(owner, capacity);
+            slot = Arrays.copyOf(slot, capacity);
+            staff = Arrays.copyOf(staff, capacity);
+            entry = Arrays.copyOf(entry, capacity);
+            duration = Arrays.copyOf(duration, capacity);
+            fee = Arrays.copyOf(fee, capacity);
+            previousByRegistration = Arrays.copyOf(previousByRegistration, capacity);
+            previousBySlot = Arrays.copyOf(previousBySlot, capacity);
+        }
+    }
+
+    /**
+     * An open-addressing table from a registration code or slot key to the last
+     * row that holds it. Keys are stored as key + 1 so that 0 marks an empty
+     * bucket. Nothing is ever removed, as a partition is only dropped whole.
+     */
+    private static class LastRowTable {
+        private int[] keys = new int[64];
+        private int[] rows = new int[64];
+        private int count;
+
+        /**
+         * Returns the last row recorded for a key, or -1 if there is none.
+         */
+        int get(int key) {
+            int mask = keys.length - 1;
+            for (int i = bucket(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key + 1) return rows[i];
+            }
+            return -1;
+        }
+
+        /**
+         * Records the last row of a key, growing the table when it is half full.
+         * Returns the row recorded before, or -1 if there was none.
+         */
+        int put(int key, int row) {
+            if ((count + 1) * 2 > keys.length) grow();
+            int mask = keys.length - 1;
+            int i = bucket(key, mask);
+            for (; keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key + 1) {
+                    int previous = rows[i];
+                    rows[i] = row;
+                    return previous;
+                }
+            }
+            keys[i] = key + 1;
+            rows[i] = row;
+            count++;
+            return -1;
+        }
+
+        /**
+         * Doubles the table, placing every key again.
+         */
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldRows = rows;
+            keys = new int[oldKeys.length * 2];
+            rows = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == 0) continue;
+                int i = bucket(oldKeys[j] - 1, mask);
+                while (keys[i] != 0) i = (i + 1) & mask;
+                keys[i] = oldKeys[j];
+                rows[i] = oldRows[j];
+            }
+        }
+
+        /**
+         * Returns the home bucket of a key.
+         */
+        private static int bucket(int key, int mask) {
+            return (key * 0x9E3779B9 >>> 7) & mask;
+        }
+    }
+
+    /**
+     * One finished parking session, as returned by the queries.
+     */
+    public static class Session {
+        private final String registrationNumber;
+        private final String owner;
+        private final String slotId;
+        private final boolean isStaff;
+        private final LocalDateTime entryTime;
+        private final LocalDateTime exitTime;
+        private final int fee;
+
+        /**
+         * Constructs a session.
+         */
+        Session(String registrationNumber, String owner, String slotId, boolean isStaff,
+                LocalDateTime entryTime, LocalDateTime exitTime, int fee) {
+            this.registrationNumber = registrationNumber;
+            this.owner = owner;
+            this.slotId = slotId;
+            this.isStaff = isStaff;
+            this.entryTime = entryTime;
+            this.exitTime = exitTime;
+            this.fee = fee;
+        }
+
+        /**
+         * Returns the registration number of the car.
+         *
+         * @return the registration number
+         */
+        public String getRegistrationNumber() {
+            return registrationNumber;
+        }
+
+        /**
+         * Returns the name of the car's owner.
+         *
+         * @return the owner's name
+         */
+        public String getOwner() {
+            return owner;
+        }
+
+        /**
+         * Returns the slot the car was parked in.
+         *
+         * @return the slot ID
+         */
+        public String getSlotId() {
+            return slotId;
+        }
+
+        /**
+         * Indicates whether the car belongs to a staff member.
+         *
+         * @return true for a staff car
+         */
+        public boolean isStaff() {
+            return isStaff;
+        }
+
+        /**
+         * Returns the time the car was parked, or its exit time if that was not known.
+         *
+         * @return the entry time
+         */
+        public LocalDateTime getEntryTime() {
+            return entryTime;
+        }
+
+        /**
+         * Returns the time the car was removed.
+         *
+         * @return the exit time
+         */
+        public LocalDateTime getExitTime() {
+            return exitTime;
+        }
+
+        /**
+         * Returns the fee charged for the session.
+         *
+         * @return the fee in dollars
+         */
+        public int getFee() {
+            return fee;
+        }
+
+        /**
+         * Returns a one-line description of the session.
+         *
+         * @return the registration, owner, slot, times and fee
+         */
+        @Override
+        public String toString() {
+            return registrationNumber + " (" + owner + ") " + slotId + " " + entryTime + " - " + exitTime
+                    + " $" + fee;
+        }
+    }
+}
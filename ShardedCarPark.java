@@ -0,0 +1,593 @@
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Purpose: Used to represent a car park made of several independent parts
+ * (shards), e.g. one per level or per site, that is used as a single car park.
+ *
+ * Each slot belongs to the shard named by its shard key, by default its zone
+ * (see SlotId.zoneName), so zone "B" holds B01, B02 and so on and zone
+ * "S2-L1-B" holds S2-L1-B01, S2-L1-B100 and so on. Every shard is
+ * a thread-safe car park of its own, created when its first slot is added;
+ * operations on one slot or car only touch that slot's shard, so work on
+ * different shards never waits on a shared lock. A directory of parked cars
+ * routes findCar and removeCar straight to the right shard, and keeps a car
+ * from being parked in two shards at once.
+ *
+ * Queries that cover every shard (findSlots, findCars, query and
+ * deleteAllUnoccupiedSlots) run on the shards in parallel on a fork-join pool,
+ * so they scale with the number of cores. Listeners registered here hear of
+ * changes in every shard; a car moved between shards is reported as removed
+ * from one slot and parked in the other.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class ShardedCarPark extends CarPark {
+
+    private final Function<String, String> shardKey;
+    private final ForkJoinPool pool;
+
+    /**
+     * The shards, by shard key, in key order.
+     */
+    private final ConcurrentSkipListMap<String, Shard> shards = new ConcurrentSkipListMap<>();
+
+    /**
+     * The shard each parked car is in, by registration number.
+     * A shard claims a registration number here before it parks the car.
+     */
+    private final ConcurrentHashMap<String, Shard> directory = new ConcurrentHashMap<>();
+
+    /**
+     * Passes the changes made in every shard on to this car park's listeners.
+     */
+    private final CarParkListener forwarder = new CarParkListener() {
+        @Override
+        public void slotAdded(ParkingSlot slot) {
+            fireSlotAdded(slot);
+        }
+
+        @Override
+        public void slotDeleted(ParkingSlot slot) {
+            fireSlotDeleted(slot);
+        }
+
+        @Override
+        public void carParked(ParkingSlot slot, Car car) {
+            fireCarParked(slot, car);
+        }
+
+        @Override
+        public void carRemoved(ParkingSlot slot, Car car) {
+            fireCarRemoved(slot, car);
+        }
+
+        @Override
+        public void carMoved(ParkingSlot from, ParkingSlot to, Car car) {
+            fireCarMoved(from, to, car);
+        }
+    };
+
+    /**
+     * Constructs an empty car park sharded by the zone of the slot ID,
+     * running cross-shard queries on the common fork-join pool.
+     */
+    public ShardedCarPark() {
+        this(ShardedCarPark::zoneOf, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs an empty sharded car park.
+     *
+     * @param shardKey gives the shard a slot belongs to from its slot ID
+     * @param pool     the pool that runs cross-shard queries
+     */
+    public ShardedCarPark(Function<String, String> shardKey, ForkJoinPool pool) {
+        super(Collections.emptyMap(), Collections.emptyMap(), Collections.emptySet(), Collections.emptySet());
+        this.shardKey = shardKey;
+        this.pool = pool;
+    }
+
+    /**
+     * Returns true: this car park may be shared by several threads.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    /**
+     * Returns the shard keys in use, in order.
+     *
+     * @return the shard keys
+     */
+    public Set<String> getShardKeys() {
+        return Collections.unmodifiableSet(shards.keySet());
+    }
+
+    /**
+     * Returns one shard.
+     *
+     * @param key the shard key, e.g. "B"
+     * @return the shard, or null if no slot has had that key
+     */
+    public CarPark getShard(String key) {
+        return shards.get(key);
+    }
+
+    /**
+     * Adds a new parking slot to the shard its ID belongs to, creating the shard if needed.
+     *
+     * @param slot the ParkingSlot to add
+     * @return true if the slot was successfully added, false if a slot with the same ID
+     *         already exists or its car is already parked elsewhere
+     */
+    @Override
+    public boolean addSlot(ParkingSlot slot) {
+        return shards.computeIfAbsent(shardKey.apply(slot.getSlotId()), key -> new Shard()).addSlot(slot);
+    }
+
+    /**
+     * Deletes a parking slot from the car park if it exists and is unoccupied.
+     *
+     * @param slotId the ID of the slot to delete
+     * @return true if the slot was successfully deleted, false if the slot does not exist or is currently occupied
+     */
+    @Override
+    public boolean deleteSlot(String slotId) {
+        Shard shard = shardOf(slotId);
+        if (shard != null) return shard.deleteSlot(slotId);
+        record(CarParkMetrics.Operation.DELETE_SLOT, 0, CarParkMetrics.Failure.SLOT_NOT_FOUND);
+        return false;
+    }
+
+    /**
+     * Deletes all unoccupied parking slots, in every shard at once.
+     * Occupied slots remain untouched.
+     */
+    @Override
+    public void deleteAllUnoccupiedSlots() {
+        query(shard -> {
+            shard.deleteAllUnoccupiedSlots();
+            return null;
+        }, (a, b) -> null);
+    }
+
+    /**
+     * Finds a parking slot by its ID.
+     *
+     * @param slotId the ID of the slot to find
+     * @return the ParkingSlot with the given ID, or null if no such slot exists
+     */
+    @Override
+    public ParkingSlot findSlot(String slotId) {
+        Shard shard = shardOf(slotId);
+        if (shard != null) return shard.findSlot(slotId);
+        count(CarParkMetrics.Operation.FIND_SLOT);
+        return null;
+    }
+
+    /**
+     * Finds the parking slot where a car with the given registration number is parked.
+     *
+     * @param registrationNumber the registration number of the car
+     * @return the ParkingSlot containing the car, or null if the car is not found in any slot
+     */
+    @Override
+    public ParkingSlot findCar(String registrationNumber) {
+        Shard shard = directory.get(registrationNumber);
+        if (shard != null) return shard.findCar(registrationNumber);
+        count(CarParkMetrics.Operation.FIND_CAR);
+        return null;
+    }
+
+    /**
+     * Parks a car in the slot with the given ID, recording a given parked time.
+     *
+     * @param slotId     the ID of the slot to park in
+     * @param car        the Car to park
+     * @param parkedTime the time the car was parked
+     * @return PARKED on success, otherwise the reason the car could not be parked
+     */
+    @Override
+    public ParkResult parkCar(String slotId, Car car, LocalDateTime parkedTime) {
+        Shard shard = shardOf(slotId);
+        if (shard == null) {
+            record(CarParkMetrics.Operation.PARK, 0, CarParkMetrics.Failure.SLOT_NOT_FOUND);
+            return ParkResult.SLOT_NOT_FOUND;
+        }
+        Shard owner = directory.get(car.getRegistrationNumber());
+        if (owner != null && owner != shard && shard.findSlot(slotId) != null) {
+            record(CarParkMetrics.Operation.PARK, 0, CarParkMetrics.Failure.ALREADY_PARKED);
+            return ParkResult.ALREADY_PARKED;
+        }
+        return shard.parkCar(slotId, car, parkedTime);
+    }
+
+    /**
+     * Removes a car from the car park by its registration number.
+     *
+     * @param registrationNumber the registration number of the car to remove
+     * @return true if the car was successfully removed, false if the car was not found
+     */
+    @Override
+    public boolean removeCar(String registrationNumber) {
+        Shard shard;
+        while ((shard = directory.get(registrationNumber)) != null) {
+            if (shard.removeCar(registrationNumber)) return true;
+            // the car was moved to another shard while we were looking; look again
+            if (directory.get(registrationNumber) == shard) return false;
+        }
+        record(CarParkMetrics.Operation.REMOVE, 0, CarParkMetrics.Failure.CAR_NOT_FOUND);
+        return false;
+    }
+
+    /**
+     * Moves a parked car to another slot, keeping its original parked time.
+     * Within a shard this is the shard's own move. Between shards, both slots
+     * are locked (in slot ID order) while the car is taken out of one and
+     * parked in the other, and the directory is switched to the new shard
+     * first, so no other caller can park the car meanwhile.
+     *
+     * @param registrationNumber the registration number of the car to move
+     * @param targetSlotId       the ID of the slot to move it to
+     * @return PARKED on success, otherwise the reason the car could not be moved
+     */
+    @Override
+    public ParkResult moveCar(String registrationNumber, String targetSlotId) {
+        long start = startTiming();
+        ParkResult result = tryMoveCar(registrationNumber, targetSlotId);
+        record(CarParkMetrics.Operation.MOVE, start, CarParkMetrics.Failure.of(result));
+        return result;
+    }
+
+    /**
+     * Moves a parked car to another slot, as moveCar.
+     *
+     * @param registrationNumber the registration number of the car to move
+     * @param targetSlotId       the ID of the slot to move it to
+     * @return PARKED on success, otherwise the reason the car could not be moved
+     */
+    private ParkResult tryMoveCar(String registrationNumber, String targetSlotId) {
+        for (;;) {
+            Shard to = shardOf(targetSlotId);
+            ParkingSlot target = to == null ? null : to.findSlot(targetSlotId);
+            if (target == null) return ParkResult.SLOT_NOT_FOUND;
+            Shard from = directory.get(registrationNumber);
+            ParkingSlot source = from == null ? null : from.findCar(registrationNumber);
+            if (source == null) return ParkResult.CAR_NOT_FOUND;
+            if (from == to) return to.moveCar(registrationNumber, targetSlotId);
+
+            boolean sourceFirst = source.getSlotKey() < target.getSlotKey();
+            synchronized (sourceFirst ? source : target) {
+                synchronized (sourceFirst ? target : source) {
+                    Car car = source.getParkedCar();
+                    if (car == null || !car.getRegistrationNumber().equals(registrationNumber)
+                            || source.getCarPark() != from) {
+                        if (car == null && from.findCar(registrationNumber) == source) {
+                            return ParkResult.CAR_NOT_FOUND; // being removed by a batch
+                        }
+                        continue; // the car was moved or removed meanwhile; look again
+                    }
+                    if (target.getCarPark() != to) return ParkResult.SLOT_NOT_FOUND;
+                    if (target.isOccupied()) return ParkResult.SLOT_OCCUPIED;
+                    if (car.isStaff() != target.isStaffSlot()) return ParkResult.TYPE_MISMATCH;
+                    if (isReservedAgainst(targetSlotId, registrationNumber, now())) return ParkResult.RESERVED;
+                    if (!directory.replace(registrationNumber, from, to)) continue;
+                    LocalDateTime parkedTime = car.getParkedTime();
+                    source.removeCar();
+                    target.parkCar(car, parkedTime); // cannot fail: both slots are locked and checked
+                    return ParkResult.PARKED;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a free slot of the given type, from the first shard (in key order) that has one.
+     *
+     * @param isStaffSlot true to look for a staff slot, false for a visitor slot
+     * @return an unoccupied ParkingSlot of that type, or null if every such slot is taken
+     */
+    @Override
+    public ParkingSlot findFreeSlot(boolean isStaffSlot) {
+        for (Shard shard : shards.values()) {
+            ParkingSlot slot = shard.findFreeSlot(isStaffSlot);
+            if (slot != null) return slot;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of free slots of the given type, over every shard.
+     *
+     * @param isStaffSlot true to count staff slots, false to count visitor slots
+     * @return the number of unoccupied slots of that type
+     */
+    @Override
+    public int countFreeSlots(boolean isStaffSlot) {
+        int count = 0;
+        for (Shard shard : shards.values()) count += shard.countFreeSlots(isStaffSlot);
+        return count;
+    }
+
+    /**
+     * Parks a car in a free slot matching its type, trying the shards in key order.
+     *
+     * @param car the Car to park
+     * @return the ParkingSlot the car was parked in, or null if the car is already
+     *         parked or there is no free slot of the right type
+     */
+    @Override
+    public ParkingSlot parkCarAnywhere(Car car) {
+        for (Shard shard : shards.values()) {
+            if (directory.containsKey(car.getRegistrationNumber())) return null;
+            if (shard.countFreeSlots(car.isStaff()) == 0) continue;
+            ParkingSlot slot = shard.parkCarAnywhere(car);
+            if (slot != null) return slot;
+        }
+        record(CarParkMetrics.Operation.PARK, 0, CarParkMetrics.Failure.NO_FREE_SLOT);
+        return null;
+    }
+
+    /**
+     * Returns every slot in the car park, shard by shard in key order. The
+     * collection is a live view over the shards, like the slots of a single car park.
+     *
+     * @return a Collection of ParkingSlot objects
+     */
+    @Override
+    public Collection<ParkingSlot> listSlots() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<ParkingSlot> iterator() {
+                Iterator<Shard> shardIterator = shards.values().iterator();
+                return new Iterator<>() {
+                    private Iterator<ParkingSlot> slots = Collections.emptyIterator();
+
+                    @Override
+                    public boolean hasNext() {
+                        while (!slots.hasNext() && shardIterator.hasNext()) {
+                            slots = shardIterator.next().listSlots().iterator();
+                        }
+                        return slots.hasNext();
+                    }
+
+                    @Override
+                    public ParkingSlot next() {
+                        if (!hasNext()) throw new NoSuchElementException();
+                        return slots.next();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (Shard shard : shards.values()) size += shard.listSlots().size();
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Copies the parked time and type of every parked car into arrays, shard by shard.
+     *
+     * @param startEpochSeconds receives the parked times
+     * @param isStaff           receives whether each car belongs to staff
+     * @return the number of parked cars with a recorded parked time; if more
+     *         than the arrays hold, only the first that fit were copied
+     */
+    @Override
+    public int collectParkedTimes(long[] startEpochSeconds, boolean[] isStaff) {
+        int count = 0;
+        for (Shard shard : shards.values()) {
+            // once the arrays are full the shards are still asked, with no room, to count their cars
+            long[] times = new long[Math.max(startEpochSeconds.length - count, 0)];
+            boolean[] staff = new boolean[times.length];
+            int found = shard.collectParkedTimes(times, staff);
+            int copied = Math.min(found, times.length);
+            System.arraycopy(times, 0, startEpochSeconds, count, copied);
+            System.arraycopy(staff, 0, isStaff, count, copied);
+            count += found;
+        }
+        return count;
+    }
+
+    /**
+     * Finds every slot that matches a condition, searching the shards in parallel.
+     *
+     * @param condition the condition a slot must meet
+     * @return the matching slots, in slot ID order
+     */
+    public List<ParkingSlot> findSlots(Predicate<ParkingSlot> condition) {
+        List<ParkingSlot> found = query(shard -> {
+            List<ParkingSlot> matches = new ArrayList<>();
+            for (ParkingSlot slot : shard.listSlots()) {
+                if (condition.test(slot)) matches.add(slot);
+            }
+            return matches;
+        }, (a, b) -> {
+            a.addAll(b);
+            return a;
+        });
+        found.sort(Comparator.comparingInt(ParkingSlot::getSlotKey));
+        return found;
+    }
+
+    /**
+     * Finds the slots of every parked car that matches a condition, e.g. all the
+     * cars of one owner, searching the shards in parallel.
+     *
+     * @param condition the condition a car must meet
+     * @return the slots holding matching cars, in slot ID order
+     */
+    public List<ParkingSlot> findCars(Predicate<Car> condition) {
+        return findSlots(slot -> {
+            Car car = slot.getParkedCar();
+            return car != null && condition.test(car);
+        });
+    }
+
+    /**
+     * Runs a query on every shard in parallel and combines the answers.
+     *
+     * @param perShard the query to run on one shard
+     * @param combine  combines two answers; called in shard key order
+     * @param <R>      the type of answer
+     * @return the combined answer, or null if there are no shards
+     */
+    public <R> R query(Function<CarPark, R> perShard, BinaryOperator<R> combine) {
+        List<Shard> list = new ArrayList<>(shards.values());
+        if (list.isEmpty()) return null;
+        if (list.size() == 1) return perShard.apply(list.get(0));
+        return pool.invoke(new ShardQuery<>(list, 0, list.size(), perShard, combine));
+    }
+
+    /**
+     * Replaces the clock of this car park and of every shard.
+     *
+     * @param clock the new clock
+     */
+    @Override
+    public void setClock(Clock clock) {
+        super.setClock(clock);
+        for (Shard shard : shards.values()) shard.setClock(clock);
+    }
+
+    /**
+     * Attaches metrics to this car park and every shard, so that operations are
+     * reported where they run.
+     *
+     * @param metrics the metrics, or null to stop reporting
+     */
+    @Override
+    public void setMetrics(CarParkMetrics metrics) {
+        super.setMetrics(metrics);
+        for (Shard shard : shards.values()) shard.setMetrics(metrics);
+    }
+
+    /**
+     * Attaches advance bookings to this car park and every shard, so that they
+     * are enforced where cars are parked.
+     *
+     * @param reservations the bookings, or null to stop enforcing them
+     */
+    @Override
+    public void setReservations(ReservationBook reservations) {
+        super.setReservations(reservations);
+        for (Shard shard : shards.values()) shard.setReservations(reservations);
+    }
+
+    /**
+     * Returns the zone of a slot ID, the default shard key.
+     *
+     * @param slotId the slot ID
+     * @return the zone's name, or "" if the slot ID is not valid
+     */
+    private static String zoneOf(String slotId) {
+        int key = SlotId.encode(slotId);
+        return key < 0 ? "" : SlotId.zoneName(key);
+    }
+
+    /**
+     * Takes a slot added by a failed batch out of its shard again.
+     *
+     * @param slot the slot to take out
+     */
+    @Override
+    void undoAddSlot(ParkingSlot slot) {
+        Shard shard = shardOf(slot.getSlotId());
+        if (shard != null) shard.undoAddSlot(slot);
+    }
+
+    /**
+     * Returns the shard a slot ID belongs to.
+     *
+     * @param slotId the slot ID
+     * @return the shard, or null if it does not exist yet
+     */
+    private Shard shardOf(String slotId) {
+        return shards.get(shardKey.apply(slotId));
+    }
+
+    /**
+     * One shard: a thread-safe car park that claims each car's registration
+     * number in the directory, under the slot's lock, before parking it.
+     */
+    private class Shard extends ConcurrentCarPark {
+
+        /**
+         * Constructs an empty shard with the sharded car park's clock, metrics and listeners.
+         */
+        Shard() {
+            setClock(ShardedCarPark.this.getClock());
+            setMetrics(ShardedCarPark.this.getMetrics());
+            setReservations(ShardedCarPark.this.getReservations());
+            addListener(forwarder);
+        }
+
+        @Override
+        boolean carParking(ParkingSlot slot, Car car) {
+            Shard owner = directory.putIfAbsent(car.getRegistrationNumber(), this);
+            if (owner != null && owner != this) return false; // parked in another shard
+            if (super.carParking(slot, car)) return true;
+            if (owner == null) directory.remove(car.getRegistrationNumber(), this);
+            return false;
+        }
+
+        @Override
+        boolean deferRelease(Runnable release) {
+            return ShardedCarPark.this.deferRelease(release); // batches run on the sharded car park
+        }
+
+        @Override
+        boolean unclaim(ParkingSlot slot, Car car) {
+            if (!super.unclaim(slot, car)) return false;
+            directory.remove(car.getRegistrationNumber(), this);
+            return true;
+        }
+    }
+
+    /**
+     * Runs a query on a range of shards, splitting the range in two until one shard is left.
+     */
+    private static class ShardQuery<R> extends RecursiveTask<R> {
+        private final List<? extends CarPark> shards;
+        private final int from;
+        private final int to;
+        private final Function<CarPark, R> perShard;
+        private final BinaryOperator<R> combine;
+
+        ShardQuery(List<? extends CarPark> shards, int from, int to,
+                   Function<CarPark, R> perShard, BinaryOperator<R> combine) {
+            this.shards = shards;
+            this.from = from;
+            this.to = to;
+            this.perShard = perShard;
+            this.combine = combine;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from == 1) return perShard.apply(shards.get(from));
+            int middle = (from + to) >>> 1;
+            ShardQuery<R> left = new ShardQuery<>(shards, from, middle, perShard, combine);
+            left.fork();
+            R right = new ShardQuery<>(shards, middle, to, perShard, combine).compute();
+            return combine.apply(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Purpose: Used to hold the results of a TrafficSimulator run.
+ *
+ * Counts are kept per type of car, and occupancy is sampled at a fixed
+ * interval to give an occupancy curve over the run.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class SimulationReport {
+
+    private final LocalDateTime start;
+    private final Duration length;
+    private final int staffSlots;
+    private final int visitorSlots;
+
+    // per type of car: index 1 = staff, 0 = visitor; filled in by TrafficSimulator
+    final int[] arrivals = new int[2];
+    final int[] parked = new int[2];
+    final int[] rejected = new int[2];
+    final int[] departures = new int[2];
+    long revenue;
+    int stillParked;
+    long wallNanos;
+
+    private final List<LocalDateTime> sampleTimes = new ArrayList<>();
+    private final List<int[]> samples = new ArrayList<>(); // {staff occupied, visitor occupied}
+
+    /**
+     * Constructs an empty report.
+     *
+     * @param start        the simulated start time
+     * @param length       the simulated length of the run
+     * @param staffSlots   the number of staff slots
+     * @param visitorSlots the number of visitor slots
+     */
+    SimulationReport(LocalDateTime start, Duration length, int staffSlots, int visitorSlots) {
+        this.start = start;
+        this.length = length;
+        this.staffSlots = staffSlots;
+        this.visitorSlots = visitorSlots;
+    }
+
+    /**
+     * Records one occupancy sample.
+     *
+     * @param time            the simulated time of the sample
+     * @param staffOccupied   the number of occupied staff slots
+     * @param visitorOccupied the number of occupied visitor slots
+     */
+    void sample(LocalDateTime time, int staffOccupied, int visitorOccupied) {
+        sampleTimes.add(time);
+        samples.add(new int[] {staffOccupied, visitorOccupied});
+    }
+
+    /**
+     * Returns the number of cars that arrived.
+     *
+     * @param isStaff true for staff cars, false for visitors
+     * @return the number of arrivals
+     */
+    public int getArrivals(boolean isStaff) {
+        return arrivals[isStaff ? 1 : 0];
+    }
+
+    /**
+     * Returns the number of arriving cars that found a slot.
+     *
+     * @param isStaff true for staff cars, false for visitors
+     * @return the number of cars parked
+     */
+    public int getParked(boolean isStaff) {
+        return parked[isStaff ? 1 : 0];
+    }
+
+    /**
+     * Returns the number of arriving cars turned away because no slot of their type was free.
+     *
+     * @param isStaff true for staff cars, false for visitors
+     * @return the number of cars turned away
+     */
+    public int getRejected(boolean isStaff) {
+        return rejected[isStaff ? 1 : 0];
+    }
+
+    /**
+     * Returns the number of cars that left (and paid) during the run.
+     *
+     * @param isStaff true for staff cars, false for visitors
+     * @return the number of departures
+     */
+    public int getDepartures(boolean isStaff) {
+        return departures[isStaff ? 1 : 0];
+    }
+
+    /**
+     * Returns the share of arriving cars that were turned away.
+     *
+     * @return the rejection rate, 0 to 1
+     */
+    public double getRejectionRate() {
+        int total = arrivals[0] + arrivals[1];
+        return total == 0 ? 0 : (double) (rejected[0] + rejected[1]) / total;
+    }
+
+    /**
+     * Returns the number of cars parked per simulated hour.
+     *
+     * @return the throughput in cars per hour
+     */
+    public double getThroughputPerHour() {
+        double hours = length.toMillis() / 3_600_000.0;
+        return hours == 0 ? 0 : (parked[0] + parked[1]) / hours;
+    }
+
+    /**
+     * Returns the total fees paid by cars that left during the run.
+     *
+     * @return the revenue in dollars
+     */
+    public long getRevenue() {
+        return revenue;
+    }
+
+    /**
+     * Returns the number of cars still parked when the run ended.
+     *
+     * @return the number of cars still parked
+     */
+    public int getStillParked() {
+        return stillParked;
+    }
+
+    /**
+     * Returns the simulated times at which occupancy was sampled.
+     *
+     * @return the sample times
+     */
+    public List<LocalDateTime> getSampleTimes() {
+        return Collections.unmodifiableList(sampleTimes);
+    }
+
+    /**
+     * Returns the sampled number of occupied slots of a type, in sample order.
+     *
+     * @param isStaff true for staff slots, false for visitor slots
+     * @return the occupied counts
+     */
+    public int[] getOccupancy(boolean isStaff) {
+        int[] curve = new int[samples.size()];
+        for (int i = 0; i < curve.length; i++) curve[i] = samples.get(i)[isStaff ? 0 : 1];
+        return curve;
+    }
+
+    /**
+     * Returns the real time the run took.
+     *
+     * @return the wall-clock duration
+     */
+    public Duration getWallTime() {
+        return Duration.ofNanos(wallNanos);
+    }
+
+    /**
+     * Returns a summary of the run with an hourly occupancy curve.
+     *
+     * @return the summary text
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Simulated %s from %s in %d ms%n", length, start, getWallTime().toMillis()));
+        sb.append(String.format("Slots: %d staff, %d visitor%n", staffSlots, visitorSlots));
+        sb.append(String.format("Arrivals: %d staff, %d visitor%n", arrivals[1], arrivals[0]));
+        sb.append(String.format("Parked: %d staff, %d visitor (%.1f cars/hour)%n",
+                parked[1], parked[0], getThroughputPerHour()));
+        sb.append(String.format("Turned away: %d staff, %d visitor (%.1f%%)%n",
+                rejected[1], rejected[0], getRejectionRate() * 100));
+        sb.append(String.format("Departed: %d staff, %d visitor; still parked: %d%n",
+                departures[1], departures[0], stillParked));
+        sb.append(String.format("Revenue: $%d%n", revenue));
+        sb.append("Occupancy (staff / visitor):\n");
+        for (int i = 0; i < samples.size(); i++) {
+            LocalDateTime time = sampleTimes.get(i);
+            if (time.getMinute() != 0) continue; // one line per hour
+            int[] sample = samples.get(i);
+            sb.append(String.format("  %s  %5.1f%%  %5.1f%%%n", time,
+                    staffSlots == 0 ? 0.0 : 100.0 * sample[0] / staffSlots,
+                    visitorSlots == 0 ? 0.0 : 100.0 * sample[1] / visitorSlots));
+        }
+        return sb.toString();
+    }
+}
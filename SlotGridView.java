@@ -0,0 +1,457 @@
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Purpose: Used to draw the slots of a car park as a grid of cells.
+ *
+ * The whole grid is one component. Only the rows inside the visible area are
+ * painted, and clicks are mapped back to a slot from their position, so the
+ * cost of showing the grid depends on the size of the window rather than the
+ * number of slots. Staff slots are blue, visitor slots green, and occupied
+ * slots have a thick yellow border and a live indicator line (e.g. duration and fee).
+ *
+ * Tooltips and indicators are only computed for the cells actually looked at:
+ * tooltips when the mouse rests on a cell, and indicators when a visible cell
+ * is painted. A single timer repaints the visible area at a set rate so the
+ * indicators stay current; Swing merges its repaints with any other pending ones.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class SlotGridView extends JComponent implements Scrollable {
+
+    private static final int COLUMNS = 8;
+    private static final int GAP = 8;
+    private static final int CELL_HEIGHT = 40;
+
+    // select color for slot type and occupancy
+    private static final Color STAFF_COLOR = new Color(30, 60, 150);
+    private static final Color VISITOR_COLOR = new Color(25, 120, 60);
+    private static final Color OCCUPIED_BORDER_COLOR = new Color(240, 200, 40);
+    private static final Color EMPTY_BORDER_COLOR = Color.DARK_GRAY;
+
+    // slot ID order: by site, level, zone and bay number, so F99 comes before F100
+    private static final Comparator<ParkingSlot> BY_KEY = Comparator.comparingInt(ParkingSlot::getSlotKey);
+
+    // slots shown, in slot ID order
+    private final List<ParkingSlot> slots = new ArrayList<>();
+
+    private Consumer<ParkingSlot> clickHandler = slot -> { };
+    private Consumer<ParkingSlot> rightClickHandler = slot -> { };
+    private Function<ParkingSlot, String> tooltipProvider = slot -> null;
+    private BiFunction<ParkingSlot, LocalDateTime, String> indicatorProvider = (slot, now) -> null;
+    private Clock clock = Clock.systemDefaultZone();
+
+    // repaints the visible cells so that indicators stay current
+    private final Timer ticker = new Timer(1000, e -> repaint(getVisibleRect()));
+    private final Font indicatorFont;
+
+    // index of the cell under the mouse, and of the cell being pressed, or -1
+    private int hoverIndex = -1;
+    private int pressedIndex = -1;
+
+    /**
+     * Constructs an empty slot grid.
+     */
+    public SlotGridView() {
+        setOpaque(true);
+        setBackground(UIManager.getColor("Panel.background"));
+        setFont(UIManager.getFont("Button.font").deriveFont(Font.BOLD, 12f));
+        indicatorFont = getFont().deriveFont(Font.PLAIN, 10f);
+        ToolTipManager.sharedInstance().registerComponent(this);
+        ticker.setCoalesce(true);
+
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override public void mousePressed(MouseEvent e) {
+                int index = indexAt(e.getPoint());
+                if (index < 0) return;
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    rightClickHandler.accept(slots.get(index));
+                } else if (SwingUtilities.isLeftMouseButton(e)) {
+                    pressedIndex = index;
+                    repaintCell(index);
+                }
+            }
+
+            @Override public void mouseReleased(MouseEvent e) {
+                int index = pressedIndex;
+                if (index < 0) return;
+                pressedIndex = -1;
+                repaintCell(index);
+                if (index == indexAt(e.getPoint())) clickHandler.accept(slots.get(index));
+            }
+
+            @Override public void mouseMoved(MouseEvent e) {
+                setHoverIndex(indexAt(e.getPoint()));
+            }
+
+            @Override public void mouseExited(MouseEvent e) {
+                setHoverIndex(-1);
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+
+    /**
+     * Sets the action for a left click on a slot.
+     *
+     * @param handler called with the slot that was clicked
+     */
+    public void setClickHandler(Consumer<ParkingSlot> handler) {
+        this.clickHandler = handler;
+    }
+
+    /**
+     * Sets the action for a right click on a slot.
+     *
+     * @param handler called with the slot that was right-clicked
+     */
+    public void setRightClickHandler(Consumer<ParkingSlot> handler) {
+        this.rightClickHandler = handler;
+    }
+
+    /**
+     * Sets how tooltip text is built for a slot. It is only asked for when the
+     * mouse rests over a cell.
+     *
+     * @param provider returns the tooltip text for a slot
+     */
+    public void setTooltipProvider(Function<ParkingSlot, String> provider) {
+        this.tooltipProvider = provider;
+    }
+
+    /**
+     * Sets how the indicator line of an occupied slot is built. It is called only
+     * for visible cells, with one shared current time per repaint.
+     *
+     * @param provider returns the indicator text for a slot at a given time, or null for none
+     */
+    public void setIndicatorProvider(BiFunction<ParkingSlot, LocalDateTime, String> provider) {
+        this.indicatorProvider = provider;
+    }
+
+    /**
+     * Sets the clock that indicators are measured to, normally the car park's
+     * (see CarPark.getClock). The system clock is used until one is set.
+     *
+     * @param clock the clock
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Sets how often the visible indicators are refreshed.
+     *
+     * @param millis the refresh interval in milliseconds, or 0 to stop refreshing
+     */
+    public void setRefreshInterval(int millis) {
+        if (millis <= 0) {
+            ticker.stop();
+            return;
+        }
+        ticker.setDelay(millis);
+        ticker.setInitialDelay(millis);
+        if (isDisplayable()) ticker.restart();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (ticker.getDelay() > 0) ticker.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        ticker.stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Replaces all shown slots.
+     *
+     * @param all the slots to show, in any order
+     */
+    public void setSlots(Collection<ParkingSlot> all) {
+        slots.clear();
+        slots.addAll(all);
+        slots.sort(BY_KEY);
+        hoverIndex = -1;
+        pressedIndex = -1;
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Shows a new slot at its place in slot ID order, or replaces the slot with the same ID.
+     *
+     * @param slot the slot to show
+     */
+    public void addSlot(ParkingSlot slot) {
+        int index = indexOf(slot.getSlotKey());
+        if (index >= 0) {
+            slots.set(index, slot);
+            repaintCell(index);
+            return;
+        }
+        slots.add(-index - 1, slot);
+        hoverIndex = -1;
+        revalidate();
+        repaintFrom(-index - 1);
+    }
+
+    /**
+     * Adds or replaces many slots at once, sorting and laying out the grid only once.
+     *
+     * @param added the slots to add, in any order
+     */
+    public void addSlots(Collection<ParkingSlot> added) {
+        Map<String, ParkingSlot> byId = new HashMap<>();
+        for (ParkingSlot slot : added) byId.put(slot.getSlotId(), slot);
+        slots.replaceAll(slot -> byId.getOrDefault(slot.getSlotId(), slot));
+        for (ParkingSlot slot : slots) byId.remove(slot.getSlotId());
+        if (byId.isEmpty()) {
+            repaint();
+            return;
+        }
+        slots.addAll(byId.values());
+        slots.sort(BY_KEY);
+        hoverIndex = -1;
+        pressedIndex = -1;
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Stops showing a slot.
+     *
+     * @param slotId the ID of the slot to remove
+     */
+    public void removeSlot(String slotId) {
+        int index = indexOf(SlotId.encode(slotId));
+        if (index < 0) return;
+        slots.remove(index);
+        hoverIndex = -1;
+        pressedIndex = -1;
+        revalidate();
+        repaintFrom(index);
+    }
+
+    /**
+     * Repaints the cell of a slot whose state has changed.
+     *
+     * @param slot the slot that changed
+     */
+    public void updateSlot(ParkingSlot slot) {
+        int index = indexOf(slot.getSlotKey());
+        if (index < 0) return;
+        slots.set(index, slot);
+        repaintCell(index);
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int index = indexAt(e.getPoint());
+        return index < 0 ? null : tooltipProvider.apply(slots.get(index));
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int rows = (slots.size() + COLUMNS - 1) / COLUMNS;
+        return new Dimension(COLUMNS * (90 + GAP) - GAP, Math.max(0, rows * (CELL_HEIGHT + GAP) - GAP));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            Rectangle clip = g2.getClipBounds();
+            if (clip == null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+            g2.setColor(getBackground());
+            g2.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+            // only the rows that intersect the clip are painted
+            int rowHeight = CELL_HEIGHT + GAP;
+            int firstRow = Math.max(0, clip.y / rowHeight);
+            int lastRow = (clip.y + clip.height) / rowHeight;
+            int first = firstRow * COLUMNS;
+            int last = Math.min(slots.size() - 1, lastRow * COLUMNS + COLUMNS - 1);
+            LocalDateTime now = LocalDateTime.now(clock);
+            for (int i = first; i <= last; i++) {
+                paintCell(g2, i, now);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    /**
+     * Paints one cell: type colour, occupancy border, slot ID and, if occupied, the indicator line.
+     *
+     * @param g     the graphics to paint with
+     * @param index the index of the slot
+     * @param now   the current time shared by all cells of this repaint
+     */
+    private void paintCell(Graphics2D g, int index, LocalDateTime now) {
+        ParkingSlot slot = slots.get(index);
+        Rectangle r = cellBounds(index);
+        Color fill = slot.isStaffSlot() ? STAFF_COLOR : VISITOR_COLOR;
+        if (index == pressedIndex) fill = fill.darker();
+        else if (index == hoverIndex) fill = fill.brighter();
+        g.setColor(fill);
+        g.fillRect(r.x, r.y, r.width, r.height);
+
+        int thickness = slot.isOccupied() ? 3 : 1;
+        g.setColor(slot.isOccupied() ? OCCUPIED_BORDER_COLOR : EMPTY_BORDER_COLOR);
+        for (int i = 0; i < thickness; i++) {
+            g.drawRect(r.x + i, r.y + i, r.width - 1 - 2 * i, r.height - 1 - 2 * i);
+        }
+
+        String indicator = slot.isOccupied() ? indicatorProvider.apply(slot, now) : null;
+        g.setColor(Color.WHITE);
+        g.setFont(getFont());
+        FontMetrics fm = g.getFontMetrics();
+        String text = slot.getSlotId();
+        if (indicator == null) {
+            g.drawString(text, r.x + (r.width - fm.stringWidth(text)) / 2,
+                    r.y + (r.height - fm.getHeight()) / 2 + fm.getAscent());
+            return;
+        }
+        g.drawString(text, r.x + (r.width - fm.stringWidth(text)) / 2, r.y + 4 + fm.getAscent());
+        g.setFont(indicatorFont);
+        FontMetrics small = g.getFontMetrics();
+        g.drawString(indicator, r.x + (r.width - small.stringWidth(indicator)) / 2,
+                r.y + r.height - 5 - small.getDescent());
+    }
+
+    /**
+     * Returns the bounds of the cell at an index.
+     *
+     * @param index the index of the slot
+     * @return the cell's rectangle in component coordinates
+     */
+    private Rectangle cellBounds(int index) {
+        int cellWidth = cellWidth();
+        int row = index / COLUMNS;
+        int col = index % COLUMNS;
+        return new Rectangle(col * (cellWidth + GAP), row * (CELL_HEIGHT + GAP), cellWidth, CELL_HEIGHT);
+    }
+
+    /**
+     * Returns the width of a cell, sharing the component width between the columns.
+     *
+     * @return the cell width in pixels
+     */
+    private int cellWidth() {
+        return Math.max(1, (getWidth() - GAP * (COLUMNS - 1)) / COLUMNS);
+    }
+
+    /**
+     * Finds the slot index under a point.
+     *
+     * @param p the point in component coordinates
+     * @return the index of the slot, or -1 if the point is not over a cell
+     */
+    private int indexAt(Point p) {
+        int cellWidth = cellWidth();
+        int col = p.x / (cellWidth + GAP);
+        int row = p.y / (CELL_HEIGHT + GAP);
+        if (p.x < 0 || p.y < 0 || col >= COLUMNS) return -1;
+        if (p.x - col * (cellWidth + GAP) >= cellWidth || p.y - row * (CELL_HEIGHT + GAP) >= CELL_HEIGHT) return -1;
+        int index = row * COLUMNS + col;
+        return index < slots.size() ? index : -1;
+    }
+
+    /**
+     * Binary-searches the shown slots for a slot key.
+     *
+     * @param slotKey the key of the slot to find (see SlotId)
+     * @return the index of the slot, or (-(insertion point) - 1) if it is not shown
+     */
+    private int indexOf(int slotKey) {
+        int low = 0;
+        int high = slots.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Integer.compare(slots.get(mid).getSlotKey(), slotKey);
+            if (cmp < 0) low = mid + 1;
+            else if (cmp > 0) high = mid - 1;
+            else return mid;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Moves the hover highlight to another cell.
+     *
+     * @param index the index of the cell under the mouse, or -1
+     */
+    private void setHoverIndex(int index) {
+        if (index == hoverIndex) return;
+        int old = hoverIndex;
+        hoverIndex = index;
+        if (old >= 0) repaintCell(old);
+        if (index >= 0) repaintCell(index);
+    }
+
+    /**
+     * Repaints one cell.
+     *
+     * @param index the index of the slot
+     */
+    private void repaintCell(int index) {
+        repaint(cellBounds(index));
+    }
+
+    /**
+     * Repaints every cell from an index onwards, which all shift when a slot is
+     * inserted or removed there. Only the visible part is actually drawn.
+     *
+     * @param index the first index that changed
+     */
+    private void repaintFrom(int index) {
+        int y = (index / COLUMNS) * (CELL_HEIGHT + GAP);
+        repaint(0, y, getWidth(), Math.max(getHeight(), getPreferredSize().height) - y);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? CELL_HEIGHT + GAP : GAP;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
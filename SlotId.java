@@ -0,0 +1,227 @@
+/**
+ * Purpose: Used to validate structured slot IDs and encode them as compact integer keys.
+ *
+ * A slot ID names a bay in a zone, optionally on a level of a site:
+ * <pre>
+ *   F01            zone F, bay 1 (site 0, level 0)
+ *   F100           zone F, bay 100
+ *   L2-F100        level 2, zone F, bay 100
+ *   S3-L2-F1234    site 3, level 2, zone F, bay 1234
+ * </pre>
+ * The zone is one uppercase letter and the bay 0 to 9999, written with at least
+ * two digits and no other leading zeros. Sites run from 1 to 31 and levels from
+ * 1 to 63; site 0 and level 0 are the defaults and are left out of the ID, so
+ * the IDs "A01" to "Z99" keep their meaning. Each slot has exactly one ID.
+ *
+ * The key packs site, level, zone and bay into one non-negative int, in that
+ * order from the top bits down. Sorting keys therefore sorts slots by site,
+ * level, zone and bay number, so F9 comes before F10 and F99 before F100.
+ * Like IdCodec, parsing is a single pass over the characters, without regular
+ * expressions and without allocating.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public final class SlotId {
+
+    /** The largest site number. */
+    public static final int MAX_SITE = 31;
+
+    /** The largest level number. */
+    public static final int MAX_LEVEL = 63;
+
+    /** The largest bay number. */
+    public static final int MAX_BAY = 9999;
+
+    private static final int BAY_BITS = 14;
+    private static final int ZONE_BITS = 5;
+    private static final int LEVEL_BITS = 6;
+    private static final int ZONE_SHIFT = BAY_BITS;
+    private static final int LEVEL_SHIFT = ZONE_SHIFT + ZONE_BITS;
+    private static final int SITE_SHIFT = LEVEL_SHIFT + LEVEL_BITS;
+
+    private SlotId() {
+    }
+
+    /**
+     * Checks whether a slot ID is in the required format.
+     *
+     * @param slotId the slot ID to check
+     * @return true if the slot ID is valid
+     */
+    public static boolean isValid(String slotId) {
+        return encode(slotId) >= 0;
+    }
+
+    /**
+     * Encodes a slot ID as its key.
+     *
+     * @param slotId the slot ID (e.g. "F01" or "S3-L2-F100")
+     * @return the key, or -1 if the slot ID is not in the required format
+     */
+    public static int encode(String slotId) {
+        if (slotId == null) return -1;
+        int length = slotId.length();
+        int at = 0;
+        int site = 0;
+        int level = 0;
+
+        int end = prefixEnd(slotId, at, 'S');
+        if (end > 0) {
+            site = number(slotId, at + 1, end, MAX_SITE);
+            if (site <= 0) return -1;
+            at = end + 1;
+        }
+        end = prefixEnd(slotId, at, 'L');
+        if (end > 0) {
+            level = number(slotId, at + 1, end, MAX_LEVEL);
+            if (level <= 0) return -1;
+            at = end + 1;
+        }
+
+        if (length - at < 3) return -1; // a zone letter and at least two digits
+        char zone = slotId.charAt(at);
+        if (zone < 'A' || zone > 'Z') return -1;
+        int digits = length - at - 1;
+        if (digits > 2 && slotId.charAt(at + 1) == '0') return -1; // F001 is written F01
+        int bay = digits > 4 ? -1 : digits(slotId, at + 1, length);
+        if (bay < 0) return -1;
+        return key(site, level, zone - 'A', bay);
+    }
+
+    /**
+     * Decodes a key back into its slot ID.
+     *
+     * @param key a key returned by encode or of
+     * @return the slot ID
+     */
+    public static String decode(int key) {
+        StringBuilder sb = new StringBuilder(12);
+        if (site(key) > 0) sb.append('S').append(site(key)).append('-');
+        if (level(key) > 0) sb.append('L').append(level(key)).append('-');
+        sb.append(zone(key));
+        int bay = bay(key);
+        if (bay < 10) sb.append('0');
+        return sb.append(bay).toString();
+    }
+
+    /**
+     * Returns the key of a slot from its parts.
+     *
+     * @param site  the site, 0 to MAX_SITE
+     * @param level the level, 0 to MAX_LEVEL
+     * @param zone  the zone letter, 'A' to 'Z'
+     * @param bay   the bay, 0 to MAX_BAY
+     * @return the key
+     * @throws IllegalArgumentException if a part is out of range
+     */
+    public static int of(int site, int level, char zone, int bay) {
+        if (site < 0 || site > MAX_SITE || level < 0 || level > MAX_LEVEL
+                || zone < 'A' || zone > 'Z' || bay < 0 || bay > MAX_BAY) {
+            throw new IllegalArgumentException("Slot ID part out of range.");
+        }
+        return key(site, level, zone - 'A', bay);
+    }
+
+    /**
+     * Returns the site of a key.
+     *
+     * @param key the key
+     * @return the site, 0 if the ID has none
+     */
+    public static int site(int key) {
+        return key >>> SITE_SHIFT;
+    }
+
+    /**
+     * Returns the level of a key.
+     *
+     * @param key the key
+     * @return the level, 0 if the ID has none
+     */
+    public static int level(int key) {
+        return (key >>> LEVEL_SHIFT) & ((1 << LEVEL_BITS) - 1);
+    }
+
+    /**
+     * Returns the zone of a key.
+     *
+     * @param key the key
+     * @return the zone letter
+     */
+    public static char zone(int key) {
+        return (char) ('A' + ((key >>> ZONE_SHIFT) & ((1 << ZONE_BITS) - 1)));
+    }
+
+    /**
+     * Returns the bay of a key.
+     *
+     * @param key the key
+     * @return the bay number
+     */
+    public static int bay(int key) {
+        return key & ((1 << BAY_BITS) - 1);
+    }
+
+    /**
+     * Returns the slot ID without its bay, e.g. "S3-L2-F" for "S3-L2-F100": the
+     * name of the zone the slot is in.
+     *
+     * @param key the key
+     * @return the zone's name
+     */
+    public static String zoneName(int key) {
+        String id = decode(key);
+        return id.substring(0, id.length() - (bay(key) < 100 ? 2 : bay(key) < 1000 ? 3 : 4));
+    }
+
+    /**
+     * Packs the parts of a slot ID, already checked, into a key.
+     */
+    private static int key(int site, int level, int zone, int bay) {
+        return site << SITE_SHIFT | level << LEVEL_SHIFT | zone << ZONE_SHIFT | bay;
+    }
+
+    /**
+     * Finds the end of a site or level prefix, e.g. the '-' of "S3-".
+     *
+     * @param id     the slot ID
+     * @param at     where the prefix would start
+     * @param letter 'S' for a site or 'L' for a level
+     * @return the index of the '-', or -1 if there is no such prefix at that position
+     */
+    private static int prefixEnd(String id, int at, char letter) {
+        if (at >= id.length() || id.charAt(at) != letter) return -1;
+        int i = at + 1;
+        while (i < id.length() && id.charAt(i) >= '0' && id.charAt(i) <= '9') i++;
+        return i > at + 1 && i < id.length() && id.charAt(i) == '-' ? i : -1;
+    }
+
+    /**
+     * Parses a site or level number: digits without leading zeros, at most max.
+     *
+     * @return the number, or -1 if it is not in that form
+     */
+    private static int number(String id, int from, int to, int max) {
+        if (to - from > 1 && id.charAt(from) == '0') return -1;
+        if (to - from > 2) return -1;
+        int value = digits(id, from, to);
+        return value > max ? -1 : value;
+    }
+
+    /**
+     * Parses a run of decimal digits.
+     *
+     * @return the value, or -1 if a character is not a digit
+     */
+    private static int digits(String id, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,291 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Purpose: Used to list the slots of a car park as report rows, in slot ID order.
+ *
+ * The report can be filtered by slot type, occupancy and minimum parked duration.
+ * Selecting slots only collects references to the matching slots; the text of a
+ * row is built when that row is shown or written, so a page of the report or a
+ * CSV export never holds more than one row's text at a time. The CSV export
+ * streams rows through a fixed-size buffer into a file channel.
+ *
+ * The selection itself is a list of references to every matching slot, so it
+ * grows with the car park: a few bytes per slot. This is deliberate. The
+ * report dialog pages through the list by index, and most car parks keep
+ * their slots in a hash map (see CarPark.listSlots), which cannot be walked in
+ * slot ID order without sorting it first. The export sorts the same list, so
+ * its rows come out in the same order as the dialog shows them.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class SlotReport {
+
+    /**
+     * The column headings of a report row.
+     */
+    public static final String[] COLUMNS = {"ID", "Type", "Occupied", "Reg", "Owner", "Duration", "Fee"};
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final CarPark carPark;
+    private final TariffEngine tariff;
+
+    // filters; null means "any"
+    private Boolean staffSlots;
+    private Boolean occupiedSlots;
+    private Duration minimumDuration;
+
+    /**
+     * Constructs an unfiltered report over a car park.
+     *
+     * @param carPark the car park to report on
+     * @param tariff  the tariff engine used to price parked cars
+     */
+    public SlotReport(CarPark carPark, TariffEngine tariff) {
+        this.carPark = carPark;
+        this.tariff = tariff;
+    }
+
+    /**
+     * Restricts the report to one slot type.
+     *
+     * @param staffSlots true for staff slots only, false for visitor slots only, null for both
+     */
+    public void setStaffFilter(Boolean staffSlots) {
+        this.staffSlots = staffSlots;
+    }
+
+    /**
+     * Restricts the report by occupancy.
+     *
+     * @param occupiedSlots true for occupied slots only, false for empty slots only, null for both
+     */
+    public void setOccupiedFilter(Boolean occupiedSlots) {
+        this.occupiedSlots = occupiedSlots;
+    }
+
+    /**
+     * Restricts the report to slots whose car has been parked for at least a given time.
+     * Empty slots never match a minimum duration.
+     *
+     * @param minimumDuration the shortest parked duration to include, or null for no minimum
+     */
+    public void setMinimumDuration(Duration minimumDuration) {
+        this.minimumDuration = minimumDuration;
+    }
+
+    /**
+     * Selects the slots that match the filters, sorted by slot ID. The list
+     * holds a reference to every matching slot; see the class comment.
+     *
+     * @param now the time durations are measured to
+     * @return the matching slots
+     */
+    public List<ParkingSlot> select(LocalDateTime now) {
+        List<ParkingSlot> selected = new ArrayList<>();
+        for (ParkingSlot slot : carPark.listSlots()) {
+            if (matches(slot, now)) selected.add(slot);
+        }
+        selected.sort(Comparator.comparingInt(ParkingSlot::getSlotKey));
+        return selected;
+    }
+
+    /**
+     * Returns the value of one column of a slot's row, for display.
+     *
+     * @param slot   the slot
+     * @param column the column index (see COLUMNS)
+     * @param now    the time durations and fees are measured to
+     * @return the cell text
+     */
+    public String cell(ParkingSlot slot, int column, LocalDateTime now) {
+        Car car = slot.getParkedCar();
+        switch (column) {
+            case 0: return slot.getSlotId();
+            case 1: return slot.isStaffSlot() ? "Staff" : "Visitor";
+            case 2: return car != null ? "Yes" : "No";
+            case 3: return car != null ? car.getRegistrationNumber() : "-";
+            case 4: return car != null ? car.getOwner() : "-";
+            case 5: return car != null && car.getParkedTime() != null
+                    ? formatDuration(Duration.between(car.getParkedTime(), now)) : "-";
+            default: return car != null && car.getParkedTime() != null
+                    ? "$" + tariff.fee(car.isStaff(), car.getParkedTime(), now) : "-";
+        }
+    }
+
+    /**
+     * Writes the matching slots to a CSV file, in slot ID order. Durations are
+     * in whole seconds and fees in dollars. Rows are encoded into one reused
+     * buffer and written through a file channel as it fills.
+     *
+     * @param file the file to create or overwrite
+     * @param now  the time durations and fees are measured to
+     * @return the number of rows written, not counting the header
+     * @throws IOException if the file cannot be written
+     */
+    public int exportCsv(Path file, LocalDateTime now) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CsvWriter out = new CsvWriter(channel);
+            out.append("slot_id,type,occupied,registration,owner,parked_time,duration_seconds,fee\n");
+            int rows = 0;
+            for (ParkingSlot slot : select(now)) {
+                Car car = slot.getParkedCar();
+                out.append(slot.getSlotId()).append(',')
+                   .append(slot.isStaffSlot() ? "staff" : "visitor").append(',')
+                   .append(car != null ? "yes" : "no").append(',');
+                if (car != null) {
+                    out.append(car.getRegistrationNumber()).append(',').appendQuoted(car.getOwner()).append(',');
+                    if (car.getParkedTime() != null) {
+                        out.append(car.getParkedTime().toString()).append(',')
+                           .append(Duration.between(car.getParkedTime(), now).getSeconds()).append(',')
+                           .append(tariff.fee(car.isStaff(), car.getParkedTime(), now));
+                    } else {
+                        out.append(",,");
+                    }
+                } else {
+                    out.append(",,,,");
+                }
+                out.append('\n');
+                rows++;
+            }
+            out.flush();
+            return rows;
+        }
+    }
+
+    /**
+     * Checks a slot against the filters.
+     *
+     * @param slot the slot
+     * @param now  the time durations are measured to
+     * @return true if the slot should be in the report
+     */
+    private boolean matches(ParkingSlot slot, LocalDateTime now) {
+        if (staffSlots != null && slot.isStaffSlot() != staffSlots) return false;
+        if (occupiedSlots != null && slot.isOccupied() != occupiedSlots) return false;
+        if (minimumDuration != null && !minimumDuration.isZero()) {
+            Car car = slot.getParkedCar();
+            if (car == null || car.getParkedTime() == null) return false;
+            if (Duration.between(car.getParkedTime(), now).compareTo(minimumDuration) < 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Formats a duration as hours, minutes and seconds (e.g. "2:05:09").
+     *
+     * @param d the duration
+     * @return the formatted duration
+     */
+    private static String formatDuration(Duration d) {
+        long seconds = Math.max(d.getSeconds(), 0);
+        return String.format("%d:%02d:%02d", seconds / 3600, (seconds % 3600) / 60, seconds % 60);
+    }
+
+    /**
+     * Encodes text as UTF-8 into a fixed buffer and writes the buffer to a
+     * channel whenever it is full.
+     */
+    private static class CsvWriter {
+        private final FileChannel channel;
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE / 4);
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        // a lone surrogate in a name is written as '?' rather than stopping the export
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        CsvWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        CsvWriter append(char c) throws IOException {
+            if (!chars.hasRemaining()) encodeChars();
+            chars.put(c);
+            return this;
+        }
+
+        CsvWriter append(CharSequence text) throws IOException {
+            for (int i = 0; i < text.length(); i++) append(text.charAt(i));
+            return this;
+        }
+
+        CsvWriter append(long value) throws IOException {
+            if (value < 0) {
+                append('-');
+                value = -value;
+            }
+            long divisor = 1;
+            while (value / divisor >= 10) divisor *= 10;
+            for (; divisor > 0; divisor /= 10) append((char) ('0' + value / divisor % 10));
+            return this;
+        }
+
+        /**
+         * Appends a field, quoting it if it contains a comma, quote or line break.
+         */
+        CsvWriter appendQuoted(String text) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < text.length() && !quote; i++) {
+                char c = text.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) return append(text);
+            append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') append('"');
+                append(c);
+            }
+            return append('"');
+        }
+
+        /**
+         * Ends the output: encodes what is left, including a trailing high
+         * surrogate, and writes it. The writer can be used again afterwards.
+         */
+        void flush() throws IOException {
+            encodeChars(true);
+            while (encoder.flush(bytes).isOverflow()) writeBytes();
+            writeBytes();
+            encoder.reset();
+        }
+
+        private void encodeChars() throws IOException {
+            encodeChars(false);
+        }
+
+        private void encodeChars(boolean endOfInput) throws IOException {
+            chars.flip();
+            for (;;) {
+                CoderResult result = encoder.encode(chars, bytes, endOfInput);
+                if (result.isOverflow()) writeBytes();
+                else break;
+            }
+            chars.compact(); // keeps a trailing high surrogate for the next round
+        }
+
+        private void writeBytes() throws IOException {
+            bytes.flip();
+            while (bytes.hasRemaining()) channel.write(bytes);
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Purpose: Used to show a SlotReport one page at a time, with filters and CSV export.
+ *
+ * Only the rows of the current page are turned into text, and only when the
+ * table asks for them. Selecting the slots and exporting them run in the
+ * background (see AsyncCarPark), so the window stays responsive meanwhile.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class SlotReportDialog extends JDialog {
+
+    private static final int PAGE_SIZE = 100;
+
+    private final SlotReport report;
+    private final AsyncCarPark async;
+
+    private final JComboBox<String> typeBox = new JComboBox<>(new String[] {"All types", "Staff", "Visitor"});
+    private final JComboBox<String> occupiedBox = new JComboBox<>(new String[] {"All slots", "Occupied", "Empty"});
+    private final JSpinner minMinutesSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 100000, 15));
+    private final JLabel pageLabel = new JLabel();
+    private final JButton prevBtn = new JButton("< Prev");
+    private final JButton nextBtn = new JButton("Next >");
+    private final JButton applyBtn = new JButton("Apply");
+    private final JButton exportBtn = new JButton("Export CSV...");
+    private final PageModel model = new PageModel();
+
+    // the selected slots, the page shown and the time the selection was made
+    private List<ParkingSlot> selected = Collections.emptyList();
+    private int page;
+    private LocalDateTime now;
+
+    /**
+     * Constructs the dialog and selects the first page of the unfiltered report.
+     *
+     * @param owner  the window the dialog belongs to
+     * @param report the report to show
+     * @param async  runs the selection and export on the report's car park
+     */
+    public SlotReportDialog(Frame owner, SlotReport report, AsyncCarPark async) {
+        super(owner, "All Slots", true);
+        this.report = report;
+        this.async = async;
+        this.now = async.getCarPark().now();
+        setLayout(new BorderLayout(8, 8));
+
+        JPanel filters = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filters.add(typeBox);
+        filters.add(occupiedBox);
+        filters.add(new JLabel("Parked at least (min):"));
+        filters.add(minMinutesSpinner);
+        applyBtn.addActionListener(e -> refresh());
+        filters.add(applyBtn);
+        add(filters, BorderLayout.NORTH);
+
+        JTable table = new JTable(model);
+        table.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        add(new JScrollPane(table), BorderLayout.CENTER);
+
+        JPanel paging = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        prevBtn.addActionListener(e -> showPage(page - 1));
+        nextBtn.addActionListener(e -> showPage(page + 1));
+        exportBtn.addActionListener(e -> onExport());
+        JButton closeBtn = new JButton("Close");
+        closeBtn.addActionListener(e -> dispose());
+        paging.add(prevBtn);
+        paging.add(pageLabel);
+        paging.add(nextBtn);
+        paging.add(exportBtn);
+        paging.add(closeBtn);
+        add(paging, BorderLayout.SOUTH);
+
+        refresh();
+        setSize(800, 500);
+        setLocationRelativeTo(owner);
+    }
+
+    /**
+     * Applies the filters, selects the matching slots again in the background
+     * and shows the first page once they are ready.
+     */
+    private void refresh() {
+        int type = typeBox.getSelectedIndex();
+        report.setStaffFilter(type == 0 ? null : type == 1);
+        int occupied = occupiedBox.getSelectedIndex();
+        report.setOccupiedFilter(occupied == 0 ? null : occupied == 1);
+        int minutes = (Integer) minMinutesSpinner.getValue();
+        report.setMinimumDuration(minutes > 0 ? Duration.ofMinutes(minutes) : null);
+        LocalDateTime time = async.getCarPark().now();
+        setWorking(true, "Selecting slots...");
+        async.submit(carPark -> report.select(time)).whenComplete((slots, error) -> {
+            setWorking(false, null);
+            if (error != null) {
+                warn("Could not list slots: " + error.getMessage());
+                return;
+            }
+            now = time;
+            selected = slots;
+            showPage(0);
+        });
+    }
+
+    /**
+     * Disables the buttons while the report is being selected or exported.
+     *
+     * @param working true while work runs in the background
+     * @param label   shown instead of the page number while it runs, or null
+     */
+    private void setWorking(boolean working, String label) {
+        applyBtn.setEnabled(!working);
+        exportBtn.setEnabled(!working);
+        if (working) {
+            prevBtn.setEnabled(false);
+            nextBtn.setEnabled(false);
+            pageLabel.setText(label);
+        }
+        setCursor(working ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
+    /**
+     * Shows a warning over the dialog.
+     *
+     * @param msg the warning message
+     */
+    private void warn(String msg) {
+        JOptionPane.showMessageDialog(this, msg, "Warning", JOptionPane.WARNING_MESSAGE);
+    }
+
+    /**
+     * Shows one page of the selected slots.
+     *
+     * @param newPage the page index, starting at 0
+     */
+    private void showPage(int newPage) {
+        int pages = Math.max(1, (selected.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        page = Math.max(0, Math.min(newPage, pages - 1));
+        pageLabel.setText("Page " + (page + 1) + " of " + pages + " (" + selected.size() + " slots)");
+        prevBtn.setEnabled(page > 0);
+        nextBtn.setEnabled(page < pages - 1);
+        model.fireTableDataChanged();
+    }
+
+    /**
+     * Asks for a file and exports the filtered report to it as CSV, in the background.
+     */
+    private void onExport() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new java.io.File("slots.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        Path file = chooser.getSelectedFile().toPath();
+        LocalDateTime time = async.getCarPark().now();
+        setWorking(true, "Exporting...");
+        async.submit(carPark -> {
+            try {
+                return report.exportCsv(file, time);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((rows, error) -> {
+            setWorking(false, null);
+            showPage(page);
+            if (error != null) {
+                Throwable cause = error instanceof UncheckedIOException ? error.getCause() : error;
+                warn("Export failed: " + cause.getMessage());
+                return;
+            }
+            JOptionPane.showMessageDialog(this, "Exported " + rows + " slots to " + file,
+                    "Export CSV", JOptionPane.INFORMATION_MESSAGE);
+        });
+    }
+
+    /**
+     * Table model over the current page; cells are built when the table paints them.
+     */
+    private class PageModel extends AbstractTableModel {
+        @Override
+        public int getRowCount() {
+            return Math.max(0, Math.min(PAGE_SIZE, selected.size() - page * PAGE_SIZE));
+        }
+
+        @Override
+        public int getColumnCount() {
+            return SlotReport.COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return SlotReport.COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return report.cell(selected.get(page * PAGE_SIZE + row), column, now);
+        }
+    }
+}
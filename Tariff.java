@@ -0,0 +1,134 @@
+import java.util.Arrays;
+
+/**
+ * Purpose: Used to represent the parking charges for one type of car (staff or visitor).
+ *
+ * Parking is charged per started hour from the time the car was parked. Each of
+ * those hours is charged at the rate of the hour of day it starts in, so the day
+ * can be split into bands with different rates. A daily cap limits the charge
+ * for each 24 hours from the parked time, and stays shorter than the grace
+ * period are free.
+ *
+ * The rules are compiled into a table of capped running totals when the tariff
+ * is created, so working out a fee is a few array lookups and needs no
+ * date/time objects. Tariffs are immutable; the with... methods return a new one.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public final class Tariff {
+
+    private static final int HOURS_PER_DAY = 24;
+    private static final long SECONDS_PER_HOUR = 3600;
+    private static final long SECONDS_PER_DAY = HOURS_PER_DAY * SECONDS_PER_HOUR;
+
+    private final int[] hourlyRates;
+    private final int dailyCap;
+    private final int graceMinutes;
+
+    /**
+     * charges[h][n] is the capped charge for n started hours (0 to 24) when the
+     * first hour starts in hour of day h.
+     */
+    private final int[][] charges = new int[HOURS_PER_DAY][HOURS_PER_DAY + 1];
+
+    /**
+     * Constructs a tariff from its rules.
+     *
+     * @param hourlyRates  the charge in dollars for an hour starting in each hour of day (24 values)
+     * @param dailyCap     the most charged for any 24 hours from the parked time, or 0 for no cap
+     * @param graceMinutes stays up to this many minutes are free, or 0 for no grace period
+     * @throws IllegalArgumentException if there are not 24 rates or any value is negative
+     */
+    public Tariff(int[] hourlyRates, int dailyCap, int graceMinutes) {
+        if (hourlyRates.length != HOURS_PER_DAY) {
+            throw new IllegalArgumentException("A tariff needs one rate for each of the 24 hours.");
+        }
+        if (dailyCap < 0 || graceMinutes < 0 || Arrays.stream(hourlyRates).anyMatch(rate -> rate < 0)) {
+            throw new IllegalArgumentException("Tariff rates, cap and grace period cannot be negative.");
+        }
+        this.hourlyRates = hourlyRates.clone();
+        this.dailyCap = dailyCap;
+        this.graceMinutes = graceMinutes;
+
+        for (int start = 0; start < HOURS_PER_DAY; start++) {
+            int total = 0;
+            for (int n = 1; n <= HOURS_PER_DAY; n++) {
+                total += this.hourlyRates[(start + n - 1) % HOURS_PER_DAY];
+                charges[start][n] = dailyCap > 0 ? Math.min(total, dailyCap) : total;
+            }
+        }
+    }
+
+    /**
+     * Creates a tariff with the same rate for every hour, no cap and no grace period.
+     *
+     * @param ratePerHour the charge in dollars per started hour
+     * @return the new tariff
+     */
+    public static Tariff flat(int ratePerHour) {
+        int[] rates = new int[HOURS_PER_DAY];
+        Arrays.fill(rates, ratePerHour);
+        return new Tariff(rates, 0, 0);
+    }
+
+    /**
+     * Returns a copy of this tariff with a different rate for a band of hours.
+     *
+     * @param fromHour    the first hour of day of the band (0-23)
+     * @param toHour      the hour of day the band ends before (1-24); may be less than
+     *                    fromHour for a band that runs past midnight
+     * @param ratePerHour the charge in dollars for an hour starting in the band
+     * @return the new tariff
+     */
+    public Tariff withBand(int fromHour, int toHour, int ratePerHour) {
+        if (fromHour < 0 || fromHour >= HOURS_PER_DAY || toHour < 1 || toHour > HOURS_PER_DAY) {
+            throw new IllegalArgumentException("Band hours must be between 0 and 24.");
+        }
+        int[] rates = hourlyRates.clone();
+        int length = Math.floorMod(toHour - fromHour, HOURS_PER_DAY);
+        if (length == 0) length = HOURS_PER_DAY;
+        for (int i = 0; i < length; i++) {
+            rates[(fromHour + i) % HOURS_PER_DAY] = ratePerHour;
+        }
+        return new Tariff(rates, dailyCap, graceMinutes);
+    }
+
+    /**
+     * Returns a copy of this tariff with a daily cap.
+     *
+     * @param cap the most charged for any 24 hours from the parked time, or 0 for no cap
+     * @return the new tariff
+     */
+    public Tariff withDailyCap(int cap) {
+        return new Tariff(hourlyRates, cap, graceMinutes);
+    }
+
+    /**
+     * Returns a copy of this tariff with a grace period.
+     *
+     * @param minutes stays up to this many minutes are free, or 0 for no grace period
+     * @return the new tariff
+     */
+    public Tariff withGracePeriod(int minutes) {
+        return new Tariff(hourlyRates, dailyCap, minutes);
+    }
+
+    /**
+     * Computes the fee for a stay. A stay is always at least one second long,
+     * so a car is charged for at least one hour unless a grace period applies.
+     *
+     * @param startEpochSecond the parked time, in seconds since the epoch
+     * @param endEpochSecond   the end of the stay, in seconds since the epoch
+     * @return the fee in dollars
+     */
+    public int fee(long startEpochSecond, long endEpochSecond) {
+        long seconds = Math.max(endEpochSecond - startEpochSecond, 1);
+        if (seconds <= graceMinutes * 60L) return 0;
+        long hours = (seconds + SECONDS_PER_HOUR - 1) / SECONDS_PER_HOUR; // started hours
+        int startHour = (int) (Math.floorMod(startEpochSecond, SECONDS_PER_DAY) / SECONDS_PER_HOUR);
+        int[] row = charges[startHour];
+        return (int) (hours / HOURS_PER_DAY * row[HOURS_PER_DAY] + row[(int) (hours % HOURS_PER_DAY)]);
+    }
+}
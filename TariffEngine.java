@@ -0,0 +1,118 @@
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Purpose: Used to work out parking fees for staff and visitor cars.
+ *
+ * Holds one Tariff for staff cars and one for visitor cars. Besides pricing
+ * a single stay, it can price a whole car park in one pass over arrays of
+ * parked times, without creating any objects per car.
+ *
+ * Times are LocalDateTime values without a zone; they are converted to
+ * "epoch seconds" by reading them as UTC, which keeps the hour of day intact.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class TariffEngine {
+
+    private final Tariff staffTariff;
+    private final Tariff visitorTariff;
+
+    /**
+     * Constructs an engine with separate tariffs for staff and visitor cars.
+     *
+     * @param staffTariff   the tariff for staff cars
+     * @param visitorTariff the tariff for visitor cars
+     */
+    public TariffEngine(Tariff staffTariff, Tariff visitorTariff) {
+        this.staffTariff = staffTariff;
+        this.visitorTariff = visitorTariff;
+    }
+
+    /**
+     * Creates the standard engine: $6 per started hour (minimum 1 hour) for every car.
+     *
+     * @return the standard tariff engine
+     */
+    public static TariffEngine standard() {
+        Tariff flat = Tariff.flat(6);
+        return new TariffEngine(flat, flat);
+    }
+
+    /**
+     * Returns the tariff for a type of car.
+     *
+     * @param isStaff true for the staff tariff, false for the visitor tariff
+     * @return the tariff
+     */
+    public Tariff tariff(boolean isStaff) {
+        return isStaff ? staffTariff : visitorTariff;
+    }
+
+    /**
+     * Computes the fee for one stay.
+     *
+     * @param isStaff true if the car belongs to staff
+     * @param start   the parked time
+     * @param end     the end of the stay
+     * @return the fee in dollars
+     */
+    public int fee(boolean isStaff, LocalDateTime start, LocalDateTime end) {
+        return tariff(isStaff).fee(toEpochSecond(start), toEpochSecond(end));
+    }
+
+    /**
+     * Computes the fees of many parked cars at the same moment.
+     *
+     * @param startEpochSeconds the parked time of each car, in epoch seconds
+     * @param isStaff           whether each car belongs to staff
+     * @param count             the number of cars in the arrays
+     * @param nowEpochSecond    the time to price the stays at, in epoch seconds
+     * @param fees              receives the fee of each car; may be null if only the total is needed
+     * @return the total of all the fees
+     */
+    public long feeAll(long[] startEpochSeconds, boolean[] isStaff, int count, long nowEpochSecond, int[] fees) {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            int fee = (isStaff[i] ? staffTariff : visitorTariff).fee(startEpochSeconds[i], nowEpochSecond);
+            if (fees != null) fees[i] = fee;
+            total += fee;
+        }
+        return total;
+    }
+
+    /**
+     * Computes what all cars parked in a car park would pay if they left now.
+     * The arrays are filled by the car park and can be reused between calls, so
+     * pricing the car park every minute allocates nothing once they are big enough.
+     * If they are too short for the cars parked, larger arrays are allocated
+     * for this call, so every car is still priced.
+     *
+     * @param carPark           the car park to price
+     * @param now               the time to price the stays at
+     * @param startEpochSeconds scratch space for parked times, best at least as long as the number of parked cars
+     * @param isStaff           scratch space for car types, the same length as startEpochSeconds
+     * @return the total of all the fees
+     */
+    public long feeAll(CarPark carPark, LocalDateTime now, long[] startEpochSeconds, boolean[] isStaff) {
+        int count;
+        // retried while cars are parked faster than the arrays grow
+        while ((count = carPark.collectParkedTimes(startEpochSeconds, isStaff)) > startEpochSeconds.length) {
+            startEpochSeconds = new long[count + count / 8];
+            isStaff = new boolean[startEpochSeconds.length];
+        }
+        return feeAll(startEpochSeconds, isStaff, count, toEpochSecond(now), null);
+    }
+
+    /**
+     * Converts a zone-less date-time to seconds since the epoch, reading it as UTC.
+     *
+     * @param time the date-time
+     * @return the epoch second
+     */
+    public static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,325 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Purpose: Used to drive a car park with simulated traffic, for capacity planning and load testing.
+ *
+ * Cars arrive as a Poisson process whose rate follows an hourly profile (e.g.
+ * morning and evening rush hours); each arrival is a staff car with a set
+ * probability and otherwise a visitor. Parked cars stay for a time drawn from
+ * a log-normal distribution with a set mean and standard deviation for each
+ * type, then leave and pay the tariff. Cars that find no free slot of their
+ * type are turned away.
+ *
+ * The simulation is discrete-event: it jumps from one arrival or departure to
+ * the next on a VirtualClock set on the car park, so a day of traffic takes a
+ * moment to run. Times are simulated in UTC. The car park is changed by the
+ * run; cars still parked at the end stay parked.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class TrafficSimulator {
+
+    private static final int ARRIVAL = 0;
+    private static final int DEPARTURE = 1;
+    private static final int SAMPLE = 2;
+
+    private final CarPark carPark;
+    private final TariffEngine tariff;
+    private final Random random;
+
+    private double arrivalsPerHour = 60;
+    private double staffShare = 0.3;
+    private double[] hourlyProfile = flatProfile();
+    private final double[] dwellMeanMinutes = {120, 480};  // visitor, staff
+    private final double[] dwellSdMinutes = {90, 60};
+    private int sampleMinutes = 15;
+
+    // the next registration code to try for an arriving car
+    private int nextRegistration;
+
+    /**
+     * Constructs a simulator for a car park with the default traffic: 60 cars an
+     * hour all day, 30% staff, visitors staying about 2 hours and staff about 8.
+     *
+     * @param carPark the car park to drive
+     * @param tariff  the tariff engine used to charge departing cars
+     * @param seed    the random seed, so that runs can be repeated
+     */
+    public TrafficSimulator(CarPark carPark, TariffEngine tariff, long seed) {
+        this.carPark = carPark;
+        this.tariff = tariff;
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Returns an hourly profile with the same arrival rate all day.
+     *
+     * @return 24 multipliers of 1
+     */
+    public static double[] flatProfile() {
+        double[] profile = new double[24];
+        Arrays.fill(profile, 1);
+        return profile;
+    }
+
+    /**
+     * Returns a commuter profile: quiet at night, a morning peak from 7 to 9 and
+     * a smaller afternoon peak from 16 to 18. The multipliers average 1, so the
+     * daily number of arrivals matches a flat profile at the same rate.
+     *
+     * @return 24 multipliers, one per hour of day
+     */
+    public static double[] rushHourProfile() {
+        double[] profile = {0.1, 0.05, 0.05, 0.05, 0.1, 0.3, 1.0, 3.0, 3.5, 2.0, 1.2, 1.0,
+                            1.2, 1.0, 0.9, 1.0, 1.8, 2.0, 1.2, 0.7, 0.5, 0.4, 0.3, 0.15};
+        double sum = 0;
+        for (double m : profile) sum += m;
+        for (int h = 0; h < 24; h++) profile[h] *= 24 / sum;
+        return profile;
+    }
+
+    /**
+     * Sets the average arrival rate, before the hourly profile is applied.
+     *
+     * @param carsPerHour the mean number of arriving cars per hour
+     */
+    public void setArrivalRate(double carsPerHour) {
+        if (carsPerHour <= 0) throw new IllegalArgumentException("Arrival rate must be positive.");
+        this.arrivalsPerHour = carsPerHour;
+    }
+
+    /**
+     * Sets the share of arriving cars that belong to staff.
+     *
+     * @param share the probability that an arriving car is a staff car, 0 to 1
+     */
+    public void setStaffShare(double share) {
+        if (share < 0 || share > 1) throw new IllegalArgumentException("Staff share must be between 0 and 1.");
+        this.staffShare = share;
+    }
+
+    /**
+     * Sets how the arrival rate changes over the day.
+     *
+     * @param profile 24 multipliers of the arrival rate, one per hour of day
+     */
+    public void setHourlyProfile(double[] profile) {
+        if (profile.length != 24) throw new IllegalArgumentException("A profile needs one value for each of the 24 hours.");
+        for (double m : profile) {
+            if (m < 0) throw new IllegalArgumentException("Profile values cannot be negative.");
+        }
+        this.hourlyProfile = profile.clone();
+    }
+
+    /**
+     * Sets the distribution of stay lengths for one type of car.
+     *
+     * @param isStaff     true for staff cars, false for visitors
+     * @param meanMinutes the mean stay in minutes
+     * @param sdMinutes   the standard deviation of the stay in minutes
+     */
+    public void setDwellTime(boolean isStaff, double meanMinutes, double sdMinutes) {
+        if (meanMinutes <= 0 || sdMinutes < 0) throw new IllegalArgumentException("Invalid stay length.");
+        dwellMeanMinutes[isStaff ? 1 : 0] = meanMinutes;
+        dwellSdMinutes[isStaff ? 1 : 0] = sdMinutes;
+    }
+
+    /**
+     * Sets how often occupancy is sampled for the report.
+     *
+     * @param minutes the sampling interval in simulated minutes
+     */
+    public void setSampleInterval(int minutes) {
+        if (minutes < 1) throw new IllegalArgumentException("Sample interval must be at least one minute.");
+        this.sampleMinutes = minutes;
+    }
+
+    /**
+     * Runs the simulation. The car park's clock is replaced by a virtual clock
+     * for the run and put back afterwards.
+     *
+     * @param start  the simulated time to start at
+     * @param length how much simulated time to run for
+     * @return the report of the run
+     */
+    public SimulationReport run(LocalDateTime start, Duration length) {
+        long startMillis = start.toInstant(ZoneOffset.UTC).toEpochMilli();
+        long endMillis = startMillis + length.toMillis();
+        VirtualClock clock = new VirtualClock(start.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        java.time.Clock previous = carPark.getClock();
+        carPark.setClock(clock);
+
+        int[] slotCount = new int[2];
+        for (ParkingSlot slot : carPark.listSlots()) slotCount[slot.isStaffSlot() ? 1 : 0]++;
+        SimulationReport report = new SimulationReport(start, length, slotCount[1], slotCount[0]);
+        double peak = 0;
+        for (double m : hourlyProfile) peak = Math.max(peak, m);
+
+        PriorityQueue<Event> events = new PriorityQueue<>();
+        if (peak > 0) events.add(new Event(startMillis + nextGap(peak), ARRIVAL, null));
+        events.add(new Event(startMillis, SAMPLE, null));
+        long wallStart = System.nanoTime();
+        try {
+            while (!events.isEmpty() && events.peek().time <= endMillis) {
+                Event event = events.poll();
+                clock.advanceTo(java.time.Instant.ofEpochMilli(event.time));
+                switch (event.kind) {
+                    case ARRIVAL -> {
+                        events.add(new Event(event.time + nextGap(peak), ARRIVAL, null));
+                        // thinning: keep the candidate arrival in proportion to this hour's rate
+                        int hour = (int) Math.floorMod(event.time / 3_600_000L, 24L);
+                        if (random.nextDouble() * peak < hourlyProfile[hour]) arrive(event.time, events, report);
+                    }
+                    case DEPARTURE -> depart(event.car, report, clock);
+                    default -> {
+                        report.sample(LocalDateTime.now(clock),
+                                slotCount[1] - carPark.countFreeSlots(true),
+                                slotCount[0] - carPark.countFreeSlots(false));
+                        events.add(new Event(event.time + sampleMinutes * 60_000L, SAMPLE, null));
+                    }
+                }
+            }
+        } finally {
+            carPark.setClock(previous);
+        }
+        for (Event event : events) {
+            if (event.kind == DEPARTURE) report.stillParked++;
+        }
+        report.wallNanos = System.nanoTime() - wallStart;
+        return report;
+    }
+
+    /**
+     * Handles an arriving car: parks it in any free slot of its type and
+     * schedules its departure, or turns it away.
+     *
+     * @param time   the arrival time in epoch milliseconds
+     * @param events the event queue to add the departure to
+     * @param report the report to count the arrival in
+     */
+    private void arrive(long time, PriorityQueue<Event> events, SimulationReport report) {
+        boolean isStaff = random.nextDouble() < staffShare;
+        int type = isStaff ? 1 : 0;
+        report.arrivals[type]++;
+        Car car = new Car(nextRegistration(), isStaff ? "Staff member" : "Visitor", isStaff);
+        if (carPark.parkCarAnywhere(car) == null) {
+            report.rejected[type]++;
+            return;
+        }
+        report.parked[type]++;
+        long dwellMillis = Math.max(60_000L, (long) (sampleDwellMinutes(type) * 60_000));
+        events.add(new Event(time + dwellMillis, DEPARTURE, car));
+    }
+
+    /**
+     * Handles a departing car: removes it and charges it.
+     *
+     * @param car    the departing car
+     * @param report the report to count the departure and fee in
+     * @param clock  the simulation clock
+     */
+    private void depart(Car car, SimulationReport report, VirtualClock clock) {
+        LocalDateTime parkedTime = car.getParkedTime();
+        if (!carPark.removeCar(car.getRegistrationNumber())) return; // removed by someone else meanwhile
+        report.departures[car.isStaff() ? 1 : 0]++;
+        if (parkedTime != null) report.revenue += tariff.fee(car.isStaff(), parkedTime, LocalDateTime.now(clock));
+    }
+
+    /**
+     * Returns a registration number that is not parked in the car park.
+     *
+     * @return the registration number
+     */
+    private String nextRegistration() {
+        for (;;) {
+            String reg = IdCodec.decodeRegistration(nextRegistration);
+            nextRegistration = (nextRegistration + 1) % IdCodec.REGISTRATION_COUNT;
+            if (carPark.findCar(reg) == null) return reg;
+        }
+    }
+
+    /**
+     * Draws the time until the next candidate arrival at the peak rate.
+     *
+     * @param peak the largest multiplier in the hourly profile
+     * @return the gap in milliseconds
+     */
+    private long nextGap(double peak) {
+        double ratePerMilli = arrivalsPerHour * peak / 3_600_000.0;
+        return Math.max(1, (long) (-Math.log(1 - random.nextDouble()) / ratePerMilli));
+    }
+
+    /**
+     * Draws a stay length from the log-normal distribution for a type of car.
+     *
+     * @param type 1 for staff, 0 for visitors
+     * @return the stay in minutes
+     */
+    private double sampleDwellMinutes(int type) {
+        double mean = dwellMeanMinutes[type];
+        double sd = dwellSdMinutes[type];
+        double sigma2 = Math.log(1 + sd * sd / (mean * mean));
+        double mu = Math.log(mean) - sigma2 / 2;
+        return Math.exp(mu + Math.sqrt(sigma2) * random.nextGaussian());
+    }
+
+    /**
+     * An arrival, departure or sampling event, ordered by time.
+     */
+    private static class Event implements Comparable<Event> {
+        private final long time;
+        private final int kind;
+        private final Car car;
+
+        /**
+         * Constructs an event.
+         *
+         * @param time the event time in epoch milliseconds
+         * @param kind ARRIVAL, DEPARTURE or SAMPLE
+         * @param car  the departing car, or null
+         */
+        Event(long time, int kind, Car car) {
+            this.time = time;
+            this.kind = kind;
+            this.car = car;
+        }
+
+        @Override
+        public int compareTo(Event other) {
+            return Long.compare(time, other.time);
+        }
+    }
+
+    /**
+     * Runs one simulated day on a new CompactCarPark and prints the report.
+     * Arguments: staff slots, visitor slots, arrivals per hour, days, seed
+     * (defaults 40 160 60 1 1). Uses the rush-hour profile.
+     *
+     * @param args optional arguments as above
+     */
+    public static void main(String[] args) {
+        int staffSlots = args.length > 0 ? Integer.parseInt(args[0]) : 40;
+        int visitorSlots = args.length > 1 ? Integer.parseInt(args[1]) : 160;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 60;
+        int days = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        CarPark carPark = new CompactCarPark();
+        List<ParkingSlot> slots = new ArrayList<>();
+        for (int code = 0; code < staffSlots + visitorSlots && code < IdCodec.SLOT_ID_COUNT; code++) {
+            slots.add(new ParkingSlot(IdCodec.decodeSlotId(code), code < staffSlots));
+        }
+        carPark.addSlots(slots);
+
+        TrafficSimulator simulator = new TrafficSimulator(carPark, TariffEngine.standard(), seed);
+        simulator.setArrivalRate(rate);
+        simulator.setHourlyProfile(rushHourProfile());
+        SimulationReport report = simulator.run(LocalDateTime.of(2025, 1, 6, 0, 0), Duration.ofDays(days));
+        System.out.println(report);
+    }
+}
@@ -0,0 +1,89 @@
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Purpose: Used to give a car park simulated time that only moves when told to.
+ *
+ * Set on a car park with CarPark.setClock (and passed to listeners that take a
+ * clock), it lets a simulation run a whole day in moments, with every parked
+ * time, exit time and fee worked out as if the day had really passed.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+public class VirtualClock extends Clock {
+
+    private final ZoneId zone;
+    private volatile Instant now;
+
+    /**
+     * Constructs a clock stopped at a given instant.
+     *
+     * @param start the instant the clock shows until it is moved
+     * @param zone  the time zone used to turn the instant into local times
+     */
+    public VirtualClock(Instant start, ZoneId zone) {
+        this.now = start;
+        this.zone = zone;
+    }
+
+    /**
+     * Moves the clock to a given instant.
+     *
+     * @param instant the new time; may not be before the current time
+     * @throws IllegalArgumentException if the instant is earlier than the current time
+     */
+    public void advanceTo(Instant instant) {
+        if (instant.isBefore(now)) throw new IllegalArgumentException("A virtual clock cannot go back.");
+        now = instant;
+    }
+
+    /**
+     * Moves the clock forward.
+     *
+     * @param duration how far to move it
+     */
+    public void advance(Duration duration) {
+        advanceTo(now.plus(duration));
+    }
+
+    @Override
+    public Instant instant() {
+        return now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * Returns a clock in another time zone that shares this clock's time.
+     *
+     * @param zone the time zone
+     * @return a clock showing the same instant in the given zone
+     */
+    @Override
+    public Clock withZone(ZoneId zone) {
+        VirtualClock outer = this;
+        return new Clock() {
+            @Override
+            public Instant instant() {
+                return outer.instant();
+            }
+
+            @Override
+            public ZoneId getZone() {
+                return zone;
+            }
+
+            @Override
+            public Clock withZone(ZoneId other) {
+                return outer.withZone(other);
+            }
+        };
+    }
+}
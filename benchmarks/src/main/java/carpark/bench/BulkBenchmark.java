@@ -0,0 +1,74 @@
+package carpark.bench;
+
+import carpark.CarPark;
+import carpark.ParkingSlot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: Used to measure operations that build up or clear a whole car park.
+ *
+ * A fresh car park is prepared before every invocation (outside the measured
+ * time), since each of these operations changes the car park too much to undo.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkBenchmark {
+
+    @Param({"CarPark", "CompactCarPark", "ConcurrentCarPark"})
+    public String impl;
+
+    @Param({"100", "1000", "2500"})
+    public int slots;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double occupancy;
+
+    private CarPark empty;
+    private CarPark filled;
+    private ParkingSlot[] newSlots;
+
+    /**
+     * Prepares an empty car park with new slots to add, and a filled car park to clear.
+     */
+    @Setup(Level.Invocation)
+    public void setUp() {
+        empty = Fixtures.newCarPark(impl);
+        newSlots = new ParkingSlot[slots];
+        for (int i = 0; i < slots; i++) newSlots[i] = new ParkingSlot(Fixtures.slotId(i), Fixtures.isStaffSlot(i));
+        filled = Fixtures.newCarPark(impl);
+        Fixtures.fill(filled, slots, occupancy, 42);
+    }
+
+    /**
+     * Adds every slot, one by one, to an empty car park.
+     * (The share of occupied slots does not apply here.)
+     *
+     * @return the car park
+     */
+    @Benchmark
+    public CarPark addAllSlots() {
+        for (ParkingSlot slot : newSlots) empty.addSlot(slot);
+        return empty;
+    }
+
+    /**
+     * Deletes every unoccupied slot of a filled car park.
+     *
+     * @return the car park
+     */
+    @Benchmark
+    public CarPark deleteAllUnoccupiedSlots() {
+        filled.deleteAllUnoccupiedSlots();
+        return filled;
+    }
+}
@@ -0,0 +1,186 @@
+package carpark.bench;
+
+import carpark.Car;
+import carpark.CarPark;
+import carpark.IdCodec;
+import carpark.ParkResult;
+import carpark.ParkingSlot;
+import carpark.TariffEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: Used to measure the everyday operations on a car park that is
+ * already set up: lookups, parking and removing, adding slots, listing the
+ * slots and pricing every parked car.
+ *
+ * Each benchmark is run for every combination of implementation, number of
+ * slots and share of occupied slots. Operations that change the car park undo
+ * their change in the same invocation, so the car park stays the same size and
+ * occupancy for the whole run.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarParkBenchmark {
+
+    @Param({"CarPark", "CompactCarPark", "ConcurrentCarPark"})
+    public String impl;
+
+    // below IdCodec.SLOT_ID_COUNT so that addSlot always has a free ID to use
+    @Param({"100", "1000", "2500"})
+    public int slots;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double occupancy;
+
+    private CarPark carPark;
+    private final TariffEngine engine = TariffEngine.standard();
+
+    private String[] slotIds;          // every slot, in random order
+    private String[] registrations;    // cars to look up: parked ones, or unknown ones if none is parked
+    private String[] cycleSlotIds;     // slot and car pairs for removeCar
+    private Car[] cycleCars;
+    private ParkingSlot[] spareSlots;  // slots not in the car park, for addSlot
+
+    private long[] startEpochSeconds;
+    private boolean[] isStaff;
+
+    private int next;
+
+    /**
+     * Builds and fills the car park and picks the IDs each benchmark works through.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        carPark = Fixtures.newCarPark(impl);
+        int[] occupied = Fixtures.fill(carPark, slots, occupancy, 42);
+
+        int[] order = Fixtures.shuffled(slots, 7);
+        slotIds = new String[slots];
+        for (int k = 0; k < slots; k++) slotIds[k] = Fixtures.slotId(order[k]);
+
+        if (occupied.length > 0) {
+            // remove a parked car, then park it again
+            cycleSlotIds = new String[occupied.length];
+            cycleCars = new Car[occupied.length];
+            registrations = new String[occupied.length];
+            for (int k = 0; k < occupied.length; k++) {
+                int i = occupied[k];
+                cycleSlotIds[k] = Fixtures.slotId(i);
+                cycleCars[k] = carPark.findSlot(cycleSlotIds[k]).getParkedCar();
+                registrations[k] = cycleCars[k].getRegistrationNumber();
+            }
+        } else {
+            // nothing is parked: park a car in a free slot, then remove it
+            cycleSlotIds = slotIds.clone();
+            cycleCars = new Car[slots];
+            registrations = new String[slots];
+            for (int k = 0; k < slots; k++) {
+                cycleCars[k] = Fixtures.carFor(order[k]);
+                registrations[k] = cycleCars[k].getRegistrationNumber();
+            }
+        }
+
+        spareSlots = new ParkingSlot[IdCodec.SLOT_ID_COUNT - slots];
+        for (int i = slots; i < IdCodec.SLOT_ID_COUNT; i++) {
+            spareSlots[i - slots] = new ParkingSlot(Fixtures.slotId(i), Fixtures.isStaffSlot(i));
+        }
+
+        startEpochSeconds = new long[slots];
+        isStaff = new boolean[slots];
+    }
+
+    /**
+     * Returns the next position in a round-robin over an array of the given length.
+     *
+     * @param length the array length
+     * @return the position
+     */
+    private int next(int length) {
+        int i = next++;
+        if (next >= 1 << 30) next = 0;
+        return i % length;
+    }
+
+    /**
+     * Finds a slot that exists.
+     *
+     * @return the slot found
+     */
+    @Benchmark
+    public ParkingSlot findSlot() {
+        return carPark.findSlot(slotIds[next(slotIds.length)]);
+    }
+
+    /**
+     * Finds the slot of a parked car (or, in an empty car park, looks for a car that is not there).
+     *
+     * @return the slot found, or null
+     */
+    @Benchmark
+    public ParkingSlot findCar() {
+        return carPark.findCar(registrations[next(registrations.length)]);
+    }
+
+    /**
+     * Removes a parked car and parks it again at the same time (in an empty car
+     * park: parks a car in a free slot and removes it again).
+     *
+     * @return the result of the second operation
+     */
+    @Benchmark
+    public Object removeCar() {
+        int k = next(cycleCars.length);
+        Car car = cycleCars[k];
+        if (occupancy > 0) {
+            carPark.removeCar(car.getRegistrationNumber());
+            return carPark.parkCar(cycleSlotIds[k], car, car.getParkedTime());
+        }
+        ParkResult parked = carPark.parkCar(cycleSlotIds[k], car, Fixtures.NOW);
+        return parked == ParkResult.PARKED && carPark.removeCar(car.getRegistrationNumber());
+    }
+
+    /**
+     * Adds a slot with an unused ID and deletes it again.
+     *
+     * @return true if both succeeded
+     */
+    @Benchmark
+    public boolean addSlot() {
+        ParkingSlot slot = spareSlots[next(spareSlots.length)];
+        return carPark.addSlot(slot) & carPark.deleteSlot(slot.getSlotId());
+    }
+
+    /**
+     * Walks every slot in the car park and counts the occupied ones.
+     *
+     * @return the number of occupied slots
+     */
+    @Benchmark
+    public int listSlots() {
+        int count = 0;
+        for (ParkingSlot slot : carPark.listSlots()) {
+            if (slot.isOccupied()) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Works out the fee of every parked car as at the same moment.
+     *
+     * @return the total of the fees
+     */
+    @Benchmark
+    public long feeAll() {
+        return engine.feeAll(carPark, Fixtures.NOW, startEpochSeconds, isStaff);
+    }
+}
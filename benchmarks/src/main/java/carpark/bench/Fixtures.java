@@ -0,0 +1,124 @@
+package carpark.bench;
+
+import carpark.Car;
+import carpark.CarPark;
+import carpark.CompactCarPark;
+import carpark.ConcurrentCarPark;
+import carpark.IdCodec;
+import carpark.ParkingSlot;
+
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/**
+ * Purpose: Used to build the car parks and IDs that the benchmarks work on.
+ *
+ * Slot i has the slot ID with code i (A00, A01, ...); even codes are staff
+ * slots and odd codes visitor slots. Every car park is filled the same way for
+ * the same arguments, so runs of different implementations can be compared.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+final class Fixtures {
+
+    /**
+     * The time the benchmarks treat as now; parked cars arrived up to ten hours before it.
+     */
+    static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 1, 18, 0);
+
+    private Fixtures() {
+    }
+
+    /**
+     * Creates an empty car park of a given implementation.
+     *
+     * @param impl the simple class name: CarPark, CompactCarPark or ConcurrentCarPark
+     * @return the empty car park
+     * @throws IllegalArgumentException if the name is not one of the above
+     */
+    static CarPark newCarPark(String impl) {
+        switch (impl) {
+            case "CarPark": return new CarPark();
+            case "CompactCarPark": return new CompactCarPark();
+            case "ConcurrentCarPark": return new ConcurrentCarPark();
+            default: throw new IllegalArgumentException("Unknown car park: " + impl);
+        }
+    }
+
+    /**
+     * Returns the slot ID of slot i.
+     *
+     * @param i the slot number, 0 to IdCodec.SLOT_ID_COUNT - 1
+     * @return the slot ID
+     */
+    static String slotId(int i) {
+        return IdCodec.decodeSlotId(i);
+    }
+
+    /**
+     * Indicates whether slot i is a staff slot.
+     *
+     * @param i the slot number
+     * @return true for a staff slot
+     */
+    static boolean isStaffSlot(int i) {
+        return (i & 1) == 0;
+    }
+
+    /**
+     * Creates the car that belongs in slot i.
+     *
+     * @param i the slot number
+     * @return a car of the slot's type with a registration number unique to the slot
+     */
+    static Car carFor(int i) {
+        return new Car(IdCodec.decodeRegistration(i * 97 % IdCodec.REGISTRATION_COUNT),
+                "Owner " + i, isStaffSlot(i));
+    }
+
+    /**
+     * Adds slots 0 to slotCount - 1 to a car park and parks a car in a random
+     * share of them, parked at random times during the ten hours before NOW.
+     *
+     * @param carPark   the empty car park to fill
+     * @param slotCount the number of slots
+     * @param occupancy the share of slots to fill, 0 to 1
+     * @param seed      the seed that picks the occupied slots and parked times
+     * @return the numbers of the occupied slots, in random order
+     */
+    static int[] fill(CarPark carPark, int slotCount, double occupancy, long seed) {
+        for (int i = 0; i < slotCount; i++) carPark.addSlot(new ParkingSlot(slotId(i), isStaffSlot(i)));
+        int[] order = shuffled(slotCount, seed);
+        int parked = (int) Math.round(slotCount * occupancy);
+        Random random = new Random(seed + 1);
+        int[] occupied = new int[parked];
+        for (int k = 0; k < parked; k++) {
+            int i = order[k];
+            carPark.parkCar(slotId(i), carFor(i), NOW.minusSeconds(random.nextInt(10 * 3600)));
+            occupied[k] = i;
+        }
+        return occupied;
+    }
+
+    /**
+     * Returns 0 to n - 1 in a random order.
+     *
+     * @param n    the number of values
+     * @param seed the seed for the order
+     * @return the shuffled values
+     */
+    static int[] shuffled(int n, long seed) {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) values[i] = i;
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = values[i];
+            values[i] = values[j];
+            values[j] = t;
+        }
+        return values;
+    }
+}
@@ -0,0 +1,83 @@
+package carpark.bench;
+
+import carpark.Car;
+import carpark.IdCodec;
+import carpark.ParkingSlot;
+import carpark.TariffEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Purpose: Used to measure creating cars and parking slots, and pricing a single stay.
+ *
+ * These do not depend on the size of a car park, so they take no parameters.
+ *
+ * @author Tung Tran 103432596
+ * @version JDK 21
+ * Class COS70006 Tuesday 18:30
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelBenchmark {
+
+    private static final int COUNT = 1024;
+
+    private final String[] slotIds = new String[COUNT];
+    private final String[] registrations = new String[COUNT];
+    private final LocalDateTime[] starts = new LocalDateTime[COUNT];
+    private final TariffEngine engine = TariffEngine.standard();
+
+    private int next;
+
+    /**
+     * Picks the IDs and parked times to work through.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        for (int i = 0; i < COUNT; i++) {
+            slotIds[i] = IdCodec.decodeSlotId(i * 7 % IdCodec.SLOT_ID_COUNT);
+            registrations[i] = IdCodec.decodeRegistration(i * 97 % IdCodec.REGISTRATION_COUNT);
+            // stays from a few minutes to a few days
+            starts[i] = Fixtures.NOW.minusMinutes((long) i * i % (3 * 24 * 60) + 1);
+        }
+    }
+
+    /**
+     * Creates a car.
+     *
+     * @return the new car
+     */
+    @Benchmark
+    public Car newCar() {
+        int i = next++ & (COUNT - 1);
+        return new Car(registrations[i], "Owner", (i & 1) == 0);
+    }
+
+    /**
+     * Creates a parking slot.
+     *
+     * @return the new slot
+     */
+    @Benchmark
+    public ParkingSlot newParkingSlot() {
+        int i = next++ & (COUNT - 1);
+        return new ParkingSlot(slotIds[i], (i & 1) == 0);
+    }
+
+    /**
+     * Works out the fee for one stay.
+     *
+     * @return the fee
+     */
+    @Benchmark
+    public int fee() {
+        int i = next++ & (COUNT - 1);
+        return engine.fee((i & 1) == 0, starts[i], Fixtures.NOW);
+    }
+}